@@ -0,0 +1,93 @@
+package com.example.bicycleinsurance.benchmark;
+
+import com.example.bicycleinsurance.config.RatingProperties;
+import com.example.bicycleinsurance.config.ScriptEngineProperties;
+import com.example.bicycleinsurance.config.TariffProperties;
+import com.example.bicycleinsurance.dto.BicycleDto;
+import com.example.bicycleinsurance.mapper.BicycleMapperImpl;
+import com.example.bicycleinsurance.model.CoverageType;
+import com.example.bicycleinsurance.monitoring.RatingMetrics;
+import com.example.bicycleinsurance.service.GroovyScriptEngine;
+import com.example.bicycleinsurance.service.InsuranceService;
+import com.example.bicycleinsurance.service.ParallelRatingExecutor;
+import com.example.bicycleinsurance.service.RiskRatingCache;
+import com.example.bicycleinsurance.service.TariffVersions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.math.BigDecimal;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the rating components without Spring and generates deterministic benchmark input.
+ */
+final class BenchmarkFixtures {
+
+    private static final String[][] MAKES_AND_MODELS = {
+            {"Canyon", "CF 5"},
+            {"Whyte", "T-160 RS"},
+            {"Pearl", "Gravel SL EVO"},
+            {"Sensa", "V2"},
+            {"Krush", "Tour"},
+            {"Giant", "Defy Advanced"}
+    };
+
+    private static final List<List<String>> RISK_SETS = List.of(
+            List.of("THEFT", "DAMAGE", "THIRD_PARTY_DAMAGE"),
+            List.of("THEFT", "DAMAGE"),
+            List.of("DAMAGE"),
+            List.of("THIRD_PARTY_DAMAGE"));
+
+    private BenchmarkFixtures() {
+    }
+
+    static GroovyScriptEngine engine(ScriptEngineProperties.CompilationMode compilationMode,
+                                     ScriptEngineProperties.InstanceMode instanceMode) {
+        ScriptEngineProperties properties = new ScriptEngineProperties();
+        properties.setCompilationMode(compilationMode);
+        properties.setInstanceMode(instanceMode);
+        return new GroovyScriptEngine(properties);
+    }
+
+    static InsuranceService insuranceService(GroovyScriptEngine engine, RatingProperties ratingProperties) {
+        RiskRatingCache riskRatingCache = new RiskRatingCache(ratingProperties);
+        return new InsuranceService(new BicycleMapperImpl(), engine, new ParallelRatingExecutor(ratingProperties),
+                riskRatingCache, new RatingMetrics(new SimpleMeterRegistry(), riskRatingCache), ratingProperties,
+                new TariffVersions(new TariffProperties(), engine));
+    }
+
+    static BicycleDto bicycle(int index) {
+        String[] makeAndModel = MAKES_AND_MODELS[index % MAKES_AND_MODELS.length];
+        return BicycleDto.builder()
+                .make(makeAndModel[0])
+                .model(makeAndModel[1])
+                .manufactureYear(Year.now().getValue() - index % 11)
+                .sumInsured(BigDecimal.valueOf(200 + (index * 37L) % 4800))
+                .coverage(index % 2 == 0 ? CoverageType.STANDARD : CoverageType.EXTRA)
+                .risks(RISK_SETS.get(index % RISK_SETS.size()))
+                .build();
+    }
+
+    static List<BicycleDto> fleet(int size) {
+        List<BicycleDto> fleet = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            fleet.add(bicycle(i));
+        }
+        return fleet;
+    }
+
+    static Map<String, Object> damageVariables() {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("riskType", "DAMAGE");
+        variables.put("bicycleAge", 3);
+        variables.put("sumInsured", new BigDecimal("1000"));
+        variables.put("make", "Pearl");
+        variables.put("model", "Gravel SL EVO");
+        variables.put("riskCount", 3);
+        variables.put("riskSumInsured", new BigDecimal("500.0"));
+        return variables;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.bicycleinsurance.benchmark;
+
+import com.example.bicycleinsurance.BicycleInsuranceApplication;
+import com.example.bicycleinsurance.dto.PremiumRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code POST /api/v1/calculate} over HTTP against the servlet stack and the reactive stack, with more concurrent
+ * clients than Tomcat has request threads. Throughput mode gives the requests per second, sample time mode the
+ * latency percentiles up to p99.99. Client and server share the machine, so compare the stacks with each other
+ * rather than with production figures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 10, time = 5)
+@Threads(256)
+@Fork(3)
+public class CalculateLoadBenchmark {
+
+    @Param({"servlet", "reactive"})
+    private String stack;
+
+    @Param({"1", "100"})
+    private int fleetSize;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(BicycleInsuranceApplication.class)
+                .profiles(stack.equals("reactive") ? new String[]{"reactive"} : new String[0])
+                .properties("server.port=0", "logging.level.com.example.bicycleinsurance=WARN")
+                .run();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        PremiumRequest premiumRequest = new PremiumRequest();
+        premiumRequest.setBicycles(BenchmarkFixtures.fleet(fleetSize));
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/calculate"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(new ObjectMapper().writeValueAsBytes(premiumRequest)))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int calculate() throws Exception {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Calculate answered " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.bicycleinsurance.benchmark;
+
+import com.example.bicycleinsurance.config.RatingProperties;
+import com.example.bicycleinsurance.config.ScriptEngineProperties.CompilationMode;
+import com.example.bicycleinsurance.config.ScriptEngineProperties.InstanceMode;
+import com.example.bicycleinsurance.dto.BicycleDto;
+import com.example.bicycleinsurance.dto.PremiumResponse;
+import com.example.bicycleinsurance.service.InsuranceService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full premium calculation through InsuranceService, for one three-risk bicycle and for fleets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsuranceServiceBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int fleetSize;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    @Param({"BIG_DECIMAL", "FIXED_POINT"})
+    private RatingProperties.Arithmetic arithmetic;
+
+    @Param({"false", "true"})
+    private boolean batch;
+
+    private InsuranceService insuranceService;
+    private List<BicycleDto> fleet;
+    private BicycleDto threeRiskBicycle;
+
+    @Setup
+    public void setUp() {
+        RatingProperties ratingProperties = new RatingProperties();
+        ratingProperties.getParallel().setEnabled(parallel);
+        ratingProperties.setArithmetic(arithmetic);
+        ratingProperties.setBatch(batch);
+        insuranceService = BenchmarkFixtures.insuranceService(
+                BenchmarkFixtures.engine(CompilationMode.DYNAMIC, InstanceMode.PER_CALL), ratingProperties);
+        fleet = BenchmarkFixtures.fleet(fleetSize);
+        threeRiskBicycle = BenchmarkFixtures.bicycle(0);
+    }
+
+    @Benchmark
+    public PremiumResponse fleet() {
+        return insuranceService.calculatePremium(fleet);
+    }
+
+    @Benchmark
+    public PremiumResponse.ObjectPremium threeRiskBicycle() {
+        return insuranceService.calculateObjectPremium(threeRiskBicycle);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.bicycleinsurance.benchmark;
+
+import com.example.bicycleinsurance.config.ScriptEngineProperties.CompilationMode;
+import com.example.bicycleinsurance.config.ScriptEngineProperties.InstanceMode;
+import com.example.bicycleinsurance.service.GroovyScriptEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First execution of a script on a fresh engine (compilation included) against an execution on a
+ * warm engine, both measured as single shots.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(1)
+public class ScriptCompilationBenchmark {
+
+    @Param({"DYNAMIC", "STATIC"})
+    private CompilationMode compilationMode;
+
+    private GroovyScriptEngine coldEngine;
+    private GroovyScriptEngine warmEngine;
+    private Map<String, Object> variables;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        variables = BenchmarkFixtures.damageVariables();
+        warmEngine = BenchmarkFixtures.engine(compilationMode, InstanceMode.PER_CALL);
+        warmEngine.executeScript("premiums/DAMAGE", variables);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        coldEngine = BenchmarkFixtures.engine(compilationMode, InstanceMode.PER_CALL);
+    }
+
+    @Benchmark
+    public Object coldCompileAndExecute() {
+        return coldEngine.executeScript("premiums/DAMAGE", variables);
+    }
+
+    @Benchmark
+    public Object warmExecute() {
+        return warmEngine.executeScript("premiums/DAMAGE", variables);
+    }
+}
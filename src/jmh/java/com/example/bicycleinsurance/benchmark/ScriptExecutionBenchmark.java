@@ -0,0 +1,67 @@
+package com.example.bicycleinsurance.benchmark;
+
+import com.example.bicycleinsurance.config.ScriptEngineProperties.CompilationMode;
+import com.example.bicycleinsurance.config.ScriptEngineProperties.InstanceMode;
+import com.example.bicycleinsurance.service.GroovyScriptEngine;
+import com.example.bicycleinsurance.service.RiskRating;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm execution of a single risk script, single threaded and contended, and of a whole risk rated
+ * through two scripts versus the fused rating unit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScriptExecutionBenchmark {
+
+    @Param({"DYNAMIC", "STATIC"})
+    private CompilationMode compilationMode;
+
+    @Param({"PER_CALL", "POOLED"})
+    private InstanceMode instanceMode;
+
+    private GroovyScriptEngine engine;
+    private Map<String, Object> variables;
+
+    @Setup
+    public void setUp() {
+        engine = BenchmarkFixtures.engine(compilationMode, instanceMode);
+        variables = BenchmarkFixtures.damageVariables();
+        engine.executeScript("premiums/DAMAGE", variables);
+        engine.executeScript("sumInsured/DAMAGE", variables);
+        engine.executeRating("DAMAGE", variables);
+    }
+
+    @Benchmark
+    public Object singleRisk() {
+        return engine.executeScript("premiums/DAMAGE", variables);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object singleRiskContended() {
+        return engine.executeScript("premiums/DAMAGE", variables);
+    }
+
+    @Benchmark
+    public RiskRating splitRisk() {
+        Map<String, Object> riskVariables = new HashMap<>(variables);
+        BigDecimal riskSumInsured = new BigDecimal(engine.executeScript("sumInsured/DAMAGE", riskVariables).toString());
+        riskVariables.put("riskSumInsured", riskSumInsured);
+        return new RiskRating(riskSumInsured, new BigDecimal(engine.executeScript("premiums/DAMAGE", riskVariables).toString()));
+    }
+
+    @Benchmark
+    public RiskRating fusedRisk() {
+        return engine.executeRating("DAMAGE", new HashMap<>(variables));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.bicycleinsurance.benchmark;
+
+import com.example.bicycleinsurance.groovy.BaseScript;
+import com.example.bicycleinsurance.tariff.MappedTariff;
+import com.example.bicycleinsurance.tariff.TariffCsv;
+import com.example.bicycleinsurance.tariff.TariffFile;
+import com.example.bicycleinsurance.tariff.TariffRegistry;
+import com.example.bicycleinsurance.tariff.TariffTables;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factor lookups and interpolation of BaseScript, without any script around them, on the bundled tariff
+ * held on the heap and compiled to a memory-mapped tariff file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TariffLookupBenchmark {
+
+    private final BaseScript baseScript = new BaseScript();
+    private final BigDecimal sumInsured = new BigDecimal("2500.0");
+
+    @Param({"HEAP", "MAPPED"})
+    private String storage;
+
+    private Path tariffFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        TariffCsv csv = TariffCsv.fromClasspath(TariffRegistry.BUNDLED_LOCATION);
+        TariffTables tables = csv.toTables();
+        if (storage.equals("MAPPED")) {
+            tariffFile = Files.createTempFile("tariff", ".bin");
+            TariffFile.write(tables, csv.checksum(), tariffFile);
+            TariffRegistry.use(MappedTariff.open(tariffFile));
+        } else {
+            TariffRegistry.use(tables);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        TariffRegistry.use(null);
+        if (tariffFile != null) {
+            Files.deleteIfExists(tariffFile);
+        }
+    }
+
+    @Benchmark
+    public Object ageFactorMakeAndModel() {
+        return baseScript.calculateAgeFactor("Pearl", "Gravel SL EVO", 4);
+    }
+
+    @Benchmark
+    public Object ageFactorGlobalFallback() {
+        return baseScript.calculateAgeFactor("Giant", "Defy Advanced", 4);
+    }
+
+    @Benchmark
+    public Object sumInsuredFactor() {
+        return baseScript.calculateSumInsuredFactor(sumInsured);
+    }
+
+    @Benchmark
+    public Object riskCountFactor() {
+        return baseScript.calculateRiskCountFactor(3);
+    }
+
+    @Benchmark
+    public Object riskBasePremium() {
+        return baseScript.riskBasePremium("THIRD_PARTY_DAMAGE");
+    }
+}
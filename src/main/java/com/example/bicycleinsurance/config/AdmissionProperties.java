@@ -0,0 +1,48 @@
+package com.example.bicycleinsurance.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Admission control of premium calculation requests, bound from the {@code insurance.admission} prefix.
+ * A request weighs the number of risks it rates, the sum over its bicycles of their risks.
+ */
+@Data
+@ConfigurationProperties(prefix = "insurance.admission")
+public class AdmissionProperties {
+
+    /**
+     * Whether calculation requests are admitted against the weight limit. Without it every request is
+     * rated at once.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Total weight of the requests rated at the same time. A request heavier than this counts as this
+     * weight, so it is rated alone instead of never.
+     */
+    private int maxConcurrentWeight = 3_000;
+
+    /**
+     * Number of requests waiting for admission. Requests beyond that are rejected with 429.
+     */
+    private int maxQueuedRequests = 50;
+
+    /**
+     * Time a request waits for admission before it is rejected with 503.
+     */
+    private Duration queueTimeout = Duration.ofMillis(500);
+
+    /**
+     * Weight a calculation stream is admitted for at a time. A stream holds at most this weight while it rates,
+     * however many records it has.
+     */
+    private int streamChunkWeight = 100;
+
+    /**
+     * Value of the Retry-After header of rejected requests.
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
@@ -0,0 +1,45 @@
+package com.example.bicycleinsurance.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of asynchronous portfolio rating jobs, bound from the {@code insurance.jobs} prefix.
+ */
+@Data
+@ConfigurationProperties(prefix = "insurance.jobs")
+public class PortfolioJobProperties {
+
+    /**
+     * Number of jobs rated at the same time, each on its own worker thread. Keeps bulk rating from
+     * taking more than this many cores away from interactive requests.
+     */
+    private int maxConcurrentJobs = 2;
+
+    /**
+     * Number of submitted jobs waiting for a worker. Submissions beyond that are rejected.
+     */
+    private int maxQueuedJobs = 8;
+
+    /**
+     * Largest portfolio accepted in one job.
+     */
+    private int maxBicyclesPerJob = 1_000_000;
+
+    /**
+     * Largest page of results returned at once.
+     */
+    private int maxPageSize = 1_000;
+
+    /**
+     * Time a finished job and its results are kept after it ended.
+     */
+    private Duration retention = Duration.ofHours(1);
+
+    /**
+     * Whether completed jobs are re-rated whenever a changed tariff is installed.
+     */
+    private boolean reRateOnTariffChange = false;
+}
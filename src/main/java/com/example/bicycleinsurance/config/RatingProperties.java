@@ -0,0 +1,97 @@
+package com.example.bicycleinsurance.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the premium rating pipeline, bound from the {@code insurance.rating} prefix.
+ */
+@Data
+@ConfigurationProperties(prefix = "insurance.rating")
+public class RatingProperties {
+
+    private Parallel parallel = new Parallel();
+
+    private Cache cache = new Cache();
+
+    private Trace trace = new Trace();
+
+    /**
+     * Arithmetic of factor interpolation and premium sums. FIXED_POINT gives the same results as BIG_DECIMAL
+     * and falls back to it whenever a value does not fit into a scaled long.
+     */
+    private Arithmetic arithmetic = Arithmetic.BIG_DECIMAL;
+
+    /**
+     * Whether requests are rated per risk type, running each script once over all bicycles with that risk instead
+     * of once per bicycle. Not used together with the rating cache, which is looked up per risk.
+     */
+    private boolean batch = false;
+
+    /**
+     * Whether identical calculate requests arriving while one of them is being rated wait for its result instead
+     * of being rated again. Results are shared only between requests in flight at the same time, never kept.
+     */
+    private boolean coalesce = false;
+
+    public enum Arithmetic {
+        BIG_DECIMAL,
+        FIXED_POINT
+    }
+
+    @Data
+    public static class Parallel {
+
+        /**
+         * Whether large requests are rated on the parallel rating pool.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Requests with fewer bicycles are rated on the calling thread.
+         */
+        private int threshold = 200;
+
+        /**
+         * Number of bicycles rated by one task.
+         */
+        private int chunkSize = 100;
+
+        /**
+         * Number of worker threads of the rating pool, shared by all requests.
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    @Data
+    public static class Cache {
+
+        /**
+         * Whether per-risk results are cached by their rating inputs. Only valid as long as the
+         * rating scripts depend on nothing but make, model, age, sum insured, risk type and risk count.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of cached per-risk results.
+         */
+        private long maximumSize = 100_000;
+
+        /**
+         * Time after which a cached result is evicted.
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Trace {
+
+        /**
+         * Fraction of calculate requests, between 0 and 1, rated with explanations that are logged instead of
+         * returned. Traced requests bypass the rating cache and batch rating.
+         */
+        private double sampleRate = 0;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.bicycleinsurance.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of the Groovy rating script engine, bound from the {@code insurance.scripts} prefix.
+ */
+@Data
+@ConfigurationProperties(prefix = "insurance.scripts")
+public class ScriptEngineProperties {
+
+    /**
+     * How rating scripts are compiled.
+     */
+    private CompilationMode compilationMode = CompilationMode.DYNAMIC;
+
+    /**
+     * Whether script instances are created per execution or taken from a pool.
+     */
+    private InstanceMode instanceMode = InstanceMode.PER_CALL;
+
+    /**
+     * Number of idle instances kept per script in {@link InstanceMode#POOLED} mode.
+     */
+    private int poolSize = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * Whether the sumInsured and premiums scripts of a risk are compiled into one rating unit and
+     * executed together, returning both values as BigDecimal.
+     */
+    private boolean fusedRating = false;
+
+    /**
+     * Whether bundled scripts are loaded from the classes compiled at build time instead of being compiled
+     * from source on first use. Scripts whose source no longer matches the build are still compiled.
+     */
+    private boolean precompiled = true;
+
+    /**
+     * Warm-up of the rating path at startup, before the application reports ready.
+     */
+    private Warmup warmup = new Warmup();
+
+    /**
+     * Time budgets of script executions.
+     */
+    private Budget budget = new Budget();
+
+    /**
+     * Optional directory with scripts in the classpath layout (e.g. premiums/THEFT.groovy). Scripts found
+     * there take precedence over the bundled ones and are reloaded when the directory changes.
+     */
+    private Path externalDir;
+
+    /**
+     * Quiet period after the last file change before the script set is recompiled.
+     */
+    private Duration reloadDelay = Duration.ofMillis(500);
+
+    @Data
+    public static class Warmup {
+
+        /**
+         * Whether every risk type is rated with synthetic bicycles at startup.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of synthetic ratings per risk type; well above the C2 compile thresholds of the JVM.
+         */
+        private int iterations = 20_000;
+
+        /**
+         * Upper bound for the whole warm-up, after which startup continues regardless.
+         */
+        private Duration timeout = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Budget {
+
+        /**
+         * Longest a single script execution may run, or unlimited if not set.
+         */
+        private Duration scriptTimeout;
+
+        /**
+         * Longest the scripts of one calculation request may run in total, or unlimited if not set.
+         */
+        private Duration requestTimeout;
+
+        /**
+         * How often running scripts are checked against their budget, which bounds how late a runaway
+         * script is stopped.
+         */
+        private Duration checkInterval = Duration.ofMillis(10);
+    }
+
+    public enum CompilationMode {
+        /**
+         * Regular Groovy with dynamic dispatch through the meta-object protocol.
+         */
+        DYNAMIC,
+        /**
+         * Scripts are type checked and statically compiled against the typed variables of BaseScript.
+         */
+        STATIC
+    }
+
+    public enum InstanceMode {
+        /**
+         * A new script instance and a copied binding for every execution.
+         */
+        PER_CALL,
+        /**
+         * Script instances and their bindings are reused from a bounded, thread-safe pool.
+         */
+        POOLED
+    }
+}
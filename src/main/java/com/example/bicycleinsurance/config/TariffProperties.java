@@ -0,0 +1,38 @@
+package com.example.bicycleinsurance.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Settings of the tariff tables, bound from the {@code insurance.tariff} prefix.
+ */
+@Data
+@ConfigurationProperties(prefix = "insurance.tariff")
+public class TariffProperties {
+
+    /**
+     * Directory with the tariff CSV files. The files bundled with the application are used when not set.
+     */
+    private Path csvDir;
+
+    /**
+     * Compiled binary tariff, rebuilt from the CSV files at startup whenever they changed and then memory-mapped.
+     */
+    private Path binaryFile = Path.of(System.getProperty("java.io.tmpdir"), "bicycle-insurance", "tariff.bin");
+
+    /**
+     * Directory of effective-dated tariff versions: one subdirectory per version, named by the date it takes
+     * effect (yyyy-MM-dd), with the tariff CSV files and optionally a {@code scripts} directory overriding rating
+     * scripts. When set, requests are rated with the version in effect on their rating date; otherwise every
+     * request uses the deployed tariff and scripts.
+     */
+    private Path versionsDir;
+
+    /**
+     * Maximum number of tariff versions kept loaded together with their compiled scripts. The least recently
+     * used version is released first.
+     */
+    private int maxLoadedVersions = 4;
+}
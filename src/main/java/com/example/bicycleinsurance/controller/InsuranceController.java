@@ -4,41 +4,86 @@ import com.example.bicycleinsurance.dto.BicycleDto;
 import com.example.bicycleinsurance.dto.PremiumRequest;
 import com.example.bicycleinsurance.dto.PremiumResponse;
 import com.example.bicycleinsurance.service.InsuranceService;
+import com.example.bicycleinsurance.service.RequestAdmission;
+import com.example.bicycleinsurance.service.StreamingRatingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1")
 @RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class InsuranceController {
 
     private final InsuranceService insuranceService;
+    private final StreamingRatingService streamingRatingService;
+    private final RequestAdmission requestAdmission;
 
     @Operation(summary = "Calculate premiums for bicycle insurance policies",
-            description = "Given a list of bicycles, calculates the total premium associated with each bicycle.")
+            description = "Given a list of bicycles, calculates the total premium associated with each bicycle. "
+                    + "Bicycles are rated as of the optional rating date, with the tariff version in effect on it. "
+                    + "With explain set, every risk lists the tariff rows and factors its premium was calculated from. "
+                    + "Responds with JSON unless CBOR or Smile is requested in the Accept header.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully calculated premiums and risks",
-                    content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = PremiumResponse.class))),
+                    content = {
+                            @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = PremiumResponse.class)),
+                            @Content(mediaType = "application/cbor",
+                                    schema = @Schema(implementation = PremiumResponse.class)),
+                            @Content(mediaType = "application/x-jackson-smile",
+                                    schema = @Schema(implementation = PremiumResponse.class))
+                    }),
             @ApiResponse(responseCode = "400", description = "Invalid input provided",
                     content = @Content),
+            @ApiResponse(responseCode = "429", description = "Too many requests waiting for admission, retry after the "
+                    + "Retry-After header", content = @Content),
             @ApiResponse(responseCode = "500", description = "Server error occurred",
-                    content = @Content)
+                    content = @Content),
+            @ApiResponse(responseCode = "503", description = "Request not admitted in time, retry after the "
+                    + "Retry-After header", content = @Content)
     })
     @PostMapping("/calculate")
     @ResponseStatus(HttpStatus.OK)
     public PremiumResponse calculatePremium(
             @RequestBody @Valid PremiumRequest request) {
         List<BicycleDto> bicycles = request.getBicycles();
-        return insuranceService.calculatePremium(bicycles);
+        try (RequestAdmission.Permit permit = requestAdmission.admit(bicycles)) {
+            return request.isExplain()
+                    ? insuranceService.explainPremium(bicycles, request.getRatingDate())
+                    : insuranceService.calculatePremium(bicycles, request.getRatingDate());
+        }
+    }
+
+    @Operation(summary = "Calculate premiums for a stream of bicycles",
+            description = "Reads newline-delimited bicycle records and writes one newline-delimited premium breakdown "
+                    + "per bicycle as soon as it is calculated. Processing stops with a single error line "
+                    + "(code and message) at the first record that cannot be parsed, validated or rated.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream of premium breakdowns",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = PremiumResponse.ObjectPremium.class)))
+    })
+    @PostMapping(value = "/calculate/stream",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void calculatePremiumStream(InputStream requestBody, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        streamingRatingService.calculatePremiums(requestBody, response.getOutputStream());
     }
 }
@@ -0,0 +1,131 @@
+package com.example.bicycleinsurance.controller;
+
+import com.example.bicycleinsurance.dto.PortfolioJobChangePage;
+import com.example.bicycleinsurance.dto.PortfolioJobPage;
+import com.example.bicycleinsurance.dto.PortfolioJobStatus;
+import com.example.bicycleinsurance.dto.PremiumRequest;
+import com.example.bicycleinsurance.service.PortfolioJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+@RestController
+@RequestMapping("/api/v1/jobs")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class PortfolioJobController {
+
+    private final PortfolioJobService portfolioJobService;
+
+    @Operation(summary = "Submit a portfolio for asynchronous rating",
+            description = "Queues the bicycles as a rating job and returns its id immediately. Poll the job for "
+                    + "progress and page through its results while it runs.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job accepted",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PortfolioJobStatus.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input provided",
+                    content = @Content),
+            @ApiResponse(responseCode = "429", description = "All job workers are busy and the queue is full",
+                    content = @Content)
+    })
+    @PostMapping
+    public ResponseEntity<PortfolioJobStatus> submit(@RequestBody @Valid PremiumRequest request) {
+        PortfolioJobStatus status = portfolioJobService.submit(request.getBicycles());
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(status.getId()).toUri())
+                .body(status);
+    }
+
+    @Operation(summary = "Get the state and progress of a portfolio job")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Job status",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PortfolioJobStatus.class))),
+            @ApiResponse(responseCode = "404", description = "Unknown or expired job",
+                    content = @Content)
+    })
+    @GetMapping("/{id}")
+    public PortfolioJobStatus getStatus(@PathVariable String id) {
+        return portfolioJobService.getStatus(id);
+    }
+
+    @Operation(summary = "Page through the results of a portfolio job",
+            description = "Results are in portfolio order and available as soon as they are rated.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of results",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PortfolioJobPage.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid page or size",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Unknown or expired job",
+                    content = @Content)
+    })
+    @GetMapping("/{id}/results")
+    public PortfolioJobPage getResults(@PathVariable String id,
+                                       @RequestParam(defaultValue = "0") int page,
+                                       @RequestParam(defaultValue = "100") int size) {
+        return portfolioJobService.getResults(id, page, size);
+    }
+
+    @Operation(summary = "Re-rate a completed portfolio job",
+            description = "Rates the bicycles again whose rating depends on a tariff row or script that changed "
+                    + "since they were rated, against the tariff and scripts installed now. The other bicycles keep "
+                    + "their results. Progress and the new total premium are reported in the reRating of the job.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Re-rating accepted",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PortfolioJobStatus.class))),
+            @ApiResponse(responseCode = "400", description = "Job not completed or already being re-rated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Unknown or expired job",
+                    content = @Content),
+            @ApiResponse(responseCode = "429", description = "All job workers are busy and the queue is full",
+                    content = @Content)
+    })
+    @PostMapping("/{id}/rerate")
+    public ResponseEntity<PortfolioJobStatus> reRate(@PathVariable String id) {
+        return ResponseEntity.accepted().body(portfolioJobService.reRate(id));
+    }
+
+    @Operation(summary = "Page through the results changed by the last re-rating of a portfolio job",
+            description = "Each change holds the previous and the current result of the bicycle.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of changes",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PortfolioJobChangePage.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid page or size",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Unknown or expired job",
+                    content = @Content)
+    })
+    @GetMapping("/{id}/changes")
+    public PortfolioJobChangePage getChanges(@PathVariable String id,
+                                             @RequestParam(defaultValue = "0") int page,
+                                             @RequestParam(defaultValue = "100") int size) {
+        return portfolioJobService.getChanges(id, page, size);
+    }
+
+    @Operation(summary = "Cancel a portfolio job",
+            description = "A queued job never starts, a running job stops before its next bicycle. Results rated "
+                    + "so far remain available.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Job status after cancellation",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PortfolioJobStatus.class))),
+            @ApiResponse(responseCode = "404", description = "Unknown or expired job",
+                    content = @Content)
+    })
+    @DeleteMapping("/{id}")
+    public PortfolioJobStatus cancel(@PathVariable String id) {
+        return portfolioJobService.cancel(id);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.bicycleinsurance.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A bicycle of a portfolio job whose result changed when it was rated again after a tariff or script change.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioJobChange {
+    private int index;
+    private PortfolioJobResult previous;
+    private PortfolioJobResult current;
+}
@@ -0,0 +1,23 @@
+package com.example.bicycleinsurance.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioJobChangePage {
+    private String jobId;
+    private int page;
+    private int size;
+    /**
+     * Number of changes found by the last completed re-rating, in portfolio order.
+     */
+    private int available;
+    private List<PortfolioJobChange> changes;
+}
@@ -0,0 +1,24 @@
+package com.example.bicycleinsurance.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioJobPage {
+    private String jobId;
+    private PortfolioJobStatus.State state;
+    private int page;
+    private int size;
+    /**
+     * Number of results available so far; results are in portfolio order and grow while the job runs.
+     */
+    private int available;
+    private List<PortfolioJobResult> results;
+}
@@ -0,0 +1,20 @@
+package com.example.bicycleinsurance.dto;
+
+import com.example.bicycleinsurance.exception.GlobalExceptionHandler.ErrorResponse;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one bicycle of a portfolio job: either its premium breakdown or the reason it could not be rated.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioJobResult {
+    private int index;
+    private PremiumResponse.ObjectPremium object;
+    private ErrorResponse error;
+}
@@ -0,0 +1,45 @@
+package com.example.bicycleinsurance.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioJobStatus {
+    private String id;
+    private State state;
+    private int total;
+    private int processed;
+    private int failed;
+    /**
+     * Total premium of the successfully rated bicycles, set once the job completed.
+     */
+    private BigDecimal premium;
+    private String error;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    /**
+     * Last re-rating of the job, or null if it was never re-rated.
+     */
+    private PortfolioReRating reRating;
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED;
+
+        public boolean isFinished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+}
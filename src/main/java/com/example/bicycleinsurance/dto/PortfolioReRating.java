@@ -0,0 +1,38 @@
+package com.example.bicycleinsurance.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * State of the last re-rating of a completed portfolio job.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioReRating {
+    private PortfolioJobStatus.State state;
+    /**
+     * Distinct tariff lookups and scripts the portfolio depends on, all of which were checked.
+     */
+    private int dependencies;
+    private int changedDependencies;
+    /**
+     * Bicycles rated again because they depend on a changed tariff row or script.
+     */
+    private int reRated;
+    /**
+     * Bicycles whose result differs after rating them again.
+     */
+    private int changed;
+    private BigDecimal previousPremium;
+    private BigDecimal premium;
+    private String error;
+    private Instant startedAt;
+    private Instant finishedAt;
+}
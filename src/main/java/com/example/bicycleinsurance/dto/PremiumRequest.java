@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Data
@@ -16,4 +17,14 @@ public class PremiumRequest {
     @NotEmpty(message = "Bicycles list cannot be empty")
     @Valid
     private List<BicycleDto> bicycles;
+
+    /**
+     * Whether each risk of the response explains the tariff rows and factors its premium was calculated from.
+     */
+    private boolean explain;
+
+    /**
+     * Date the bicycles are rated as of, with the tariff version in effect on it. Today if not set.
+     */
+    private LocalDate ratingDate;
 }
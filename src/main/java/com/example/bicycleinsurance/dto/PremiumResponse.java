@@ -1,6 +1,7 @@
 package com.example.bicycleinsurance.dto;
 
 import com.example.bicycleinsurance.model.CoverageType;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.*;
 import java.math.BigDecimal;
 import java.util.List;
@@ -9,6 +10,7 @@ import java.util.List;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonSerialize(using = PremiumResponseSerializer.class)
 public class PremiumResponse {
 
     private List<ObjectPremium> objects;
@@ -18,6 +20,7 @@ public class PremiumResponse {
     @Builder
     @NoArgsConstructor
     @AllArgsConstructor
+    @JsonSerialize(using = PremiumResponseSerializer.ObjectPremiumSerializer.class)
     public static class ObjectPremium {
         private CoverageType coverageType;
         private BigDecimal sumInsured;
@@ -0,0 +1,149 @@
+package com.example.bicycleinsurance.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Writes a premium response field by field to the generator of the negotiated format, producing the same fields
+ * as the bean serializer without resolving a property writer per value. Field names are encoded once.
+ */
+public class PremiumResponseSerializer extends StdSerializer<PremiumResponse> {
+
+    private static final SerializableString OBJECTS = new SerializedString("objects");
+    private static final SerializableString PREMIUM = new SerializedString("premium");
+    private static final SerializableString COVERAGE_TYPE = new SerializedString("coverageType");
+    private static final SerializableString SUM_INSURED = new SerializedString("sumInsured");
+    private static final SerializableString RISKS = new SerializedString("risks");
+    private static final SerializableString ATTRIBUTES = new SerializedString("attributes");
+    private static final SerializableString RISK_TYPE = new SerializedString("riskType");
+    private static final SerializableString MAKE = new SerializedString("make");
+    private static final SerializableString MODEL = new SerializedString("model");
+    private static final SerializableString MANUFACTURE_YEAR = new SerializedString("manufacture_YEAR");
+    private static final SerializableString EXPLANATION = new SerializedString("explanation");
+
+    public PremiumResponseSerializer() {
+        super(PremiumResponse.class);
+    }
+
+    @Override
+    public void serialize(PremiumResponse response, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(response);
+        generator.writeFieldName(OBJECTS);
+        List<PremiumResponse.ObjectPremium> objects = response.getObjects();
+        if (objects == null) {
+            generator.writeNull();
+        } else {
+            generator.writeStartArray(objects, objects.size());
+            for (PremiumResponse.ObjectPremium objectPremium : objects) {
+                writeObjectPremium(objectPremium, generator, provider);
+            }
+            generator.writeEndArray();
+        }
+        generator.writeFieldName(PREMIUM);
+        writeNumber(response.getPremium(), generator);
+        generator.writeEndObject();
+    }
+
+    static void writeObjectPremium(PremiumResponse.ObjectPremium objectPremium, JsonGenerator generator,
+                                   SerializerProvider provider) throws IOException {
+        if (objectPremium == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartObject(objectPremium);
+        generator.writeFieldName(COVERAGE_TYPE);
+        writeString(objectPremium.getCoverageType() != null ? objectPremium.getCoverageType().name() : null, generator);
+        generator.writeFieldName(SUM_INSURED);
+        writeNumber(objectPremium.getSumInsured(), generator);
+        generator.writeFieldName(PREMIUM);
+        writeNumber(objectPremium.getPremium(), generator);
+        generator.writeFieldName(RISKS);
+        List<RiskResponse> risks = objectPremium.getRisks();
+        if (risks == null) {
+            generator.writeNull();
+        } else {
+            generator.writeStartArray(risks, risks.size());
+            for (RiskResponse risk : risks) {
+                writeRisk(risk, generator, provider);
+            }
+            generator.writeEndArray();
+        }
+        generator.writeFieldName(ATTRIBUTES);
+        writeAttributes(objectPremium.getAttributes(), generator);
+        generator.writeEndObject();
+    }
+
+    private static void writeRisk(RiskResponse risk, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (risk == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartObject(risk);
+        generator.writeFieldName(RISK_TYPE);
+        writeString(risk.getRiskType(), generator);
+        generator.writeFieldName(SUM_INSURED);
+        writeNumber(risk.getSumInsured(), generator);
+        generator.writeFieldName(PREMIUM);
+        writeNumber(risk.getPremium(), generator);
+        // Explanations are rare and left to the bean serializer
+        if (risk.getExplanation() != null) {
+            generator.writeFieldName(EXPLANATION);
+            provider.defaultSerializeValue(risk.getExplanation(), generator);
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeAttributes(PremiumResponse.Attributes attributes, JsonGenerator generator) throws IOException {
+        if (attributes == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartObject(attributes);
+        generator.writeFieldName(MAKE);
+        writeString(attributes.getMAKE(), generator);
+        generator.writeFieldName(MODEL);
+        writeString(attributes.getMODEL(), generator);
+        generator.writeFieldName(MANUFACTURE_YEAR);
+        writeString(attributes.getMANUFACTURE_YEAR(), generator);
+        generator.writeEndObject();
+    }
+
+    private static void writeString(String value, JsonGenerator generator) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(value);
+        }
+    }
+
+    private static void writeNumber(BigDecimal value, JsonGenerator generator) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+
+    /**
+     * The same fields for a single breakdown, as written by the streaming endpoint and portfolio job results.
+     */
+    public static class ObjectPremiumSerializer extends StdSerializer<PremiumResponse.ObjectPremium> {
+
+        public ObjectPremiumSerializer() {
+            super(PremiumResponse.ObjectPremium.class);
+        }
+
+        @Override
+        public void serialize(PremiumResponse.ObjectPremium objectPremium, JsonGenerator generator,
+                              SerializerProvider provider) throws IOException {
+            writeObjectPremium(objectPremium, generator, provider);
+        }
+    }
+}
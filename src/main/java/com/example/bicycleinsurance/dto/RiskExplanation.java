@@ -0,0 +1,60 @@
+package com.example.bicycleinsurance.dto;
+
+import com.example.bicycleinsurance.tariff.TariffLookup;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * How the premium of a risk was calculated: the scripts that ran and every tariff lookup they made, in order.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RiskExplanation {
+    /**
+     * Version of the rating scripts, increased on every script reload.
+     */
+    private long scriptVersion;
+    /**
+     * Date the effective-dated tariff version rated with took effect; absent for the deployed tariff.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private LocalDate tariffVersion;
+    private List<String> scripts;
+    private List<Step> steps;
+
+    /**
+     * One tariff lookup with its inputs, the matched row and the value taken from it.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Step {
+        private TariffLookup.Table table;
+        private String riskType;
+        private String make;
+        private String model;
+        /**
+         * Sum insured, risk count or age looked up.
+         */
+        private BigDecimal value;
+        private BigDecimal valueFrom;
+        private BigDecimal valueTo;
+        private BigDecimal factorMin;
+        private BigDecimal factorMax;
+        /**
+         * Base premium or interpolated factor; absent if the tariff has no matching row.
+         */
+        private BigDecimal result;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.bicycleinsurance.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,4 +16,9 @@ public class RiskResponse {
     private String riskType;
     private BigDecimal sumInsured;
     private BigDecimal premium;
+    /**
+     * Only set if the request asked for an explanation.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private RiskExplanation explanation;
 }
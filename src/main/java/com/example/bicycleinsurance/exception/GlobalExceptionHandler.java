@@ -1,9 +1,15 @@
 package com.example.bicycleinsurance.exception;
 
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Comparator;
+
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
@@ -19,12 +25,52 @@ public class GlobalExceptionHandler {
         return new ErrorResponse("SCRIPT_EXECUTION_ERROR", ex.getMessage());
     }
 
+    @ExceptionHandler(ScriptTimeoutException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleScriptTimeoutException(ScriptTimeoutException ex) {
+        return new ErrorResponse("SCRIPT_TIMEOUT", ex.getMessage());
+    }
+
+    /**
+     * Bean validation of a request body; the violation of the first field in path order is reported, so the message
+     * does not depend on the order in which the validator visited the constraints.
+     */
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
+        String message = ex.getFieldErrors().stream()
+                .min(Comparator.comparing(FieldError::getField))
+                .map(FieldError::getDefaultMessage)
+                .orElse(ex.getMessage());
+        return new ErrorResponse("VALIDATION_ERROR", message);
+    }
+
     @ExceptionHandler(ConstraintViolationException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleConstraintViolationException(ConstraintViolationException ex) {
         return new ErrorResponse("CONSTRAINT_VIOLATION", ex.getMessage());
     }
 
+    @ExceptionHandler(JobNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ErrorResponse handleJobNotFoundException(JobNotFoundException ex) {
+        return new ErrorResponse("JOB_NOT_FOUND", ex.getMessage());
+    }
+
+    @ExceptionHandler(JobCapacityExceededException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public ErrorResponse handleJobCapacityExceededException(JobCapacityExceededException ex) {
+        return new ErrorResponse("JOB_CAPACITY_EXCEEDED", ex.getMessage());
+    }
+
+    @ExceptionHandler(RequestRejectedException.class)
+    public ResponseEntity<ErrorResponse> handleRequestRejectedException(RequestRejectedException ex) {
+        boolean queueFull = ex.getReason() == RequestRejectedException.Reason.QUEUE_FULL;
+        return ResponseEntity.status(queueFull ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(new ErrorResponse(queueFull ? "TOO_MANY_REQUESTS" : "SERVICE_OVERLOADED", ex.getMessage()));
+    }
+
     public record ErrorResponse(String code, String message) {
     }
 }
@@ -0,0 +1,7 @@
+package com.example.bicycleinsurance.exception;
+
+public class JobCapacityExceededException extends RuntimeException {
+    public JobCapacityExceededException(String message) {
+        super(message);
+    }
+}
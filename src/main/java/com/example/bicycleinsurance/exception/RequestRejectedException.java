@@ -0,0 +1,32 @@
+package com.example.bicycleinsurance.exception;
+
+import java.time.Duration;
+
+/**
+ * A calculation request shed by admission control, either because the wait queue was full or because it
+ * waited for admission longer than allowed.
+ */
+public class RequestRejectedException extends RuntimeException {
+
+    public enum Reason {
+        QUEUE_FULL,
+        QUEUE_TIMEOUT
+    }
+
+    private final Reason reason;
+    private final Duration retryAfter;
+
+    public RequestRejectedException(Reason reason, Duration retryAfter, String message) {
+        super(message);
+        this.reason = reason;
+        this.retryAfter = retryAfter;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.bicycleinsurance.exception;
+
+/**
+ * A rating script stopped because it exceeded the time budget of the script or of the request it rates.
+ */
+public class ScriptTimeoutException extends ScriptExecutionException {
+    public ScriptTimeoutException(String message) {
+        super(message);
+    }
+}
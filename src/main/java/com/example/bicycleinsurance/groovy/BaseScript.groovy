@@ -1,127 +1,181 @@
 package com.example.bicycleinsurance.groovy
 
-class BaseScript extends Script {
+import com.example.bicycleinsurance.model.Bicycle
+import com.example.bicycleinsurance.service.FixedPoint
+import com.example.bicycleinsurance.service.RatingObserver
+import com.example.bicycleinsurance.tariff.FactorBand
+import com.example.bicycleinsurance.tariff.Tariff
+import com.example.bicycleinsurance.tariff.TariffAware
+import com.example.bicycleinsurance.tariff.TariffLookup
+import com.example.bicycleinsurance.tariff.TariffRegistry
+import groovy.transform.CompileStatic
+
+class BaseScript extends Script implements TariffAware {
+
+	/**
+	 * Tariff of the version this instance was compiled for, or null to use the installed one.
+	 */
+	private Tariff tariff
+
+	@Override
+	@CompileStatic
+	void useTariff(Tariff tariff) {
+		this.tariff = tariff
+	}
 
 	@Override
 	Object run() {
 		return null
 	}
 
-	ArrayList<LinkedHashMap<String, Serializable>> getAgeFactorData() {
-		return [
-				['MAKE': 'Canyon', 'MODEL': 'CF 5', 'VALUE_FROM': 0.0G, 'VALUE_TO': 5.0G, 'FACTOR_MIN': 1.5G, 'FACTOR_MAX': 2.0G],
-				['MAKE': 'Canyon', 'MODEL': 'CF 5', 'VALUE_FROM': 6.0G, 'VALUE_TO': 10.0G, 'FACTOR_MIN': 1.2G, 'FACTOR_MAX': 1.4G],
-				['MAKE': 'Canyon', 'MODEL': 'CF 5', 'VALUE_FROM': 11.0G, 'VALUE_TO': 15.0G, 'FACTOR_MIN': 0.9G, 'FACTOR_MAX': 1.1G],
-				['MAKE': 'Whyte', 'MODEL': 'T-160 RS', 'VALUE_FROM': 0.0G, 'VALUE_TO': 4.0G, 'FACTOR_MIN': 1.6G, 'FACTOR_MAX': 2.05G],
-				['MAKE': 'Whyte', 'MODEL': 'T-160 RS', 'VALUE_FROM': 5.0G, 'VALUE_TO': 10.0G, 'FACTOR_MIN': 1.2G, 'FACTOR_MAX': 1.5G],
-				['MAKE': 'Whyte', 'MODEL': 'T-160 RS', 'VALUE_FROM': 11.0G, 'VALUE_TO': 15.0G, 'FACTOR_MIN': 0.9G, 'FACTOR_MAX': 1.1G],
-				['MAKE': 'Pearl', 'MODEL': 'Gravel SL EVO', 'VALUE_FROM': 0.0G, 'VALUE_TO': 2.0G, 'FACTOR_MIN': 2.1G, 'FACTOR_MAX': 2.5G],
-				['MAKE': 'Pearl', 'MODEL': 'Gravel SL EVO', 'VALUE_FROM': 3.0G, 'VALUE_TO': 6.0G, 'FACTOR_MIN': 1.5G, 'FACTOR_MAX': 2.0G],
-				['MAKE': 'Pearl', 'MODEL': 'Gravel SL EVO', 'VALUE_FROM': 7.0G, 'VALUE_TO': 15.0G, 'FACTOR_MIN': 0.9G, 'FACTOR_MAX': 1.4G],
-				['MAKE': 'Whyte', 'VALUE_FROM': 0.0G, 'VALUE_TO': 15.0G, 'FACTOR_MIN': 0.95G, 'FACTOR_MAX': 1.6G],
-				['MAKE': 'Canyon', 'VALUE_FROM': 0.0G, 'VALUE_TO': 15.0G, 'FACTOR_MIN': 0.95G, 'FACTOR_MAX': 1.6G],
-				['MAKE': 'Pearl', 'VALUE_FROM': 0.0G, 'VALUE_TO': 15.0G, 'FACTOR_MIN': 0.99G, 'FACTOR_MAX': 1.8G],
-				['MAKE': 'Krush', 'VALUE_FROM': 0.0G, 'VALUE_TO': 15.0G, 'FACTOR_MIN': 0.93G, 'FACTOR_MAX': 1.75G],
-				['MAKE': 'Megamo', 'VALUE_FROM': 0.0G, 'VALUE_TO': 15.0G, 'FACTOR_MIN': 1.1G, 'FACTOR_MAX': 2.3G],
-				['MAKE': 'Sensa', 'VALUE_FROM': 0.0G, 'VALUE_TO': 15.0G, 'FACTOR_MIN': 0.8G, 'FACTOR_MAX': 2.5G],
-				['VALUE_FROM': 0.0G, 'VALUE_TO': 15.0G, 'FACTOR_MIN': 1.0G, 'FACTOR_MAX': 3.0G]
-		]
-	}
-
-	ArrayList<LinkedHashMap<String, Serializable>> getRiskCountFactorData() {
-		return [
-				['VALUE_FROM': 0.0G, 'VALUE_TO': 1.0G, 'FACTOR_MIN': 1.3G, 'FACTOR_MAX': 1.3G],
-				['VALUE_FROM': 2.0G, 'VALUE_TO': 3.0G, 'FACTOR_MIN': 1.2G, 'FACTOR_MAX': 1.2G],
-				['VALUE_FROM': 4.0G, 'VALUE_TO': 5.0G, 'FACTOR_MIN': 1.1G, 'FACTOR_MAX': 1.1G],
-				['VALUE_FROM': 6.0G, 'VALUE_TO': 10.0G, 'FACTOR_MIN': 1.0G, 'FACTOR_MAX': 1.0G]
-		]
-	}
-
-	ArrayList<LinkedHashMap<String, Serializable>> getSumInsuredFactorData() {
-		return [
-				['VALUE_FROM': 100.0G, 'VALUE_TO': 1000.0G, 'FACTOR_MIN': 0.5G, 'FACTOR_MAX': 1.0G],
-				['VALUE_FROM': 1001.0G, 'VALUE_TO': 3000.0G, 'FACTOR_MIN': 1.0G, 'FACTOR_MAX': 2.0G],
-				['VALUE_FROM': 3001.0G, 'VALUE_TO': 5000.0G, 'FACTOR_MIN': 2.0G, 'FACTOR_MAX': 3.0G]
-		]
-	}
-
-	ArrayList<LinkedHashMap<String, Serializable>> getRiskBasePremiumData() {
-		return [
-				['RISK_TYPE': 'DAMAGE', 'PREMIUM': 10.0G],
-				['RISK_TYPE': 'THIRD_PARTY_DAMAGE', 'PREMIUM': 20.0G],
-				['RISK_TYPE': 'THEFT', 'PREMIUM': 30.0G]
-		]
-	}
-
-	def riskBasePremium(String riskType) {
-		def premiumData = getRiskBasePremiumData().find { it['RISK_TYPE'] == riskType }
-		if (premiumData) {
-			return premiumData['PREMIUM'] as BigDecimal
+	/*
+	 * Typed variable contract. Dynamic scripts still read these values straight from the binding,
+	 * statically compiled scripts resolve them through the getters below.
+	 */
+
+	@CompileStatic
+	Bicycle getBicycle() {
+		return (Bicycle) binding.getVariable('bicycle')
+	}
+
+	@CompileStatic
+	String getRiskType() {
+		return (String) binding.getVariable('riskType')
+	}
+
+	@CompileStatic
+	int getBicycleAge() {
+		return (Integer) binding.getVariable('bicycleAge')
+	}
+
+	@CompileStatic
+	BigDecimal getSumInsured() {
+		return (BigDecimal) binding.getVariable('sumInsured')
+	}
+
+	@CompileStatic
+	String getMake() {
+		return (String) binding.getVariable('make')
+	}
+
+	@CompileStatic
+	String getModel() {
+		return (String) binding.getVariable('model')
+	}
+
+	@CompileStatic
+	int getRiskCount() {
+		return (Integer) binding.getVariable('riskCount')
+	}
+
+	@CompileStatic
+	BigDecimal getRiskSumInsured() {
+		return (BigDecimal) binding.getVariable('riskSumInsured')
+	}
+
+	/*
+	 * Tariff lookups, served by the tariff of the script's version or else the one installed in TariffRegistry,
+	 * and reported together with the factors derived from them to the observer of the rating, if one is bound.
+	 */
+
+	@CompileStatic
+	BigDecimal riskBasePremium(String riskType) {
+		BigDecimal premium = tariff().riskBasePremium(riskType)
+		RatingObserver observer = ratingObserver()
+		if (observer != null) {
+			observer.recordLookup(TariffLookup.riskBasePremium(riskType), premium)
+		}
+		if (premium != null) {
+			return premium
 		} else {
 			throw new IllegalArgumentException("Unsupported risk type: $riskType")
 		}
 	}
 
-	def calculateSumInsuredFactor(BigDecimal sumInsured) {
-		def factorData = getSumInsuredFactorData().find { sumInsured >= it['VALUE_FROM'] && sumInsured <= it['VALUE_TO'] }
-		if (factorData) {
-			def factorMax = factorData['FACTOR_MAX'] as BigDecimal
-			def factorMin = factorData['FACTOR_MIN'] as BigDecimal
-			def valueFrom = factorData['VALUE_FROM'] as BigDecimal
-			def valueTo = factorData['VALUE_TO'] as BigDecimal
-			def factor = factorMax - (factorMax - factorMin) * (valueTo - sumInsured) / (valueTo - valueFrom)
-			return factor
+	@CompileStatic
+	BigDecimal calculateSumInsuredFactor(BigDecimal sumInsured) {
+		FactorBand factorData = tariff().sumInsuredFactor(sumInsured)
+		RatingObserver observer = ratingObserver()
+		TariffLookup lookup = observer != null ? TariffLookup.sumInsuredFactor(sumInsured) : null
+		if (observer != null) {
+			observer.recordLookup(lookup, factorData)
+		}
+		if (factorData != null) {
+			return observedFactor(observer, lookup, interpolate(factorData, sumInsured))
 		} else {
 			throw new IllegalArgumentException("No sum insured factor data found for sum insured: $sumInsured")
 		}
 	}
 
-	def calculateRiskCountFactor(int riskCount) {
-		def factorData = getRiskCountFactorData().find { riskCount >= it['VALUE_FROM'] && riskCount <= it['VALUE_TO'] }
-		if (factorData) {
-			def factorMax = factorData['FACTOR_MAX'] as BigDecimal
-			def factorMin = factorData['FACTOR_MIN'] as BigDecimal
-			def valueFrom = factorData['VALUE_FROM'] as BigDecimal
-			def valueTo = factorData['VALUE_TO'] as BigDecimal
-			def factor = factorMax - (factorMax - factorMin) * (valueTo - riskCount) / (valueTo - valueFrom)
-			return factor
+	@CompileStatic
+	BigDecimal calculateRiskCountFactor(int riskCount) {
+		FactorBand factorData = tariff().riskCountFactor(riskCount)
+		RatingObserver observer = ratingObserver()
+		TariffLookup lookup = observer != null ? TariffLookup.riskCountFactor(riskCount) : null
+		if (observer != null) {
+			observer.recordLookup(lookup, factorData)
+		}
+		if (factorData != null) {
+			return observedFactor(observer, lookup, interpolate(factorData, BigDecimal.valueOf(riskCount)))
 		} else {
 			throw new IllegalArgumentException("No risk count factor data found for risk count: $riskCount")
 		}
 	}
 
-	def calculateAgeFactor(String make, String model, int age) {
-		def factorDataList = getAgeFactorData()
-		def factorData = factorDataList.find {
-			it.containsKey('MAKE') && it.containsKey('MODEL') &&
-					it['MAKE'] == make && it['MODEL'] == model &&
-					age >= it['VALUE_FROM'] && age <= it['VALUE_TO']
+	@CompileStatic
+	BigDecimal calculateAgeFactor(String make, String model, int age) {
+		FactorBand factorData = tariff().ageFactor(make, model, age)
+		RatingObserver observer = ratingObserver()
+		TariffLookup lookup = observer != null ? TariffLookup.ageFactor(make, model, age) : null
+		if (observer != null) {
+			observer.recordLookup(lookup, factorData)
 		}
-
-		if (!factorData) {
-			factorData = factorDataList.find {
-				it.containsKey('MAKE') && !it.containsKey('MODEL') &&
-						it['MAKE'] == make &&
-						age >= it['VALUE_FROM'] && age <= it['VALUE_TO']
-			}
+		if (factorData != null) {
+			return observedFactor(observer, lookup, interpolate(factorData, BigDecimal.valueOf(age)))
+		} else {
+			throw new IllegalArgumentException("No age factor data found for make: $make, model: $model, age: $age")
 		}
+	}
 
-		if (!factorData) {
-			factorData = factorDataList.find {
-				!it.containsKey('MAKE') && !it.containsKey('MODEL') &&
-						age >= it['VALUE_FROM'] && age <= it['VALUE_TO']
-			}
+	@CompileStatic
+	private Tariff tariff() {
+		return tariff != null ? tariff : TariffRegistry.current()
+	}
+
+	/**
+	 * The observer of this rating, if the caller tracks its dependencies or explains it.
+	 */
+	@CompileStatic
+	private RatingObserver ratingObserver() {
+		return binding.hasVariable(RatingObserver.BINDING_VARIABLE)
+				? (RatingObserver) binding.getVariable(RatingObserver.BINDING_VARIABLE)
+				: null
+	}
+
+	@CompileStatic
+	private static BigDecimal observedFactor(RatingObserver observer, TariffLookup lookup, BigDecimal factor) {
+		if (observer != null) {
+			observer.recordFactor(lookup, factor)
 		}
+		return factor
+	}
 
-		if (factorData) {
-			def factorMax = factorData['FACTOR_MAX'] as BigDecimal
-			def factorMin = factorData['FACTOR_MIN'] as BigDecimal
-			def valueFrom = factorData['VALUE_FROM'] as BigDecimal
-			def valueTo = factorData['VALUE_TO'] as BigDecimal
-			def factor = factorMax - (factorMax - factorMin) * (valueTo - age) / (valueTo - valueFrom)
-			return factor
-		} else {
-			throw new IllegalArgumentException("No age factor data found for make: $make, model: $model, age: $age")
+	/**
+	 * Interpolates the factor of a band. In fixed-point rating the same expression is evaluated on scaled longs,
+	 * falling back to BigDecimal for values outside the long range.
+	 */
+	@CompileStatic
+	private BigDecimal interpolate(FactorBand factorData, BigDecimal value) {
+		if (binding.hasVariable(FixedPoint.BINDING_VARIABLE)) {
+			BigDecimal factor = FixedPoint.interpolate(factorData, value)
+			if (factor != null) {
+				return factor
+			}
 		}
+		BigDecimal factorMax = factorData.factorMax()
+		BigDecimal factorMin = factorData.factorMin()
+		BigDecimal valueFrom = factorData.valueFrom()
+		BigDecimal valueTo = factorData.valueTo()
+		return (BigDecimal) (factorMax - (factorMax - factorMin) * (valueTo - value) / (valueTo - valueFrom))
 	}
 }
\ No newline at end of file
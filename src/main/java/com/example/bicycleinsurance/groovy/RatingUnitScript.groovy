@@ -0,0 +1,30 @@
+package com.example.bicycleinsurance.groovy
+
+import com.example.bicycleinsurance.service.RiskRating
+import groovy.transform.CompileStatic
+
+/**
+ * Base class of fused rating units. The engine generates both parts of a unit from the sumInsured and premiums
+ * scripts of a risk, and the body of the unit rates the risk through {@link #fusedRating()}.
+ */
+abstract class RatingUnitScript extends BaseScript {
+
+	/**
+	 * Converts the sum insured result once and hands it to the premium part.
+	 */
+	@CompileStatic
+	RiskRating fusedRating() {
+		BigDecimal riskSumInsured = RiskRating.toBigDecimal(ratingSumInsured())
+		return new RiskRating(riskSumInsured, RiskRating.toBigDecimal(ratingPremium(riskSumInsured)))
+	}
+
+	/**
+	 * Sum insured part, generated from the sumInsured script of the risk.
+	 */
+	abstract def ratingSumInsured()
+
+	/**
+	 * Premium part, generated from the premiums script of the risk.
+	 */
+	abstract def ratingPremium(BigDecimal riskSumInsured)
+}
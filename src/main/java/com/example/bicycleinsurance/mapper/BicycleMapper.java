@@ -1,31 +1,49 @@
 package com.example.bicycleinsurance.mapper;
 
 import com.example.bicycleinsurance.dto.BicycleDto;
+import com.example.bicycleinsurance.exception.CustomValidationException;
 import com.example.bicycleinsurance.model.Bicycle;
 import com.example.bicycleinsurance.model.RiskType;
+import com.example.bicycleinsurance.tariff.TariffRegistry;
 import org.mapstruct.*;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
-@Mapper(componentModel = "spring", imports = {RiskType.class})
+@Mapper(componentModel = "spring", imports = {RiskType.class, TariffRegistry.class}, builder = @Builder(disableBuilder = true))
 public interface BicycleMapper {
 
+    @Mapping(target = "make", expression = "java(TariffRegistry.current().name(dto.getMake()))")
+    @Mapping(target = "model", expression = "java(TariffRegistry.current().name(dto.getModel()))")
     @Mapping(target = "risks", expression = "java(mapRisks(dto.getRisks()))")
     Bicycle toModel(BicycleDto dto);
 
-    @Mapping(target = "risks", expression = "java(mapRiskTypes(model.getRisks()))")
+    @Mapping(target = "risks", expression = "java(mapRiskTypes(model.risks()))")
     BicycleDto toDto(Bicycle model);
 
+    /**
+     * @throws CustomValidationException with the message of {@code @ValidRiskTypes} if the risks are missing or
+     *                                   name an unknown risk type, for callers that skipped bean validation.
+     */
     default List<RiskType> mapRisks(List<String> risks) {
-        return risks.stream()
-                .map(RiskType::valueOf)
-                .collect(Collectors.toList());
+        if (risks == null || risks.isEmpty()) {
+            throw new CustomValidationException("Invalid risk types provided");
+        }
+        RiskType[] riskTypes = new RiskType[risks.size()];
+        for (int i = 0; i < riskTypes.length; i++) {
+            riskTypes[i] = RiskType.byName(risks.get(i));
+            if (riskTypes[i] == null) {
+                throw new CustomValidationException("Invalid risk types provided");
+            }
+        }
+        return Bicycle.risksOf(riskTypes);
     }
 
     default List<String> mapRiskTypes(List<RiskType> riskTypes) {
-        return riskTypes.stream()
-                .map(Enum::name)
-                .collect(Collectors.toList());
+        List<String> names = new ArrayList<>(riskTypes.size());
+        for (RiskType riskType : riskTypes) {
+            names.add(riskType.name());
+        }
+        return names;
     }
 }
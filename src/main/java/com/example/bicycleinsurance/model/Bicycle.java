@@ -1,22 +1,86 @@
 package com.example.bicycleinsurance.model;
 
-import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.util.List;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
+/**
+ * Immutable rating input of one bicycle. The risks keep the order and repetitions of the request, in a list
+ * shared by all bicycles with the same risks; make and model are the tariff's own name instances when the tariff
+ * knows them.
+ *
+ * @param risks Insured risks from {@link #risksOf}, rated and reported in this order.
+ */
 @Builder
-public class Bicycle {
-    private String make;
-    private String model;
-    private Integer manufactureYear;
-    private BigDecimal sumInsured;
-    private CoverageType coverage;
-    private List<RiskType> risks;
+public record Bicycle(String make, String model, int manufactureYear, BigDecimal sumInsured,
+                      CoverageType coverage, List<RiskType> risks) {
+
+    private static final RiskType[] RISK_TYPES = RiskType.values();
+    private static final int RADIX = RISK_TYPES.length + 1;
+    /** Lists of up to one risk per risk type, indexed by their risks' ordinals plus one as digits of base {@link #RADIX}. */
+    private static final List<?>[] INTERNED_RISKS;
+
+    static {
+        int codes = 1;
+        for (int i = 0; i < RISK_TYPES.length; i++) {
+            codes *= RADIX;
+        }
+        INTERNED_RISKS = new List<?>[codes];
+        for (int code = 0; code < codes; code++) {
+            RiskType[] riskTypes = decode(code);
+            if (riskTypes != null) {
+                INTERNED_RISKS[code] = List.of(riskTypes);
+            }
+        }
+    }
+
+    /**
+     * @return the risks in the given order, as the list shared by all bicycles with these risks. Lists longer than
+     * the number of risk types only repeat risks and are not shared.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<RiskType> risksOf(RiskType... riskTypes) {
+        if (riskTypes.length > RISK_TYPES.length) {
+            return List.of(riskTypes);
+        }
+        int code = 0;
+        for (int i = riskTypes.length - 1; i >= 0; i--) {
+            code = code * RADIX + riskTypes[i].ordinal() + 1;
+        }
+        return (List<RiskType>) INTERNED_RISKS[code];
+    }
+
+    public int riskCount() {
+        return risks.size();
+    }
+
+    public boolean hasRisk(RiskType riskType) {
+        return risks.contains(riskType);
+    }
+
+    /**
+     * @return the risk at the given position among the risks of the bicycle, in request order.
+     */
+    public RiskType risk(int index) {
+        return risks.get(index);
+    }
+
+    /**
+     * @return the risks of a code, or null if a zero digit is followed by a non-zero one and the code is not used.
+     */
+    private static RiskType[] decode(int code) {
+        int length = 0;
+        for (int rest = code; rest != 0; rest /= RADIX) {
+            if (rest % RADIX == 0) {
+                return null;
+            }
+            length++;
+        }
+        RiskType[] riskTypes = new RiskType[length];
+        for (int i = 0; i < length; i++, code /= RADIX) {
+            riskTypes[i] = RISK_TYPES[code % RADIX - 1];
+        }
+        return riskTypes;
+    }
 }
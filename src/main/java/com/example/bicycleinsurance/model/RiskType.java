@@ -1,7 +1,25 @@
 package com.example.bicycleinsurance.model;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public enum RiskType {
     THEFT,
     DAMAGE,
-    THIRD_PARTY_DAMAGE
+    THIRD_PARTY_DAMAGE;
+
+    private static final Map<String, RiskType> BY_NAME = new HashMap<>();
+
+    static {
+        for (RiskType riskType : values()) {
+            BY_NAME.put(riskType.name(), riskType);
+        }
+    }
+
+    /**
+     * @return the risk type with the given name, or null if there is none.
+     */
+    public static RiskType byName(String name) {
+        return name != null ? BY_NAME.get(name) : null;
+    }
 }
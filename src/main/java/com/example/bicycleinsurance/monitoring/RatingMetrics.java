@@ -0,0 +1,75 @@
+package com.example.bicycleinsurance.monitoring;
+
+import com.example.bicycleinsurance.service.RiskRatingCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Request level metrics of the premium calculation and the statistics of the risk rating cache.
+ * Script compilation and execution times are recorded by the script engine itself.
+ */
+@Component
+public class RatingMetrics {
+
+    private final DistributionSummary bicyclesPerRequest;
+    private final DistributionSummary risksPerRequest;
+    private final DistributionSummary duplicateRatio;
+    private final Counter duplicateBicycles;
+    private final Counter coalescedRequests;
+
+    public RatingMetrics(MeterRegistry meterRegistry, RiskRatingCache riskRatingCache) {
+        bicyclesPerRequest = DistributionSummary.builder("insurance.request.bicycles")
+                .description("Number of bicycles in a premium calculation request")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        risksPerRequest = DistributionSummary.builder("insurance.request.risks")
+                .description("Number of rated risks in a premium calculation request")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        duplicateRatio = DistributionSummary.builder("insurance.request.duplicate.ratio")
+                .description("Share of the bicycles of a request that duplicate an earlier one and were not rated again")
+                .register(meterRegistry);
+        duplicateBicycles = Counter.builder("insurance.request.duplicate.bicycles")
+                .description("Bicycles whose premium was taken over from an identical bicycle of the same request")
+                .register(meterRegistry);
+        coalescedRequests = Counter.builder("insurance.request.coalesced")
+                .description("Calculate requests answered with the result of an identical request rated at the same time")
+                .register(meterRegistry);
+
+        Gauge.builder("insurance.rating.cache.size", riskRatingCache, RiskRatingCache::size)
+                .description("Number of cached risk ratings")
+                .register(meterRegistry);
+        FunctionCounter.builder("insurance.rating.cache.requests", riskRatingCache, cache -> cache.stats().hitCount())
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("insurance.rating.cache.requests", riskRatingCache, cache -> cache.stats().missCount())
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("insurance.rating.cache.evictions", riskRatingCache, cache -> cache.stats().evictionCount())
+                .register(meterRegistry);
+    }
+
+    public void recordRequest(int bicycles, int risks) {
+        bicyclesPerRequest.record(bicycles);
+        risksPerRequest.record(risks);
+    }
+
+    /**
+     * @param bicycles Bicycles in the request.
+     * @param distinct Distinct bicycles among them, each rated once.
+     */
+    public void recordDeduplication(int bicycles, int distinct) {
+        if (bicycles > 0) {
+            duplicateRatio.record((double) (bicycles - distinct) / bicycles);
+            duplicateBicycles.increment(bicycles - distinct);
+        }
+    }
+
+    public void recordCoalesced() {
+        coalescedRequests.increment();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.bicycleinsurance.monitoring;
+
+import com.example.bicycleinsurance.config.ScriptEngineProperties;
+import com.example.bicycleinsurance.service.GroovyScriptEngine;
+import com.example.bicycleinsurance.service.RiskRatingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Actuator endpoint ({@code /actuator/scriptengine}) with the state of the rating script engine.
+ */
+@Component
+@Endpoint(id = "scriptengine")
+@RequiredArgsConstructor
+public class ScriptEngineEndpoint {
+
+    private final GroovyScriptEngine groovyScriptEngine;
+    private final RiskRatingCache riskRatingCache;
+
+    @ReadOperation
+    public ScriptEngineStats stats() {
+        ScriptEngineProperties properties = groovyScriptEngine.getProperties();
+        CacheStats cacheStats = riskRatingCache.stats();
+        return new ScriptEngineStats(
+                groovyScriptEngine.getScriptVersion(),
+                properties.getCompilationMode(),
+                properties.getInstanceMode(),
+                properties.getExternalDir() != null ? properties.getExternalDir().toString() : null,
+                groovyScriptEngine.getCompiledScriptNames(),
+                new RiskRatingCacheStats(riskRatingCache.isEnabled(), riskRatingCache.size(),
+                        cacheStats.hitCount(), cacheStats.missCount(), cacheStats.evictionCount(), cacheStats.hitRate()));
+    }
+
+    public record ScriptEngineStats(long scriptVersion,
+                                    ScriptEngineProperties.CompilationMode compilationMode,
+                                    ScriptEngineProperties.InstanceMode instanceMode,
+                                    String externalDir,
+                                    Set<String> compiledScripts,
+                                    RiskRatingCacheStats riskRatingCache) {
+    }
+
+    public record RiskRatingCacheStats(boolean enabled, long size, long hits, long misses, long evictions, double hitRate) {
+    }
+}
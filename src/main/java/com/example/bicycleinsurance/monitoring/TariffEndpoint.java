@@ -0,0 +1,49 @@
+package com.example.bicycleinsurance.monitoring;
+
+import com.example.bicycleinsurance.config.TariffProperties;
+import com.example.bicycleinsurance.service.TariffLoader;
+import com.example.bicycleinsurance.service.TariffVersions;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Actuator endpoint ({@code /actuator/tariff}) with the installed tariff and the effective-dated tariff versions.
+ * A POST loads the tariff CSV files again, which deploys a changed tariff without a restart, and lists the tariff
+ * versions again, which makes versions added since available. Since the POST changes the tariff, the endpoint is
+ * left out of the default web exposure; expose it only on a management port that clients cannot reach.
+ */
+@Component
+@Endpoint(id = "tariff")
+@RequiredArgsConstructor
+public class TariffEndpoint {
+
+    private final TariffLoader tariffLoader;
+    private final TariffVersions tariffVersions;
+    private final TariffProperties properties;
+
+    @ReadOperation
+    public TariffInfo info() {
+        return new TariffInfo(
+                properties.getCsvDir() != null ? properties.getCsvDir().toString() : null,
+                properties.getBinaryFile().toString(),
+                tariffLoader.getInstalledChecksum(),
+                tariffVersions.effectiveDates());
+    }
+
+    @WriteOperation
+    public TariffInfo reload() throws IOException {
+        tariffLoader.load();
+        tariffVersions.scan();
+        return info();
+    }
+
+    public record TariffInfo(String csvDir, String binaryFile, Long checksum, List<LocalDate> versions) {
+    }
+}
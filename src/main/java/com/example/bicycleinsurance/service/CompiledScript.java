@@ -0,0 +1,148 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.exception.ScriptTimeoutException;
+import com.example.bicycleinsurance.tariff.Tariff;
+import com.example.bicycleinsurance.tariff.TariffAware;
+import groovy.lang.Binding;
+import groovy.lang.Script;
+import io.micrometer.core.instrument.Timer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A compiled rating script together with a cached constructor handle and, in pooled mode,
+ * its pool of reusable instances.
+ */
+class CompiledScript {
+
+    private static final MethodType NO_ARG_SCRIPT = MethodType.methodType(Script.class);
+
+    private final String name;
+    private final Class<? extends Script> scriptClass;
+    private final MethodHandle constructor;
+    private final ScriptInstancePool pool;
+    private final Timer executionTimer;
+    private final Timer batchTimer;
+    private final ScriptWatchdog watchdog;
+    private final Tariff tariff;
+
+    /**
+     * @param tariff Tariff every instance is bound to, or null for the one installed in the tariff registry.
+     */
+    CompiledScript(String name, Class<?> scriptClass, int poolSize, Timer executionTimer, Timer batchTimer,
+                   ScriptWatchdog watchdog, Tariff tariff) {
+        this.name = name;
+        this.watchdog = watchdog;
+        this.tariff = tariff;
+        this.executionTimer = executionTimer;
+        this.batchTimer = batchTimer;
+        this.scriptClass = scriptClass.asSubclass(Script.class);
+        try {
+            this.constructor = MethodHandles.publicLookup()
+                    .findConstructor(this.scriptClass, MethodType.methodType(void.class))
+                    .asType(NO_ARG_SCRIPT);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Script " + name + " has no accessible no-arg constructor", e);
+        }
+        this.pool = poolSize > 0 ? new ScriptInstancePool(poolSize, this::newInstance) : null;
+    }
+
+    Object run(Map<String, Object> variables) {
+        long start = System.nanoTime();
+        ScriptWatchdog.Execution execution = watchdog.enter(name);
+        try {
+            return execute(variables);
+        } finally {
+            executionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            watchdog.exit(execution);
+        }
+    }
+
+    /**
+     * Runs the script for every row of a batch on one instance bound to the batch columns. Rows failed by an
+     * earlier script are skipped; a row whose execution throws is reported and the batch goes on with the next.
+     * The script budget applies to each row. Once the request is out of its budget, the remaining rows are failed
+     * with its timeout without running them.
+     */
+    void runBatch(RatingBatch batch, ObjIntConsumer<Object> results, ObjIntConsumer<Exception> failures) {
+        long start = System.nanoTime();
+        try {
+            Script script = newInstance();
+            ColumnBinding binding = new ColumnBinding(batch);
+            script.setBinding(binding);
+            for (int row = 0; row < batch.size(); row++) {
+                if (batch.failure(row) != null) {
+                    continue;
+                }
+                binding.moveTo(row);
+                try {
+                    ScriptWatchdog.Execution execution = watchdog.enter(name);
+                    try {
+                        results.accept(script.run(), row);
+                    } finally {
+                        watchdog.exit(execution);
+                    }
+                } catch (Exception e) {
+                    failures.accept(e, row);
+                    if (e instanceof ScriptTimeoutException && ScriptWatchdog.isRequestTimedOut()) {
+                        failRemaining(batch, row + 1, e, failures);
+                        return;
+                    }
+                }
+            }
+        } finally {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static void failRemaining(RatingBatch batch, int from, Exception failure, ObjIntConsumer<Exception> failures) {
+        for (int row = from; row < batch.size(); row++) {
+            if (batch.failure(row) == null) {
+                failures.accept(failure, row);
+            }
+        }
+    }
+
+    private Object execute(Map<String, Object> variables) {
+        if (pool == null) {
+            Script script = newInstance();
+            Binding binding = new Binding();
+            variables.forEach(binding::setVariable);
+            script.setBinding(binding);
+            return script.run();
+        }
+        ScriptInstancePool.PooledScript pooled = pool.acquire();
+        try {
+            return pooled.run(variables);
+        } finally {
+            pool.release(pooled);
+        }
+    }
+
+    String name() {
+        return name;
+    }
+
+    Class<? extends Script> scriptClass() {
+        return scriptClass;
+    }
+
+    private Script newInstance() {
+        try {
+            Script script = (Script) constructor.invokeExact();
+            if (tariff != null && script instanceof TariffAware tariffAware) {
+                tariffAware.useTariff(tariff);
+            }
+            return script;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Cannot instantiate script " + name, t);
+        }
+    }
+}
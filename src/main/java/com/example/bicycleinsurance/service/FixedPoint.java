@@ -0,0 +1,252 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.tariff.FactorBand;
+
+import java.math.BigDecimal;
+
+/**
+ * Scaled-long arithmetic of the {@code FIXED_POINT} rating mode.
+ *
+ * <p>A value is a long unscaled value with a decimal scale, like a BigDecimal whose digits fit into a long.
+ * Operations follow the BigDecimal rules the rating scripts get from Groovy, so results are identical to the
+ * BigDecimal path, value and scale:
+ * <ul>
+ *     <li>sums, differences and products are exact, with the usual BigDecimal result scale;</li>
+ *     <li>a quotient is exact when the division terminates; otherwise it is rounded HALF_UP to the larger
+ *     precision of its operands plus {@value #DIVISION_EXTRA_PRECISION} digits and then, if its scale is
+ *     still larger, HALF_UP to the largest of the operand scales and {@value #DIVISION_MIN_SCALE};</li>
+ *     <li>amounts are rounded HALF_UP to cents only at the end.</li>
+ * </ul>
+ * Anything that does not fit into a long or an 18 digit quotient throws {@link ArithmeticException}
+ * internally, and the public methods then report that the caller has to fall back to BigDecimal.
+ */
+public final class FixedPoint {
+
+    /**
+     * Binding variable that switches the factor helpers of {@code BaseScript} to fixed-point interpolation.
+     */
+    public static final String BINDING_VARIABLE = "fixedPointRating";
+
+    static final int DIVISION_EXTRA_PRECISION = 10;
+    static final int DIVISION_MIN_SCALE = 10;
+
+    private static final int MAX_DIGITS = 18;
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_DIGITS; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Linear interpolation {@code factorMax - (factorMax - factorMin) * (valueTo - value) / (valueTo - valueFrom)}
+     * of a tariff band, evaluated exactly like the Groovy BigDecimal expression.
+     *
+     * @return the factor, or null if the operands are outside the fixed-point range or the band is empty.
+     */
+    public static BigDecimal interpolate(FactorBand band, BigDecimal value) {
+        try {
+            Scaled factorMax = Scaled.of(band.factorMax());
+            Scaled valueTo = Scaled.of(band.valueTo());
+            Scaled spread = factorMax.subtract(Scaled.of(band.factorMin()));
+            Scaled step = spread.multiply(valueTo.subtract(Scaled.of(value)))
+                    .divide(valueTo.subtract(Scaled.of(band.valueFrom())));
+            return factorMax.subtract(step).toBigDecimal();
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * {@code dividend / divisor} rounded HALF_UP (away from zero on ties).
+     */
+    static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = Math.abs(dividend % divisor);
+        if (remainder >= Math.abs(divisor) - remainder) {
+            quotient += (dividend < 0) == (divisor < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+
+    static long powerOfTen(int exponent) {
+        if (exponent < 0 || exponent > MAX_DIGITS) {
+            throw new ArithmeticException("Power of ten outside fixed-point range: " + exponent);
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+
+    static int digits(long value) {
+        long magnitude = Math.abs(value);
+        int digits = 1;
+        while (digits <= MAX_DIGITS && magnitude >= POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * A decimal {@code unscaled * 10^-scale} with a long unscaled value.
+     */
+    record Scaled(long unscaled, int scale) {
+
+        /**
+         * Reads the unscaled value without {@code unscaledValue()}, which allocates a BigInteger even for the compact
+         * BigDecimals the tariff and the scripts produce.
+         *
+         * @throws ArithmeticException if the unscaled value does not fit into a long.
+         */
+        static Scaled of(BigDecimal value) {
+            return new Scaled(value.scaleByPowerOfTen(value.scale()).longValueExact(), value.scale());
+        }
+
+        BigDecimal toBigDecimal() {
+            return BigDecimal.valueOf(unscaled, scale);
+        }
+
+        Scaled add(Scaled other) {
+            int resultScale = Math.max(scale, other.scale);
+            return new Scaled(Math.addExact(rescale(resultScale), other.rescale(resultScale)), resultScale);
+        }
+
+        Scaled subtract(Scaled other) {
+            int resultScale = Math.max(scale, other.scale);
+            return new Scaled(Math.subtractExact(rescale(resultScale), other.rescale(resultScale)), resultScale);
+        }
+
+        Scaled multiply(Scaled other) {
+            return new Scaled(Math.multiplyExact(unscaled, other.unscaled), Math.addExact(scale, other.scale));
+        }
+
+        /**
+         * Division with Groovy's BigDecimal semantics, see the class comment.
+         */
+        Scaled divide(Scaled divisor) {
+            if (divisor.unscaled == 0) {
+                throw new ArithmeticException("Division by zero");
+            }
+            int preferredScale = Math.subtractExact(scale, divisor.scale);
+            if (unscaled == 0) {
+                return new Scaled(0, preferredScale);
+            }
+            Scaled exact = exactQuotient(divisor, preferredScale);
+            if (exact != null) {
+                return exact;
+            }
+            int precision = Math.max(digits(unscaled), digits(divisor.unscaled)) + DIVISION_EXTRA_PRECISION;
+            Scaled rounded = roundedQuotient(divisor, precision, preferredScale);
+            int maxScale = Math.max(Math.max(scale, divisor.scale), DIVISION_MIN_SCALE);
+            if (rounded.scale <= maxScale) {
+                return rounded;
+            }
+            int droppedDigits = rounded.scale - maxScale;
+            // the rounded quotient has at most MAX_DIGITS digits, so dropping more than that always gives zero
+            return new Scaled(droppedDigits > MAX_DIGITS ? 0 : divideHalfUp(rounded.unscaled, powerOfTen(droppedDigits)), maxScale);
+        }
+
+        /**
+         * The exact quotient with trailing zeros removed down to the preferred scale, as
+         * {@code BigDecimal.divide(BigDecimal)} returns it, or null if the division does not terminate.
+         */
+        private Scaled exactQuotient(Scaled divisor, int preferredScale) {
+            long dividendMagnitude = Math.absExact(unscaled);
+            long divisorMagnitude = Math.absExact(divisor.unscaled);
+            long gcd = gcd(dividendMagnitude, divisorMagnitude);
+            long numerator = dividendMagnitude / gcd;
+            long denominator = divisorMagnitude / gcd;
+
+            int twos = 0;
+            while (denominator % 2 == 0) {
+                denominator /= 2;
+                twos++;
+            }
+            int fives = 0;
+            while (denominator % 5 == 0) {
+                denominator /= 5;
+                fives++;
+            }
+            if (denominator != 1) {
+                return null;
+            }
+
+            // numerator / (2^twos * 5^fives) == numerator * 2^(m - twos) * 5^(m - fives) / 10^m
+            int m = Math.max(twos, fives);
+            long quotient = numerator;
+            for (int i = twos; i < m; i++) {
+                quotient = Math.multiplyExact(quotient, 2);
+            }
+            for (int i = fives; i < m; i++) {
+                quotient = Math.multiplyExact(quotient, 5);
+            }
+            int quotientScale = Math.addExact(preferredScale, m);
+            while (quotientScale > preferredScale && quotient % 10 == 0) {
+                quotient /= 10;
+                quotientScale--;
+            }
+            if (Long.signum(unscaled) != Long.signum(divisor.unscaled)) {
+                quotient = -quotient;
+            }
+            return new Scaled(quotient, quotientScale);
+        }
+
+        /**
+         * The quotient rounded HALF_UP to the given number of significant digits, by long division digit by digit.
+         */
+        private Scaled roundedQuotient(Scaled divisor, int precision, int preferredScale) {
+            if (precision > MAX_DIGITS) {
+                throw new ArithmeticException("Quotient precision outside fixed-point range: " + precision);
+            }
+            long dividendMagnitude = Math.absExact(unscaled);
+            long divisorMagnitude = Math.absExact(divisor.unscaled);
+            if (divisorMagnitude > Long.MAX_VALUE / 10) {
+                throw new ArithmeticException("Divisor outside fixed-point range");
+            }
+
+            long quotient = dividendMagnitude / divisorMagnitude;
+            long remainder = dividendMagnitude % divisorMagnitude;
+            int significantDigits = quotient == 0 ? 0 : digits(quotient);
+            if (significantDigits > precision) {
+                throw new ArithmeticException("Quotient outside fixed-point range");
+            }
+            int fractionDigits = 0;
+            while (significantDigits < precision) {
+                remainder *= 10;
+                quotient = quotient * 10 + remainder / divisorMagnitude;
+                remainder %= divisorMagnitude;
+                fractionDigits++;
+                if (quotient != 0) {
+                    significantDigits++;
+                }
+            }
+            if (remainder * 10 / divisorMagnitude >= 5) {
+                quotient++;
+                if (quotient == POWERS_OF_TEN[precision]) {
+                    quotient /= 10;
+                    fractionDigits--;
+                }
+            }
+            if (Long.signum(unscaled) != Long.signum(divisor.unscaled)) {
+                quotient = -quotient;
+            }
+            return new Scaled(quotient, Math.addExact(preferredScale, fractionDigits));
+        }
+
+        private long rescale(int targetScale) {
+            return Math.multiplyExact(unscaled, powerOfTen(targetScale - scale));
+        }
+
+        private static long gcd(long a, long b) {
+            while (b != 0) {
+                long t = a % b;
+                a = b;
+                b = t;
+            }
+            return a;
+        }
+    }
+}
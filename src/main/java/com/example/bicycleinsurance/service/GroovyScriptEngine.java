@@ -1,73 +1,714 @@
 package com.example.bicycleinsurance.service;
 
+import com.example.bicycleinsurance.config.ScriptEngineProperties;
 import com.example.bicycleinsurance.exception.ScriptExecutionException;
-import groovy.lang.Binding;
+import com.example.bicycleinsurance.exception.ScriptTimeoutException;
+import com.example.bicycleinsurance.tariff.TariffVersion;
 import groovy.lang.GroovyClassLoader;
-import groovy.lang.Script;
+import groovy.transform.CompileStatic;
+import groovy.transform.ThreadInterrupt;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.codehaus.groovy.control.CompilationUnit;
 import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
 import org.codehaus.groovy.control.customizers.SecureASTCustomizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Component;
 
 import java.io.InputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ObjIntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 @Component
 @Slf4j
 public class GroovyScriptEngine {
 
-    private final Map<String, Class<?>> scriptCache = new ConcurrentHashMap<>();
+    static final String SCRIPT_EXTENSION = ".groovy";
+    static final String SCRIPT_LOCATION = "scripts/";
+    static final String PRECOMPILED_INDEX = SCRIPT_LOCATION + "precompiled.properties";
+    static final String PRECOMPILED_PACKAGE = "com.example.bicycleinsurance.scripts";
+    private static final String RATING_PREFIX = "rating/";
+    private static final String RATING_UNIT_BASE_CLASS = "com.example.bicycleinsurance.groovy.RatingUnitScript";
+    private static final Pattern PACKAGE_DECLARATION = Pattern.compile("(?m)^\\s*package\\s+.*$");
+    private static final Pattern IMPORT_DECLARATION = Pattern.compile("(?m)^\\s*import\\s+.*$");
+
+    private final AtomicReference<ScriptGeneration> generation = new AtomicReference<>();
+    /**
+     * Generations compiled for the loaded tariff versions, by the date a version takes effect. Released when
+     * the version is unloaded and recompiled after a reload.
+     */
+    private final Map<LocalDate, ScriptGeneration> versionGenerations = new ConcurrentHashMap<>();
     private final CompilerConfiguration compilerConfiguration;
-    private final GroovyClassLoader groovyClassLoader;
+    private final CompilerConfiguration ratingCompilerConfiguration;
+    private final ClassLoader parentClassLoader;
+    private final Path externalDir;
+    private final int poolSize;
+    private final ScriptEngineProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ScriptWatchdog watchdog;
+    private final boolean fusedRating;
+    private final Properties precompiledIndex;
 
     public GroovyScriptEngine() {
-        compilerConfiguration = new CompilerConfiguration();
-        compilerConfiguration.setScriptBaseClass("com.example.bicycleinsurance.groovy.BaseScript");
+        this(new ScriptEngineProperties());
+    }
 
-        SecureASTCustomizer secureASTCustomizer = new SecureASTCustomizer();
-        secureASTCustomizer.setImportsWhitelist(Arrays.asList("java.lang.Math"));
-        secureASTCustomizer.setMethodDefinitionAllowed(false);
-        secureASTCustomizer.setClosuresAllowed(true);
+    public GroovyScriptEngine(ScriptEngineProperties properties) {
+        this(properties, Metrics.globalRegistry);
+    }
 
-        compilerConfiguration.addCompilationCustomizers(secureASTCustomizer);
+    @Autowired
+    public GroovyScriptEngine(ScriptEngineProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        compilerConfiguration = compilerConfiguration(properties.getCompilationMode(), false);
+        // Fused rating units only get their generated methods; both parts are checked against compilerConfiguration first
+        ratingCompilerConfiguration = compilerConfiguration(properties.getCompilationMode(), true);
+        ratingCompilerConfiguration.setScriptBaseClass(RATING_UNIT_BASE_CLASS);
+        log.info("Groovy script engine uses {} compilation", properties.getCompilationMode());
+
+        poolSize = properties.getInstanceMode() == ScriptEngineProperties.InstanceMode.POOLED ? properties.getPoolSize() : 0;
+        log.info("Groovy script engine uses {} script instances", properties.getInstanceMode());
+
+        fusedRating = properties.isFusedRating();
+        if (fusedRating) {
+            log.info("Groovy script engine rates sum insured and premium of a risk in one execution");
+        }
+
+        precompiledIndex = properties.isPrecompiled() ? loadPrecompiledIndex() : new Properties();
+        if (!precompiledIndex.isEmpty()) {
+            log.info("Groovy script engine loads {} bundled scripts precompiled at build time", precompiledIndex.size());
+        }
 
-        ClassLoader parentClassLoader = Thread.currentThread().getContextClassLoader();
-        groovyClassLoader = new GroovyClassLoader(parentClassLoader, compilerConfiguration);
+        externalDir = properties.getExternalDir() != null ? properties.getExternalDir().toAbsolutePath().normalize() : null;
+        if (externalDir != null) {
+            log.info("Groovy script engine loads scripts from {} before the classpath", externalDir);
+        }
+
+        watchdog = new ScriptWatchdog(properties.getBudget(), meterRegistry);
+
+        parentClassLoader = Thread.currentThread().getContextClassLoader();
+        generation.set(new ScriptGeneration(1, newClassLoader()));
+
+        Gauge.builder("insurance.script.cache.size", this, engine -> engine.generation.get().scripts().size())
+                .description("Number of compiled scripts in the active script version")
+                .register(meterRegistry);
+        Gauge.builder("insurance.script.version", this, GroovyScriptEngine::getScriptVersion)
+                .description("Version of the active script set")
+                .register(meterRegistry);
     }
 
     public Object executeScript(String scriptName, Map<String, Object> variables) {
+        return executeScript((TariffVersion) null, scriptName, variables);
+    }
+
+    /**
+     * Runs a script of a tariff version: the version's own copy of the script if it overrides it, otherwise the
+     * deployed one, with tariff lookups served by the tables of the version.
+     *
+     * @param tariffVersion Version to rate with, or null for the deployed tariff and scripts.
+     */
+    public Object executeScript(TariffVersion tariffVersion, String scriptName, Map<String, Object> variables) {
+        ScriptGeneration scripts = pin(tariffVersion);
+        try {
+            return executeScript(scripts, scriptName, variables);
+        } finally {
+            scripts.release();
+        }
+    }
+
+    /**
+     * Runs a script of the generation a request pinned with {@link #pin}.
+     */
+    Object executeScript(ScriptGeneration scripts, String scriptName, Map<String, Object> variables) {
         try {
-            Class<?> scriptClass = scriptCache.computeIfAbsent(scriptName, this::compileScript);
-            Script script = (Script) scriptClass.getDeclaredConstructor().newInstance();
-            Binding binding = new Binding();
-            variables.forEach(binding::setVariable);
-            script.setBinding(binding);
-            return script.run();
+            return compiledScript(scripts, scriptName).run(variables);
         } catch (Exception e) {
-            log.error("Error executing Groovy script: {}", scriptName, e);
-            throw new ScriptExecutionException("Error executing script: " + scriptName + ": " + e.getMessage());
+            throw executionFailure(scriptName, e);
         }
     }
 
-    private Class<?> compileScript(String scriptName) {
+    /**
+     * Rates one risk type for all bicycles of a batch, running each script once over the whole batch instead of
+     * once per bicycle: the sum insured script fills the sum insured column, then the premium script the premium
+     * column, or the fused rating unit both. A bicycle whose scripts fail gets its failure set in the batch, the
+     * other bicycles are still rated.
+     */
+    public void executeBatch(RatingBatch batch) {
+        executeBatch((TariffVersion) null, batch);
+    }
+
+    /**
+     * Rates a batch like {@link #executeBatch(RatingBatch)} with the scripts and tariff of a version.
+     *
+     * @param tariffVersion Version to rate with, or null for the deployed tariff and scripts.
+     */
+    public void executeBatch(TariffVersion tariffVersion, RatingBatch batch) {
+        ScriptGeneration scripts = pin(tariffVersion);
         try {
-            String scriptPath = "scripts/" + scriptName + ".groovy";
-            InputStream scriptStream = getClass().getClassLoader().getResourceAsStream(scriptPath);
-            if (scriptStream == null) {
-                throw new IOException("Script not found: " + scriptPath);
+            executeBatch(scripts, batch);
+        } finally {
+            scripts.release();
+        }
+    }
+
+    /**
+     * Rates a batch with the generation a request pinned with {@link #pin}.
+     */
+    void executeBatch(ScriptGeneration current, RatingBatch batch) {
+        if (fusedRating) {
+            runBatch(current, RATING_PREFIX + batch.riskType(), batch, (result, row) -> {
+                RiskRating rating = (RiskRating) result;
+                batch.setRiskSumInsured(row, rating.sumInsured());
+                batch.setPremium(row, rating.premium());
+            });
+            return;
+        }
+        runBatch(current, "sumInsured/" + batch.riskType(), batch,
+                (result, row) -> batch.setRiskSumInsured(row, RiskRating.toBigDecimal(result)));
+        runBatch(current, "premiums/" + batch.riskType(), batch,
+                (result, row) -> batch.setPremium(row, RiskRating.toBigDecimal(result)));
+    }
+
+    private void runBatch(ScriptGeneration current, String scriptName, RatingBatch batch, ObjIntConsumer<Object> results) {
+        CompiledScript script;
+        try {
+            script = compiledScript(current, scriptName);
+        } catch (Exception e) {
+            ScriptExecutionException failure = executionFailure(scriptName, e);
+            for (int row = 0; row < batch.size(); row++) {
+                if (batch.failure(row) == null) {
+                    batch.fail(row, failure);
+                }
+            }
+            return;
+        }
+        // Rows failing for the same reason would flood the log, so a batch logs one error with the first cause
+        int[] failedRows = new int[1];
+        Exception[] firstFailure = new Exception[1];
+        script.runBatch(batch, results, (e, row) -> {
+            if (e instanceof ScriptTimeoutException timeout) {
+                batch.fail(row, timeout);
+                return;
+            }
+            if (failedRows[0]++ == 0) {
+                firstFailure[0] = e;
+            }
+            log.debug("Error executing Groovy script: {} for batch row {}", scriptName, row, e);
+            batch.fail(row, scriptFailure(scriptName, e));
+        });
+        if (failedRows[0] > 0) {
+            log.error("Error executing Groovy script: {} for {} of {} bicycles of a batch, first failure:",
+                    scriptName, failedRows[0], batch.size(), firstFailure[0]);
+        }
+    }
+
+    private CompiledScript compiledScript(ScriptGeneration current, String scriptName) {
+        CompiledScript script = current.scripts().get(scriptName);
+        if (script == null) {
+            script = current.scripts().computeIfAbsent(scriptName, name -> compileScript(current, name));
+        }
+        return script;
+    }
+
+    private ScriptExecutionException executionFailure(String scriptName, Exception e) {
+        if (e instanceof ScriptTimeoutException timeout) {
+            return timeout;
+        }
+        log.error("Error executing Groovy script: {}", scriptName, e);
+        return scriptFailure(scriptName, e);
+    }
+
+    /**
+     * Counts a failed execution in {@code insurance.script.failures} and wraps its cause, leaving logging to the
+     * caller.
+     */
+    private ScriptExecutionException scriptFailure(String scriptName, Exception e) {
+        Counter.builder("insurance.script.failures")
+                .description("Script executions that failed with an error")
+                .tag("script", scriptName)
+                .register(meterRegistry)
+                .increment();
+        return new ScriptExecutionException("Error executing script: " + scriptName + ": " + e.getMessage());
+    }
+
+    /**
+     * Rates one risk in a single execution of the fused rating unit of its sum insured and premium scripts.
+     *
+     * @param riskType Name of the risk whose sumInsured and premiums scripts form the unit.
+     * @param variables Rating variables, without riskSumInsured which is passed on inside the unit.
+     * @return The sum insured and premium of the risk as returned by the scripts.
+     */
+    public RiskRating executeRating(String riskType, Map<String, Object> variables) {
+        return executeRating((TariffVersion) null, riskType, variables);
+    }
+
+    /**
+     * @param tariffVersion Version to rate with, or null for the deployed tariff and scripts.
+     */
+    public RiskRating executeRating(TariffVersion tariffVersion, String riskType, Map<String, Object> variables) {
+        return (RiskRating) executeScript(tariffVersion, RATING_PREFIX + riskType, variables);
+    }
+
+    /**
+     * Rates one risk with the generation a request pinned with {@link #pin}.
+     */
+    RiskRating executeRating(ScriptGeneration scripts, String riskType, Map<String, Object> variables) {
+        return (RiskRating) executeScript(scripts, RATING_PREFIX + riskType, variables);
+    }
+
+    /**
+     * Whether risks should be rated through {@link #executeRating} instead of two separate script executions.
+     */
+    public boolean isFusedRating() {
+        return fusedRating;
+    }
+
+    /**
+     * Deadline of a calculation request starting now, to pass to {@link ScriptWatchdog#withinRequest}, or 0 if
+     * requests have no time budget.
+     */
+    long requestDeadline() {
+        return watchdog.requestDeadline();
+    }
+
+    /**
+     * Releases the scripts compiled for a tariff version that is no longer loaded.
+     */
+    void retire(TariffVersion tariffVersion) {
+        ScriptGeneration versioned = versionGenerations.remove(tariffVersion.effectiveFrom());
+        if (versioned != null) {
+            versioned.retire();
+        }
+    }
+
+    /**
+     * Pins the generation to run the scripts of a tariff version with for one request, so a reload in the middle
+     * of the request does not mix script versions. The request must release it when done.
+     *
+     * @param tariffVersion Version to rate with, or null for the deployed tariff and scripts.
+     */
+    ScriptGeneration pin(TariffVersion tariffVersion) {
+        ScriptGeneration scripts;
+        do {
+            // A reload may release the generation between looking it up and pinning it
+            scripts = generation(tariffVersion);
+        } while (!scripts.pin());
+        return scripts;
+    }
+
+    /**
+     * The generation to run the scripts of a tariff version with. A version gets its own generation on first use,
+     * compiled lazily like the deployed one. A reload recompiles it; only if that failed does the version get a new
+     * generation on its next use.
+     */
+    private ScriptGeneration generation(TariffVersion tariffVersion) {
+        ScriptGeneration current = generation.get();
+        if (tariffVersion == null) {
+            return current;
+        }
+        ScriptGeneration versioned = versionGenerations.get(tariffVersion.effectiveFrom());
+        if (versioned != null && isGenerationOf(versioned, current, tariffVersion)) {
+            return versioned;
+        }
+        return versionGenerations.compute(tariffVersion.effectiveFrom(), (effectiveFrom, existing) -> {
+            if (existing != null && isGenerationOf(existing, current, tariffVersion)) {
+                return existing;
+            }
+            if (existing != null) {
+                existing.retire();
+            }
+            return new ScriptGeneration(current.version(), newClassLoader(), tariffVersion);
+        });
+    }
+
+    private static boolean isGenerationOf(ScriptGeneration versioned, ScriptGeneration current, TariffVersion tariffVersion) {
+        // A reload swaps in the recompiled version generations just before the deployed one
+        return versioned.version() >= current.version() && versioned.tariffVersion() == tariffVersion;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.close();
+    }
+
+    /**
+     * Version of the script set currently used for new executions. Increases with every successful reload.
+     */
+    public long getScriptVersion() {
+        return generation.get().version();
+    }
+
+    /**
+     * Names of the scripts compiled in the active script version.
+     */
+    public Set<String> getCompiledScriptNames() {
+        return Collections.unmodifiableSet(new TreeSet<>(generation.get().scriptNames()));
+    }
+
+    /**
+     * Checksum of the current source of a script, external or bundled, to tell whether it changed since a
+     * rating used it.
+     */
+    public String getScriptChecksum(String scriptName) {
+        try {
+            return checksum(readScript(scriptName));
+        } catch (IOException e) {
+            throw new ScriptExecutionException("Error reading script: " + scriptName + ": " + e.getMessage());
+        }
+    }
+
+    public ScriptEngineProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Compiles every bundled and external script into a new class loader generation and swaps it in atomically.
+     * Scripts whose source was deleted are dropped. The generations of loaded tariff versions are recompiled and
+     * swapped in first, so no request compiles them. Requests already running finish on the generations they pinned,
+     * which are released once the last of them is done. If any script fails to compile the current generation stays active.
+     *
+     * @return the version of the active generation after the reload.
+     */
+    public synchronized long reload() {
+        ScriptGeneration previous = generation.get();
+        ScriptGeneration next = new ScriptGeneration(previous.version() + 1, newClassLoader());
+        Set<String> scriptNames;
+        try {
+            scriptNames = new TreeSet<>(bundledScriptNames());
+            scriptNames.addAll(externalScriptNames());
+            // Fused rating units have no source of their own; they stay as long as both of their parts do
+            for (String scriptName : previous.scriptNames()) {
+                if (scriptName.startsWith(RATING_PREFIX) && hasSource(next, scriptName)) {
+                    scriptNames.add(scriptName);
+                }
+            }
+            for (String scriptName : scriptNames) {
+                next.scripts().put(scriptName, compileScript(next, scriptName));
+            }
+        } catch (RuntimeException e) {
+            log.error("Reload of Groovy scripts failed, keeping version {}", previous.version(), e);
+            next.retire();
+            return previous.version();
+        }
+
+        for (Map.Entry<LocalDate, ScriptGeneration> entry : versionGenerations.entrySet()) {
+            ScriptGeneration versioned = entry.getValue();
+            ScriptGeneration recompiled = recompile(versioned, next.version());
+            // A version released or replaced meanwhile keeps what it has now
+            boolean swapped = recompiled != null
+                    ? versionGenerations.replace(entry.getKey(), versioned, recompiled)
+                    : versionGenerations.remove(entry.getKey(), versioned);
+            if (swapped) {
+                versioned.retire();
+            } else if (recompiled != null) {
+                recompiled.retire();
+            }
+        }
+        generation.set(next);
+        previous.retire();
+        log.info("Reloaded {} Groovy scripts as version {}", scriptNames.size(), next.version());
+        return next.version();
+    }
+
+    /**
+     * Compiles the scripts a tariff version used so far into a generation of the given version.
+     *
+     * @return the new generation, or null if a script failed to compile and the version should compile on next use.
+     */
+    private ScriptGeneration recompile(ScriptGeneration versioned, long version) {
+        ScriptGeneration recompiled = new ScriptGeneration(version, newClassLoader(), versioned.tariffVersion());
+        try {
+            for (String scriptName : versioned.scriptNames()) {
+                if (hasSource(recompiled, scriptName)) {
+                    recompiled.scripts().put(scriptName, compileScript(recompiled, scriptName));
+                }
+            }
+            return recompiled;
+        } catch (RuntimeException e) {
+            log.warn("Recompiling the scripts of tariff version {} failed, compiling them on next use",
+                    versioned.tariffVersion().effectiveFrom(), e);
+            recompiled.retire();
+            return null;
+        }
+    }
+
+    private Timer executionTimer(String scriptName) {
+        return Timer.builder("insurance.script.execution")
+                .description("Execution time of a rating script")
+                .tag("script", scriptName)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Timer batchTimer(String scriptName) {
+        return Timer.builder("insurance.script.batch.execution")
+                .description("Execution time of a rating script over a whole batch of bicycles")
+                .tag("script", scriptName)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Name of the class a bundled script is compiled to at build time for the given compilation mode.
+     */
+    static String precompiledClassName(ScriptEngineProperties.CompilationMode compilationMode, String scriptName) {
+        return PRECOMPILED_PACKAGE + "." + compilationMode.name() + "." + scriptName.replace('/', '.');
+    }
+
+    static CompilerConfiguration compilerConfiguration(ScriptEngineProperties.CompilationMode compilationMode,
+                                                       boolean methodDefinitionAllowed) {
+        CompilerConfiguration configuration = new CompilerConfiguration();
+        configuration.setScriptBaseClass("com.example.bicycleinsurance.groovy.BaseScript");
+
+        SecureASTCustomizer secureASTCustomizer = new SecureASTCustomizer();
+        secureASTCustomizer.setImportsWhitelist(Arrays.asList("java.lang.Math"));
+        secureASTCustomizer.setMethodDefinitionAllowed(methodDefinitionAllowed);
+        secureASTCustomizer.setClosuresAllowed(true);
+
+        configuration.addCompilationCustomizers(secureASTCustomizer);
+
+        if (compilationMode == ScriptEngineProperties.CompilationMode.STATIC) {
+            // Script variables resolve to the typed getters of BaseScript, so type errors fail the compilation
+            configuration.addCompilationCustomizers(new ASTTransformationCustomizer(CompileStatic.class));
+        }
+        // Loops, closures and methods check the interrupt flag, so the watchdog can stop a runaway script
+        configuration.addCompilationCustomizers(new ASTTransformationCustomizer(ThreadInterrupt.class));
+        return configuration;
+    }
+
+    private GroovyClassLoader newClassLoader() {
+        return new GroovyClassLoader(parentClassLoader, compilerConfiguration);
+    }
+
+    private Set<String> externalScriptNames() {
+        Set<String> scriptNames = new TreeSet<>();
+        if (externalDir == null || !Files.isDirectory(externalDir)) {
+            return scriptNames;
+        }
+        try (Stream<Path> files = Files.walk(externalDir)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SCRIPT_EXTENSION))
+                    .map(file -> externalDir.relativize(file).toString().replace('\\', '/'))
+                    .map(name -> name.substring(0, name.length() - SCRIPT_EXTENSION.length()))
+                    .forEach(scriptNames::add);
+        } catch (IOException e) {
+            throw new ScriptExecutionException("Error listing scripts in " + externalDir + ": " + e.getMessage());
+        }
+        return scriptNames;
+    }
+
+    /**
+     * Names of the scripts bundled on the classpath, in directories and jars alike.
+     */
+    private Set<String> bundledScriptNames() {
+        Set<String> scriptNames = new TreeSet<>();
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver(parentClassLoader)
+                    .getResources("classpath*:" + SCRIPT_LOCATION + "**/*" + SCRIPT_EXTENSION);
+            for (Resource resource : resources) {
+                String path = resource.getURL().toString();
+                scriptNames.add(path.substring(path.lastIndexOf("/" + SCRIPT_LOCATION) + SCRIPT_LOCATION.length() + 1,
+                        path.length() - SCRIPT_EXTENSION.length()));
             }
-            String scriptText = new String(scriptStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new ScriptExecutionException("Error listing bundled scripts: " + e.getMessage());
+        }
+        return scriptNames;
+    }
+
+    /**
+     * Whether a script, or both parts of a fused rating unit, can still be read for a generation.
+     */
+    private boolean hasSource(ScriptGeneration target, String scriptName) {
+        if (scriptName.startsWith(RATING_PREFIX)) {
+            String riskType = scriptName.substring(RATING_PREFIX.length());
+            return hasSource(target, "sumInsured/" + riskType) && hasSource(target, "premiums/" + riskType);
+        }
+        return versionScript(target, scriptName) != null || externalScript(scriptName) != null
+                || getClass().getClassLoader().getResource(SCRIPT_LOCATION + scriptName + SCRIPT_EXTENSION) != null;
+    }
+
+    private CompiledScript compileScript(ScriptGeneration target, String scriptName) {
+        try {
+            boolean ratingUnit = scriptName.startsWith(RATING_PREFIX);
+            Class<?> scriptClass = ratingUnit ? null : precompiledClass(target, scriptName);
+            if (scriptClass == null) {
+                String scriptText = ratingUnit
+                        ? fusedRatingSource(target, scriptName.substring(RATING_PREFIX.length()))
+                        : stripPackage(readScript(target, scriptName));
 
-            scriptText = scriptText.replaceAll("(?m)^\\s*package\\s+.*$", "");
+                long start = System.nanoTime();
+                // A child loader of the generation, so fused units are unloaded together with their generation
+                GroovyClassLoader classLoader = ratingUnit
+                        ? new GroovyClassLoader(target.classLoader(), ratingCompilerConfiguration)
+                        : target.classLoader();
+                scriptClass = classLoader.parseClass(scriptText, scriptName + SCRIPT_EXTENSION);
+                Timer.builder("insurance.script.compile")
+                        .description("Time spent compiling a rating script")
+                        .tag("script", scriptName)
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
 
-            return groovyClassLoader.parseClass(scriptText, scriptName + ".groovy");
+            TariffVersion tariffVersion = target.tariffVersion();
+            return new CompiledScript(scriptName, scriptClass, poolSize, executionTimer(scriptName), batchTimer(scriptName),
+                    watchdog, tariffVersion != null ? tariffVersion.tariff() : null);
         } catch (IOException e) {
             log.error("Error compiling Groovy script: {}", scriptName, e);
             throw new ScriptExecutionException("Error compiling script: " + scriptName + ": " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The class compiled at build time for a bundled script, or null if the script has to be compiled from source:
+     * it is overridden in the external directory or the tariff version, was not precompiled, or its source changed
+     * since the build.
+     */
+    private Class<?> precompiledClass(ScriptGeneration target, String scriptName) throws IOException {
+        String checksum = precompiledIndex.getProperty(scriptName);
+        if (checksum == null || versionScript(target, scriptName) != null || externalScript(scriptName) != null) {
+            return null;
+        }
+        if (!checksum.equals(checksum(readBundledScript(scriptName)))) {
+            log.warn("Bundled script {} changed since it was precompiled, compiling it from source", scriptName);
+            return null;
+        }
+        try {
+            return Class.forName(precompiledClassName(properties.getCompilationMode(), scriptName), true, parentClassLoader);
+        } catch (ClassNotFoundException e) {
+            log.warn("Precompiled class of script {} not found, compiling it from source", scriptName);
+            return null;
+        }
+    }
+
+    private Properties loadPrecompiledIndex() {
+        Properties index = new Properties();
+        try (InputStream indexStream = getClass().getClassLoader().getResourceAsStream(PRECOMPILED_INDEX)) {
+            if (indexStream != null) {
+                index.load(indexStream);
+            }
+        } catch (IOException e) {
+            log.warn("Could not read the index of precompiled scripts, compiling all scripts from source", e);
+            index.clear();
+        }
+        return index;
+    }
+
+    /**
+     * Checksum of a script source as recorded in the index of precompiled scripts.
+     */
+    static String checksum(String scriptText) {
+        CRC32 crc = new CRC32();
+        crc.update(scriptText.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Combines the sumInsured and premiums scripts of a risk into one script whose body calls
+     * {@code fusedRating()} of its base class {@code RatingUnitScript}. Both scripts become methods of the unit, so their own return
+     * statements keep working, and the premium method receives riskSumInsured as a BigDecimal parameter
+     * instead of through the binding.
+     */
+    private String fusedRatingSource(ScriptGeneration target, String riskType) throws IOException {
+        StringBuilder imports = new StringBuilder();
+        String sumInsuredScript = hoistImports(ratingPart(target, "sumInsured/" + riskType), imports);
+        String premiumScript = hoistImports(ratingPart(target, "premiums/" + riskType), imports);
+        return imports
+                + "return fusedRating()\n"
+                + "def ratingSumInsured() {\n"
+                + sumInsuredScript
+                + "\n}\n"
+                + "def ratingPremium(BigDecimal riskSumInsured) {\n"
+                + premiumScript
+                + "\n}\n";
+    }
+
+    /**
+     * Reads one part of a fused rating unit and checks it against the rules for standalone scripts, so it
+     * can neither define methods nor close the generated method it is placed in.
+     */
+    private String ratingPart(ScriptGeneration target, String scriptName) throws IOException {
+        String scriptText = stripPackage(readScript(target, scriptName));
+        CompilationUnit compilationUnit = new CompilationUnit(compilerConfiguration, null, target.classLoader());
+        compilationUnit.addSource(scriptName + SCRIPT_EXTENSION, scriptText);
+        compilationUnit.compile(Phases.CANONICALIZATION);
+        return scriptText;
+    }
+
+    static String stripPackage(String scriptText) {
+        return PACKAGE_DECLARATION.matcher(scriptText).replaceAll("");
+    }
+
+    private static String hoistImports(String scriptText, StringBuilder imports) {
+        Matcher matcher = IMPORT_DECLARATION.matcher(scriptText);
+        while (matcher.find()) {
+            imports.append(matcher.group().trim()).append('\n');
+        }
+        return matcher.replaceAll("");
+    }
+
+    /**
+     * Source of a script as compiled into a generation: the copy of its tariff version, if any, otherwise the
+     * deployed source.
+     */
+    private String readScript(ScriptGeneration target, String scriptName) throws IOException {
+        Path scriptFile = versionScript(target, scriptName);
+        return scriptFile != null ? Files.readString(scriptFile, StandardCharsets.UTF_8) : readScript(scriptName);
+    }
+
+    private String readScript(String scriptName) throws IOException {
+        Path scriptFile = externalScript(scriptName);
+        return scriptFile != null ? Files.readString(scriptFile, StandardCharsets.UTF_8) : readBundledScript(scriptName);
+    }
+
+    private static Path versionScript(ScriptGeneration target, String scriptName) {
+        TariffVersion tariffVersion = target.tariffVersion();
+        return tariffVersion != null && tariffVersion.scriptDir() != null
+                ? scriptFile(tariffVersion.scriptDir().toAbsolutePath().normalize(), scriptName)
+                : null;
+    }
+
+    private Path externalScript(String scriptName) {
+        return externalDir != null ? scriptFile(externalDir, scriptName) : null;
+    }
+
+    private static Path scriptFile(Path directory, String scriptName) {
+        Path scriptFile = directory.resolve(scriptName + SCRIPT_EXTENSION).normalize();
+        return scriptFile.startsWith(directory) && Files.isRegularFile(scriptFile) ? scriptFile : null;
+    }
+
+    private String readBundledScript(String scriptName) throws IOException {
+        String scriptPath = SCRIPT_LOCATION + scriptName + SCRIPT_EXTENSION;
+        try (InputStream scriptStream = getClass().getClassLoader().getResourceAsStream(scriptPath)) {
+            if (scriptStream == null) {
+                throw new IOException("Script not found: " + scriptPath);
+            }
+            return new String(scriptStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
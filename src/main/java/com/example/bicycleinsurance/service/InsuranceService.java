@@ -1,21 +1,33 @@
 package com.example.bicycleinsurance.service;
 
+import com.example.bicycleinsurance.config.RatingProperties;
 import com.example.bicycleinsurance.dto.BicycleDto;
 import com.example.bicycleinsurance.dto.PremiumResponse;
+import com.example.bicycleinsurance.dto.RiskExplanation;
 import com.example.bicycleinsurance.dto.RiskResponse;
 import com.example.bicycleinsurance.exception.CustomValidationException;
+import com.example.bicycleinsurance.exception.ScriptExecutionException;
+import com.example.bicycleinsurance.exception.ScriptTimeoutException;
 import com.example.bicycleinsurance.mapper.BicycleMapper;
 import com.example.bicycleinsurance.model.Bicycle;
 import com.example.bicycleinsurance.model.RiskType;
+import com.example.bicycleinsurance.monitoring.RatingMetrics;
+import com.example.bicycleinsurance.tariff.Tariff;
+import com.example.bicycleinsurance.tariff.TariffRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.Year;
+import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Service responsible for calculating insurance premiums for bicycles.
@@ -29,86 +41,468 @@ public class InsuranceService {
 
     private final BicycleMapper bicycleMapper;
     private final GroovyScriptEngine groovyScriptEngine;
+    private final ParallelRatingExecutor parallelRatingExecutor;
+    private final RiskRatingCache riskRatingCache;
+    private final RatingMetrics ratingMetrics;
+    private final RatingProperties ratingProperties;
+    private final TariffVersions tariffVersions;
+    private final Map<Quote, CompletableFuture<PremiumResponse>> quotesInFlight = new ConcurrentHashMap<>();
 
     /**
-     * Calculates the total insurance premium for a list of bicycles.
+     * Calculates the total insurance premium for a list of bicycles. Identical bicycles are rated once and their
+     * breakdown is repeated at every position they occur at.
      *
      * @param bicycleDtos List of BicycleDto objects representing the bicycles to calculate premiums for.
      * @return A PremiumResponse object containing the total premium and a breakdown of premiums for each bicycle.
      * @throws CustomValidationException if any of the bicycles are older than 10 years.
      */
     public PremiumResponse calculatePremium(List<BicycleDto> bicycleDtos) {
-        List<Bicycle> bicycles = bicycleDtos.stream()
-                .map(bicycleMapper::toModel)
-                .collect(Collectors.toList());
+        return calculatePremium(bicycleDtos, null);
+    }
+
+    /**
+     * Calculates the total premium as of a rating date, with the tariff version in effect on that date. Bicycle
+     * ages are counted up to the rating date. With coalescing enabled, a request identical to one being rated
+     * waits for its result instead of being rated again.
+     *
+     * @param ratingDate Date to rate as of, or null for today.
+     * @throws CustomValidationException if any of the bicycles are older than 10 years, or no tariff version is in
+     * effect on the rating date.
+     */
+    public PremiumResponse calculatePremium(List<BicycleDto> bicycleDtos, LocalDate ratingDate) {
+        RatingDate resolved = tariffVersions.resolve(ratingDate);
+        List<Bicycle> bicycles = toModels(bicycleDtos);
+        if (!ratingProperties.isCoalesce()) {
+            return calculateSampled(bicycles, resolved);
+        }
+
+        // Requests are identical when their bicycles are, in the same order, and they are rated with the same
+        // tariff and scripts. A request joins a calculation only while it is in flight, so no result outlives it
+        Quote quote = new Quote(bicycles, resolved, groovyScriptEngine.getScriptVersion(), TariffRegistry.current());
+        CompletableFuture<PremiumResponse> calculation = new CompletableFuture<>();
+        CompletableFuture<PremiumResponse> inFlight = quotesInFlight.putIfAbsent(quote, calculation);
+        if (inFlight != null) {
+            ratingMetrics.recordCoalesced();
+            return awaitCoalesced(inFlight);
+        }
+        PremiumResponse response;
+        try {
+            response = calculateSampled(bicycles, resolved);
+        } catch (RuntimeException | Error e) {
+            quotesInFlight.remove(quote, calculation);
+            calculation.completeExceptionally(e);
+            throw e;
+        }
+        quotesInFlight.remove(quote, calculation);
+        calculation.complete(response);
+        return response;
+    }
+
+    /**
+     * Calculates the premium like {@link #calculatePremium(List, LocalDate)} and explains the premium of every risk
+     * with the tariff rows and factors it was calculated from. Bypasses the rating cache, batch rating and
+     * coalescing.
+     *
+     * @param ratingDate Date to rate as of, or null for today.
+     * @throws CustomValidationException if any of the bicycles are older than 10 years, or no tariff version is in
+     * effect on the rating date.
+     */
+    public PremiumResponse explainPremium(List<BicycleDto> bicycleDtos, LocalDate ratingDate) {
+        return calculatePremium(toModels(bicycleDtos), tariffVersions.resolve(ratingDate), true);
+    }
+
+    private PremiumResponse calculateSampled(List<Bicycle> bicycles, RatingDate ratingDate) {
+        double sampleRate = ratingProperties.getTrace().getSampleRate();
+        if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            return logExplanations(calculatePremium(bicycles, ratingDate, true));
+        }
+        return calculatePremium(bicycles, ratingDate, false);
+    }
 
+    /**
+     * Waits for the result of an identical request in flight and fails like it did. The wait counts against the
+     * request budget, like rating the request would have.
+     *
+     * @throws ScriptTimeoutException if the request runs out of its budget while waiting.
+     * @throws ScriptExecutionException if the waiting thread is interrupted.
+     */
+    private PremiumResponse awaitCoalesced(CompletableFuture<PremiumResponse> inFlight) {
+        long deadline = groovyScriptEngine.requestDeadline();
+        try {
+            return deadline == 0 ? inFlight.get() : inFlight.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            // Calculations only complete exceptionally with what they threw
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw (RuntimeException) e.getCause();
+        } catch (TimeoutException e) {
+            throw new ScriptTimeoutException("The request exceeded its time budget waiting for an identical request");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScriptExecutionException("Interrupted waiting for an identical request");
+        }
+    }
+
+    private List<Bicycle> toModels(List<BicycleDto> bicycleDtos) {
+        List<Bicycle> bicycles = new ArrayList<>(bicycleDtos.size());
+        for (BicycleDto bicycleDto : bicycleDtos) {
+            bicycles.add(bicycleMapper.toModel(bicycleDto));
+        }
+        return bicycles;
+    }
+
+    private PremiumResponse calculatePremium(List<Bicycle> bicycles, RatingDate ratingDate, boolean explain) {
         log.info("Starting premium calculation for {} bicycles", bicycles.size());
+        int riskCount = 0;
+        for (Bicycle bicycle : bicycles) {
+            riskCount += bicycle.riskCount();
+        }
+        ratingMetrics.recordRequest(bicycles.size(), riskCount);
+
+        // Bicycles are equal when all their rating inputs are, including the scale of the sum insured. Distinct
+        // bicycles keep the order of first occurrence, so the first failing one is still reported first
+        Map<Bicycle, Integer> distinctIndexes = new HashMap<>();
+        List<Bicycle> distinctBicycles = new ArrayList<>();
+        int[] positions = new int[bicycles.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = distinctIndexes.computeIfAbsent(bicycles.get(i), bicycle -> {
+                distinctBicycles.add(bicycle);
+                return distinctBicycles.size() - 1;
+            });
+        }
+        ratingMetrics.recordDeduplication(bicycles.size(), distinctBicycles.size());
+
+        // The request deadline and its script generation are handed to the threads rating chunks of the request
+        long deadline = groovyScriptEngine.requestDeadline();
+        ScriptGeneration scripts = groovyScriptEngine.pin(ratingDate.tariffVersion());
+        List<RatedBicycle> ratedBicycles;
+        try {
+            ratedBicycles = ratingProperties.isBatch() && !riskRatingCache.isEnabled() && !explain
+                    ? parallelRatingExecutor.mapChunks(distinctBicycles,
+                            chunk -> ScriptWatchdog.withinRequest(deadline, () -> rateBatch(chunk, ratingDate, scripts)))
+                    : parallelRatingExecutor.mapChunks(distinctBicycles,
+                            chunk -> ScriptWatchdog.withinRequest(deadline, () -> rateBicycles(chunk, ratingDate, scripts, explain)));
+        } finally {
+            scripts.release();
+        }
 
-        List<PremiumResponse.ObjectPremium> objectPremiums = new ArrayList<>();
-        BigDecimal totalPremium = BigDecimal.ZERO;
+        List<PremiumResponse.ObjectPremium> objectPremiums = new ArrayList<>(positions.length);
+        PremiumSum totalPremium = new PremiumSum(isFixedPoint());
+        for (int position : positions) {
+            RatedBicycle ratedBicycle = ratedBicycles.get(position);
+            objectPremiums.add(ratedBicycle.objectPremium());
+            totalPremium.add(ratedBicycle.premium());
+        }
+
+        return PremiumResponse.builder()
+                .objects(objectPremiums)
+                .premium(totalPremium.rounded())
+                .build();
+    }
+
+    /**
+     * Calculates the premium breakdown for a single bicycle.
+     *
+     * @param bicycleDto The bicycle to calculate the premium for.
+     * @return The premium breakdown of the bicycle.
+     * @throws CustomValidationException if the bicycle is older than 10 years.
+     */
+    public PremiumResponse.ObjectPremium calculateObjectPremium(BicycleDto bicycleDto) {
+        return calculateObjectPremium(bicycleDto, ratingDate());
+    }
+
+    /**
+     * Calculates the premium breakdown for a bicycle of a stream, as of the rating date of the stream.
+     *
+     * @param ratingDate Rating date from {@link #ratingDate()}, resolved once for the whole stream.
+     * @throws CustomValidationException if the bicycle is older than 10 years.
+     */
+    public PremiumResponse.ObjectPremium calculateObjectPremium(BicycleDto bicycleDto, RatingDate ratingDate) {
+        Bicycle bicycle = bicycleMapper.toModel(bicycleDto);
+        ScriptGeneration scripts = groovyScriptEngine.pin(ratingDate.tariffVersion());
+        try {
+            return ScriptWatchdog.withinRequest(groovyScriptEngine.requestDeadline(),
+                    () -> rateBicycle(bicycle, ratingDate, scripts)).objectPremium();
+        } finally {
+            scripts.release();
+        }
+    }
+
+    /**
+     * Resolves today's rating date for a stream or portfolio job, to rate all of its bicycles with.
+     *
+     * @throws CustomValidationException if no tariff version is in effect today.
+     */
+    public RatingDate ratingDate() {
+        return tariffVersions.resolve(null);
+    }
+
+    /**
+     * Rates one bicycle of a portfolio, keeping the unrounded object premium for the portfolio total and
+     * recording the tariff lookups and scripts it depends on. Bypasses the rating cache, whose results
+     * carry no dependencies.
+     *
+     * @param ratingDate Rating date from {@link #ratingDate()}, resolved once for the job or re-rating.
+     * @throws CustomValidationException if the bicycle is older than 10 years.
+     */
+    RatedBicycle rate(BicycleDto bicycleDto, RatingDate ratingDate, RatingDependencyRecorder recorder) {
+        Bicycle bicycle = bicycleMapper.toModel(bicycleDto);
+        ScriptGeneration scripts = groovyScriptEngine.pin(ratingDate.tariffVersion());
+        try {
+            return rateBicycle(bicycle, ratingDate, scripts, false, recorder, false);
+        } finally {
+            scripts.release();
+        }
+    }
+
+    /**
+     * Checksum of the current source of a rating script, as recorded for the dependencies of a rating.
+     */
+    String scriptChecksum(String scriptName) {
+        return groovyScriptEngine.getScriptChecksum(scriptName);
+    }
+
+    /**
+     * Rates a bicycle like {@link #calculateObjectPremium} but always runs the scripts, bypassing the rating cache.
+     * Used to warm up the rating path without filling the cache with synthetic bicycles.
+     */
+    PremiumResponse.ObjectPremium rateUncached(BicycleDto bicycleDto) {
+        Bicycle bicycle = bicycleMapper.toModel(bicycleDto);
+        RatingDate ratingDate = tariffVersions.resolve(null);
+        ScriptGeneration scripts = groovyScriptEngine.pin(ratingDate.tariffVersion());
+        try {
+            return rateBicycle(bicycle, ratingDate, scripts, false, null, false).objectPremium();
+        } finally {
+            scripts.release();
+        }
+    }
 
+    private List<RatedBicycle> rateBicycles(List<Bicycle> bicycles, RatingDate ratingDate, ScriptGeneration scripts,
+                                            boolean explain) {
+        List<RatedBicycle> ratedBicycles = new ArrayList<>(bicycles.size());
         for (Bicycle bicycle : bicycles) {
-            log.debug("Calculating premium for bicycle: {}", bicycle);
+            if (ParallelRatingExecutor.isAbandoned()) {
+                break;
+            }
+            ratedBicycles.add(explain
+                    ? rateBicycle(bicycle, ratingDate, scripts, false, null, true)
+                    : rateBicycle(bicycle, ratingDate, scripts));
+        }
+        return ratedBicycles;
+    }
+
+    /**
+     * Calculates the premium of a single bicycle across all of its risks.
+     *
+     * @param bicycle The bicycle to rate.
+     * @return The per-object breakdown together with the unrounded object premium.
+     * @throws CustomValidationException if the bicycle is older than 10 years.
+     */
+    private RatedBicycle rateBicycle(Bicycle bicycle, RatingDate ratingDate, ScriptGeneration scripts) {
+        return rateBicycle(bicycle, ratingDate, scripts, riskRatingCache.isEnabled(), null, false);
+    }
 
-            int currentYear = Year.now().getValue();
-            int bicycleAge = currentYear - bicycle.getManufactureYear();
+    /**
+     * @param ratingDate Rating date of the request, resolved once for all of its bicycles.
+     * @param scripts Script generation the request pinned, so all of its risks are rated with the same scripts.
+     * @param cached Whether risk ratings are looked up in the rating cache.
+     * @param recorder Recorder of the dependencies of the rating, or null.
+     * @param explain Whether every risk is rated with its own trace and explained in the breakdown.
+     */
+    private RatedBicycle rateBicycle(Bicycle bicycle, RatingDate ratingDate, ScriptGeneration scripts, boolean cached,
+                                     RatingDependencyRecorder recorder, boolean explain) {
+        log.debug("Calculating premium for bicycle: {}", bicycle);
 
-            if (bicycleAge > 10) {
-                throw new CustomValidationException("Bicycle must be newer than 10 years");
+        int bicycleAge = ratingDate.year() - bicycle.manufactureYear();
+
+        if (bicycleAge > 10) {
+            throw new CustomValidationException("Bicycle must be newer than 10 years");
+        }
+
+        RiskRating[] riskRatings = new RiskRating[bicycle.riskCount()];
+        RiskExplanation[] explanations = explain ? new RiskExplanation[riskRatings.length] : null;
+        long scriptVersion = scripts.version();
+        Tariff tariff = cached ? ratingDate.tariff() : null;
+        for (int i = 0; i < riskRatings.length; i++) {
+            RiskType riskType = bicycle.risk(i);
+            if (explain) {
+                RatingTrace trace = new RatingTrace();
+                riskRatings[i] = rateRisk(bicycle, riskType, bicycleAge, scripts, trace);
+                explanations[i] = trace.explanation(scriptVersion, ratingDate.tariffEffectiveFrom());
+                continue;
             }
+            riskRatings[i] = cached
+                    ? riskRatingCache.get(new RiskRatingCache.Key(bicycle.make(), bicycle.model(), bicycleAge,
+                            bicycle.sumInsured(), riskType.name(), riskRatings.length, scriptVersion, tariff),
+                            key -> rateRisk(bicycle, riskType, bicycleAge, scripts, null))
+                    : rateRisk(bicycle, riskType, bicycleAge, scripts, recorder);
+        }
+        return ratedBicycle(bicycle, riskRatings, explanations);
+    }
 
-            BigDecimal objectPremium = BigDecimal.ZERO;
-            List<RiskResponse> riskResponses = new ArrayList<>();
-
-            for (RiskType riskType : bicycle.getRisks()) {
-                Map<String, Object> variables = new HashMap<>();
-                variables.put("bicycle", bicycle);
-                variables.put("riskType", riskType.name());
-                variables.put("bicycleAge", bicycleAge);
-                variables.put("sumInsured", bicycle.getSumInsured());
-                variables.put("make", bicycle.getMake());
-                variables.put("model", bicycle.getModel());
-                variables.put("riskCount", bicycle.getRisks().size());
-
-                String sumInsuredScriptName = "sumInsured/" + riskType.name();
-                BigDecimal riskSumInsured = new BigDecimal(groovyScriptEngine.executeScript(sumInsuredScriptName, variables).toString());
-                variables.put("riskSumInsured", riskSumInsured);
-
-                String premiumScriptName = "premiums/" + riskType.name();
-                BigDecimal riskPremium = new BigDecimal(groovyScriptEngine.executeScript(premiumScriptName, variables).toString());
-
-                objectPremium = objectPremium.add(riskPremium);
-
-                riskResponses.add(RiskResponse.builder()
-                        .riskType(riskType.name())
-                        .sumInsured(riskSumInsured.setScale(2, RoundingMode.HALF_UP))
-                        .premium(riskPremium.setScale(2, RoundingMode.HALF_UP))
-                        .build());
+    /**
+     * Rates a chunk of bicycles per risk type: every bicycle with a risk becomes a row of the batch of that risk
+     * type, and each batch is rated in one script execution. Fails like rating the bicycles one by one, with the
+     * first failing bicycle in order.
+     *
+     * @throws CustomValidationException if a bicycle is older than 10 years.
+     */
+    private List<RatedBicycle> rateBatch(List<Bicycle> bicycles, RatingDate ratingDate, ScriptGeneration scripts) {
+        int currentYear = ratingDate.year();
+        Map<RiskType, RatingBatch> batches = new EnumMap<>(RiskType.class);
+        int[][] rows = new int[bicycles.size()][];
+        // Bicycles after the first invalid one are never reported, so they are not rated either
+        int valid = 0;
+        for (; valid < bicycles.size(); valid++) {
+            Bicycle bicycle = bicycles.get(valid);
+            log.debug("Calculating premium for bicycle: {}", bicycle);
+            int bicycleAge = currentYear - bicycle.manufactureYear();
+            if (bicycleAge > 10) {
+                break;
             }
+            rows[valid] = new int[bicycle.riskCount()];
+            for (int i = 0; i < rows[valid].length; i++) {
+                RatingBatch batch = batches.computeIfAbsent(bicycle.risk(i),
+                        riskType -> new RatingBatch(riskType.name(), bicycles.size(), isFixedPoint()));
+                rows[valid][i] = batch.add(bicycle, bicycleAge);
+            }
+        }
 
-            totalPremium = totalPremium.add(objectPremium);
+        for (RatingBatch batch : batches.values()) {
+            if (ParallelRatingExecutor.isAbandoned()) {
+                return List.of();
+            }
+            groovyScriptEngine.executeBatch(scripts, batch);
+        }
 
-            PremiumResponse.Attributes attributes = PremiumResponse.Attributes.builder()
-                    .MAKE(bicycle.getMake())
-                    .MODEL(bicycle.getModel())
-                    .MANUFACTURE_YEAR(String.valueOf(bicycle.getManufactureYear()))
-                    .build();
+        List<RatedBicycle> ratedBicycles = new ArrayList<>(bicycles.size());
+        for (int b = 0; b < bicycles.size(); b++) {
+            if (b == valid) {
+                throw new CustomValidationException("Bicycle must be newer than 10 years");
+            }
+            Bicycle bicycle = bicycles.get(b);
+            RiskRating[] riskRatings = new RiskRating[bicycle.riskCount()];
+            for (int i = 0; i < riskRatings.length; i++) {
+                RatingBatch batch = batches.get(bicycle.risk(i));
+                int row = rows[b][i];
+                if (batch.failure(row) != null) {
+                    throw batch.failure(row);
+                }
+                riskRatings[i] = new RiskRating(batch.riskSumInsured(row), batch.premium(row));
+            }
+            ratedBicycles.add(ratedBicycle(bicycle, riskRatings, null));
+        }
+        return ratedBicycles;
+    }
 
-            PremiumResponse.ObjectPremium objectPremiumResponse = PremiumResponse.ObjectPremium.builder()
-                    .attributes(attributes)
-                    .coverageType(bicycle.getCoverage())
-                    .sumInsured(bicycle.getSumInsured())
-                    .premium(objectPremium.setScale(2, RoundingMode.HALF_UP))
-                    .risks(riskResponses)
-                    .build();
+    /**
+     * Builds the premium breakdown of a bicycle from the ratings of its risks, in the order of its risks.
+     *
+     * @param explanations Explanations of the risks in the same order, or null.
+     */
+    private RatedBicycle ratedBicycle(Bicycle bicycle, RiskRating[] riskRatings, RiskExplanation[] explanations) {
+        PremiumSum objectPremium = new PremiumSum(isFixedPoint());
+        List<RiskResponse> riskResponses = new ArrayList<>(riskRatings.length);
+        for (int i = 0; i < riskRatings.length; i++) {
+            RiskType riskType = bicycle.risk(i);
+            RiskRating riskRating = riskRatings[i];
+            objectPremium.add(riskRating.premium());
 
-            objectPremiums.add(objectPremiumResponse);
+            riskResponses.add(RiskResponse.builder()
+                    .riskType(riskType.name())
+                    .sumInsured(riskRating.sumInsured().setScale(2, RoundingMode.HALF_UP))
+                    .premium(riskRating.premium().setScale(2, RoundingMode.HALF_UP))
+                    .explanation(explanations != null ? explanations[i] : null)
+                    .build());
         }
 
-        return PremiumResponse.builder()
-                .objects(objectPremiums)
-                .premium(totalPremium.setScale(2, RoundingMode.HALF_UP))
+        PremiumResponse.Attributes attributes = PremiumResponse.Attributes.builder()
+                .MAKE(bicycle.make())
+                .MODEL(bicycle.model())
+                .MANUFACTURE_YEAR(String.valueOf(bicycle.manufactureYear()))
                 .build();
+
+        PremiumResponse.ObjectPremium objectPremiumResponse = PremiumResponse.ObjectPremium.builder()
+                .attributes(attributes)
+                .coverageType(bicycle.coverage())
+                .sumInsured(bicycle.sumInsured())
+                .premium(objectPremium.rounded())
+                .risks(riskResponses)
+                .build();
+
+        return new RatedBicycle(objectPremiumResponse, objectPremium.value());
+    }
+
+    /**
+     * Runs the sum insured and premium scripts of one risk, as one fused unit if the engine is configured so.
+     */
+    private RiskRating rateRisk(Bicycle bicycle, RiskType riskType, int bicycleAge, ScriptGeneration scripts,
+                                RatingObserver observer) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("bicycle", bicycle);
+        variables.put("riskType", riskType.name());
+        variables.put("bicycleAge", bicycleAge);
+        variables.put("sumInsured", bicycle.sumInsured());
+        variables.put("make", bicycle.make());
+        variables.put("model", bicycle.model());
+        variables.put("riskCount", bicycle.riskCount());
+        if (isFixedPoint()) {
+            variables.put(FixedPoint.BINDING_VARIABLE, Boolean.TRUE);
+        }
+        String sumInsuredScriptName = "sumInsured/" + riskType.name();
+        String premiumScriptName = "premiums/" + riskType.name();
+        if (observer != null) {
+            variables.put(RatingObserver.BINDING_VARIABLE, observer);
+            observer.recordScript(sumInsuredScriptName);
+            observer.recordScript(premiumScriptName);
+        }
+
+        if (groovyScriptEngine.isFusedRating()) {
+            return groovyScriptEngine.executeRating(scripts, riskType.name(), variables);
+        }
+
+        BigDecimal riskSumInsured = new BigDecimal(groovyScriptEngine.executeScript(scripts, sumInsuredScriptName, variables).toString());
+        variables.put("riskSumInsured", riskSumInsured);
+
+        BigDecimal riskPremium = new BigDecimal(groovyScriptEngine.executeScript(scripts, premiumScriptName, variables).toString());
+
+        return new RiskRating(riskSumInsured, riskPremium);
+    }
+
+    /**
+     * Logs the explanations of a sampled request and removes them from the response, which its client did not
+     * ask to be explained. Identical bicycles share their breakdown, so each is logged once.
+     */
+    private PremiumResponse logExplanations(PremiumResponse response) {
+        for (PremiumResponse.ObjectPremium objectPremium : response.getObjects()) {
+            for (RiskResponse risk : objectPremium.getRisks()) {
+                if (risk.getExplanation() != null) {
+                    log.info("Premium trace of {} {} ({}), {}: premium {}, {}", objectPremium.getAttributes().getMAKE(),
+                            objectPremium.getAttributes().getMODEL(), objectPremium.getAttributes().getMANUFACTURE_YEAR(),
+                            risk.getRiskType(), risk.getPremium(), risk.getExplanation());
+                    risk.setExplanation(null);
+                }
+            }
+        }
+        return response;
+    }
+
+    private boolean isFixedPoint() {
+        return ratingProperties.getArithmetic() == RatingProperties.Arithmetic.FIXED_POINT;
+    }
+
+    /**
+     * The premium breakdown of a bicycle together with its unrounded premium.
+     */
+    record RatedBicycle(PremiumResponse.ObjectPremium objectPremium, BigDecimal premium) {
+    }
+
+    /**
+     * Everything the premium of a calculate request depends on: its normalized bicycles, the rating date with its
+     * tariff version, the script version and the deployed tariff.
+     */
+    private record Quote(List<Bicycle> bicycles, RatingDate ratingDate, long scriptVersion, Tariff tariff) {
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.RatingProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Rates the items of one request either on the calling thread or, for large requests, split into
+ * chunks on a bounded fork-join pool. Results always come back in input order, and a failure is
+ * reported for the first failing item in that order, exactly like a sequential loop. Once a chunk
+ * fails, the chunks after it stop rating, since their results and failures are never reported.
+ */
+@Component
+@Slf4j
+public class ParallelRatingExecutor {
+
+    /** The chunk rated on the current thread, while it is rated. */
+    private static final ThreadLocal<Chunk> CURRENT_CHUNK = new ThreadLocal<>();
+
+    private final RatingProperties.Parallel properties;
+    private final ForkJoinPool pool;
+
+    public ParallelRatingExecutor(RatingProperties ratingProperties) {
+        this.properties = ratingProperties.getParallel();
+        this.pool = properties.isEnabled() ? new ForkJoinPool(properties.getParallelism()) : null;
+        if (pool != null) {
+            log.info("Parallel rating enabled with parallelism {}, threshold {} and chunk size {}",
+                    properties.getParallelism(), properties.getThreshold(), properties.getChunkSize());
+        }
+    }
+
+    public <T, R> List<R> map(List<T> items, Function<T, R> rater) {
+        return mapChunks(items, chunk -> {
+            List<R> results = new ArrayList<>(chunk.size());
+            for (T item : chunk) {
+                if (isAbandoned()) {
+                    break;
+                }
+                results.add(rater.apply(item));
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Like {@link #map}, but hands whole chunks to the rater, which returns the results of its chunk in order.
+     * Small requests are rated as one chunk on the calling thread. A rater may return early, with only some of
+     * its results, once {@link #isAbandoned()}.
+     */
+    public <T, R> List<R> mapChunks(List<T> items, Function<List<T>, List<R>> rater) {
+        if (pool == null || items.size() < properties.getThreshold()) {
+            return rater.apply(items);
+        }
+
+        Object[] results = new Object[items.size()];
+        AtomicInteger firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        int chunks = (items.size() + chunkSize - 1) / chunkSize;
+        List<Future<?>> futures = new ArrayList<>(chunks - 1);
+        for (int chunk = 1; chunk < chunks; chunk++) {
+            Chunk current = new Chunk(chunk, firstFailure);
+            int from = chunk * chunkSize;
+            int to = Math.min(items.size(), from + chunkSize);
+            futures.add(pool.submit(() -> rateChunk(current, items, rater, results, from, to)));
+        }
+
+        try {
+            // The calling thread rates the first chunk instead of idling
+            rateChunk(new Chunk(0, firstFailure), items, rater, results, 0, Math.min(items.size(), chunkSize));
+            for (Future<?> future : futures) {
+                await(future);
+            }
+        } catch (RuntimeException e) {
+            futures.forEach(future -> future.cancel(false));
+            throw e;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<R> ordered = (List<R>) Arrays.asList(results);
+        return ordered;
+    }
+
+    /**
+     * Whether the chunk rated on the current thread can stop, because an earlier chunk of its request failed and
+     * that failure is the one reported. Chunk raters check this between bicycles.
+     */
+    static boolean isAbandoned() {
+        Chunk chunk = CURRENT_CHUNK.get();
+        return chunk != null && chunk.isAbandoned();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private static <T, R> void rateChunk(Chunk chunk, List<T> items, Function<List<T>, List<R>> rater,
+                                         Object[] results, int from, int to) {
+        if (chunk.isAbandoned()) {
+            return;
+        }
+        Chunk previous = CURRENT_CHUNK.get();
+        CURRENT_CHUNK.set(chunk);
+        try {
+            List<R> chunkResults = rater.apply(items.subList(from, to));
+            // An abandoned chunk may have stopped early, its results are never returned
+            if (!chunk.isAbandoned()) {
+                for (int i = from; i < to; i++) {
+                    results[i] = chunkResults.get(i - from);
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            chunk.failed();
+            throw e;
+        } finally {
+            CURRENT_CHUNK.set(previous);
+        }
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rating bicycles", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * A chunk of a request, sharing the index of the first chunk of the request that failed so far.
+     */
+    private record Chunk(int index, AtomicInteger firstFailure) {
+
+        boolean isAbandoned() {
+            return firstFailure.get() < index;
+        }
+
+        void failed() {
+            firstFailure.accumulateAndGet(index, Math::min);
+        }
+    }
+}
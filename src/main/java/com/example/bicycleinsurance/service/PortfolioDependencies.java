@@ -0,0 +1,107 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.tariff.Tariff;
+import com.example.bicycleinsurance.tariff.TariffLookup;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * The tariff lookups and scripts the quotes of a portfolio depend on. Each distinct dependency is stored once
+ * with the value the rating saw, the tariff row returned by a lookup or the checksum of a script, and each quote
+ * keeps the ids of its dependencies. After a tariff or script change every distinct dependency is resolved once
+ * more, and only quotes depending on one whose value differs have to be rated again.
+ *
+ * <p>Not thread safe; used by the job thread that rates the portfolio.
+ */
+final class PortfolioDependencies {
+
+    private final Map<Object, Integer> ids = new HashMap<>();
+    private final List<Object> dependencies = new ArrayList<>();
+    private final List<Object> values = new ArrayList<>();
+    private final int[][] quoteDependencies;
+
+    PortfolioDependencies(int quotes) {
+        this.quoteDependencies = new int[quotes][];
+    }
+
+    /**
+     * Stores the dependencies of a quote. A dependency seen before keeps the value first recorded for it, so a
+     * quote rated against a newer value is at worst rated once more than needed.
+     *
+     * @param scriptChecksum Checksum of the current source of a script.
+     */
+    void record(int quote, RatingDependencyRecorder recorder, Function<String, String> scriptChecksum) {
+        int[] quoteIds = new int[recorder.lookups().size() + recorder.scripts().size()];
+        int i = 0;
+        for (Map.Entry<TariffLookup, Object> lookup : recorder.lookups().entrySet()) {
+            quoteIds[i++] = id(lookup.getKey(), lookup.getValue());
+        }
+        for (String scriptName : recorder.scripts()) {
+            Integer id = ids.get(scriptName);
+            quoteIds[i++] = id != null ? id : id(scriptName, scriptChecksum.apply(scriptName));
+        }
+        quoteDependencies[quote] = quoteIds;
+    }
+
+    /**
+     * Resolves every dependency against the given tariff and scripts.
+     *
+     * @return The ids of the dependencies whose value differs from the stored one.
+     */
+    BitSet changed(Tariff tariff, Function<String, String> scriptChecksum) {
+        BitSet changed = new BitSet(dependencies.size());
+        for (int id = 0; id < dependencies.size(); id++) {
+            if (!Objects.equals(values.get(id), resolve(id, tariff, scriptChecksum))) {
+                changed.set(id);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Stores the current values of changed dependencies once the affected quotes were rated again. Until then
+     * a failed re-rating finds the same changes the next time.
+     */
+    void update(BitSet changed, Tariff tariff, Function<String, String> scriptChecksum) {
+        for (int id = changed.nextSetBit(0); id >= 0; id = changed.nextSetBit(id + 1)) {
+            values.set(id, resolve(id, tariff, scriptChecksum));
+        }
+    }
+
+    boolean isAffected(int quote, BitSet changed) {
+        for (int id : quoteDependencies[quote]) {
+            if (changed.get(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int size() {
+        return dependencies.size();
+    }
+
+    private Object resolve(int id, Tariff tariff, Function<String, String> scriptChecksum) {
+        Object dependency = dependencies.get(id);
+        return dependency instanceof TariffLookup lookup
+                ? lookup.resolve(tariff)
+                : scriptChecksum.apply((String) dependency);
+    }
+
+    private int id(Object dependency, Object value) {
+        Integer id = ids.get(dependency);
+        if (id == null) {
+            id = dependencies.size();
+            ids.put(dependency, id);
+            dependencies.add(dependency);
+            values.add(value);
+        }
+        return id;
+    }
+}
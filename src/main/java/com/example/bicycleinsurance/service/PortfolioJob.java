@@ -0,0 +1,281 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.dto.BicycleDto;
+import com.example.bicycleinsurance.dto.PortfolioJobChange;
+import com.example.bicycleinsurance.dto.PortfolioJobResult;
+import com.example.bicycleinsurance.dto.PortfolioJobStatus;
+import com.example.bicycleinsurance.dto.PortfolioJobStatus.State;
+import com.example.bicycleinsurance.dto.PortfolioReRating;
+import com.example.bicycleinsurance.exception.CustomValidationException;
+import com.example.bicycleinsurance.exception.GlobalExceptionHandler.ErrorResponse;
+import com.example.bicycleinsurance.exception.ScriptExecutionException;
+import com.example.bicycleinsurance.tariff.Tariff;
+import com.example.bicycleinsurance.tariff.TariffRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One portfolio rated on a job worker thread. Bicycles are rated in portfolio order and each result is
+ * published before the processed count is increased, so readers see a growing, consistent prefix of results
+ * without locking. A bicycle that fails validation or its scripts is recorded as an error result; any other
+ * failure ends the job.
+ *
+ * <p>A completed job keeps its portfolio and the tariff lookups and scripts each bicycle depended on, so it can
+ * be re-rated after a tariff or script change: only the bicycles depending on a changed row or script are rated
+ * again, the others keep their results. Results are replaced in place while a re-rating runs; its changes and the
+ * new total premium are published when it completes.
+ */
+@Slf4j
+final class PortfolioJob implements Runnable {
+
+    private final String id;
+    private final InsuranceService insuranceService;
+    private final boolean fixedPoint;
+    private final PortfolioJobResult[] results;
+    private final BigDecimal[] premiums;
+    private final PortfolioDependencies dependencies;
+    private final Instant submittedAt = Instant.now();
+    private List<BicycleDto> bicycles;
+
+    private volatile State state = State.QUEUED;
+    private volatile boolean cancelRequested;
+    private volatile int processed;
+    private volatile int failed;
+    private volatile BigDecimal totalPremium;
+    private volatile String error;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile PortfolioReRating reRating;
+    private volatile List<PortfolioJobChange> changes = List.of();
+
+    PortfolioJob(String id, List<BicycleDto> bicycles, InsuranceService insuranceService, boolean fixedPoint) {
+        this.id = id;
+        this.bicycles = bicycles;
+        this.insuranceService = insuranceService;
+        this.fixedPoint = fixedPoint;
+        this.results = new PortfolioJobResult[bicycles.size()];
+        this.premiums = new BigDecimal[bicycles.size()];
+        this.dependencies = new PortfolioDependencies(bicycles.size());
+    }
+
+    @Override
+    public void run() {
+        if (cancelRequested) {
+            finish(State.CANCELLED);
+            return;
+        }
+        startedAt = Instant.now();
+        state = State.RUNNING;
+        log.info("Portfolio job {} started rating {} bicycles", id, results.length);
+        try {
+            RatingDate ratingDate = insuranceService.ratingDate();
+            for (int i = 0; i < results.length; i++) {
+                if (cancelRequested) {
+                    finish(State.CANCELLED);
+                    return;
+                }
+                results[i] = rate(i, bicycles.get(i), ratingDate);
+                if (results[i].getError() != null) {
+                    failed++;
+                }
+                processed = i + 1;
+            }
+            totalPremium = totalPremium();
+            finish(State.COMPLETED);
+        } catch (RuntimeException e) {
+            log.error("Portfolio job {} failed after {} bicycles", id, processed, e);
+            error = e.getMessage();
+            finish(State.FAILED);
+        }
+    }
+
+    /**
+     * Re-rates the bicycles of a completed job that depend on a tariff row or script that changed since they
+     * were rated, against the tariff and scripts installed now.
+     */
+    void reRate() {
+        Instant reRatingStartedAt = Instant.now();
+        reRating = PortfolioReRating.builder().state(State.RUNNING).startedAt(reRatingStartedAt).build();
+        try {
+            Tariff tariff = TariffRegistry.current();
+            RatingDate ratingDate = insuranceService.ratingDate();
+            BitSet changedDependencies = dependencies.changed(tariff, insuranceService::scriptChecksum);
+            List<PortfolioJobChange> jobChanges = new ArrayList<>();
+            int reRated = 0;
+            if (!changedDependencies.isEmpty()) {
+                for (int i = 0; i < results.length; i++) {
+                    if (dependencies.isAffected(i, changedDependencies)) {
+                        PortfolioJobResult previous = results[i];
+                        PortfolioJobResult current = rate(i, bicycles.get(i), ratingDate);
+                        results[i] = current;
+                        reRated++;
+                        if (!Objects.equals(previous.getObject(), current.getObject())
+                                || !Objects.equals(previous.getError(), current.getError())) {
+                            jobChanges.add(PortfolioJobChange.builder().index(i).previous(previous).current(current).build());
+                        }
+                    }
+                }
+                dependencies.update(changedDependencies, tariff, insuranceService::scriptChecksum);
+            }
+
+            BigDecimal previousPremium = totalPremium;
+            failed = (int) Arrays.stream(results).filter(result -> result.getError() != null).count();
+            totalPremium = totalPremium();
+            changes = List.copyOf(jobChanges);
+            reRating = PortfolioReRating.builder()
+                    .state(State.COMPLETED)
+                    .dependencies(dependencies.size())
+                    .changedDependencies(changedDependencies.cardinality())
+                    .reRated(reRated)
+                    .changed(jobChanges.size())
+                    .previousPremium(previousPremium)
+                    .premium(totalPremium)
+                    .startedAt(reRatingStartedAt)
+                    .finishedAt(Instant.now())
+                    .build();
+            log.info("Portfolio job {} re-rated {} of {} bicycles, {} changed, {} of {} dependencies changed",
+                    id, reRated, results.length, jobChanges.size(), changedDependencies.cardinality(), dependencies.size());
+        } catch (RuntimeException e) {
+            log.error("Re-rating of portfolio job {} failed", id, e);
+            reRating = PortfolioReRating.builder()
+                    .state(State.FAILED)
+                    .error(e.getMessage())
+                    .startedAt(reRatingStartedAt)
+                    .finishedAt(Instant.now())
+                    .build();
+        }
+    }
+
+    /**
+     * Queues a re-rating of a completed job.
+     *
+     * @return The previous re-rating, to restore if the re-rating cannot be queued.
+     * @throws CustomValidationException if the job did not complete or is being re-rated.
+     */
+    synchronized PortfolioReRating queueReRating() {
+        PortfolioReRating previous = reRating;
+        if (state != State.COMPLETED || (previous != null && !previous.getState().isFinished())) {
+            throw new CustomValidationException("Only completed portfolio jobs that are not being re-rated can be re-rated");
+        }
+        reRating = PortfolioReRating.builder().state(State.QUEUED).build();
+        return previous;
+    }
+
+    void restoreReRating(PortfolioReRating previous) {
+        reRating = previous;
+    }
+
+    private PortfolioJobResult rate(int index, BicycleDto bicycle, RatingDate ratingDate) {
+        RatingDependencyRecorder recorder = new RatingDependencyRecorder();
+        try {
+            InsuranceService.RatedBicycle rated = insuranceService.rate(bicycle, ratingDate, recorder);
+            premiums[index] = rated.premium();
+            return PortfolioJobResult.builder().index(index).object(rated.objectPremium()).build();
+        } catch (CustomValidationException e) {
+            return failedResult(index, new ErrorResponse("VALIDATION_ERROR", e.getMessage()));
+        } catch (ScriptExecutionException e) {
+            return failedResult(index, new ErrorResponse("SCRIPT_EXECUTION_ERROR", e.getMessage()));
+        } finally {
+            dependencies.record(index, recorder, insuranceService::scriptChecksum);
+        }
+    }
+
+    private PortfolioJobResult failedResult(int index, ErrorResponse error) {
+        premiums[index] = null;
+        return PortfolioJobResult.builder().index(index).error(error).build();
+    }
+
+    private BigDecimal totalPremium() {
+        PremiumSum premium = new PremiumSum(fixedPoint);
+        for (BigDecimal objectPremium : premiums) {
+            if (objectPremium != null) {
+                premium.add(objectPremium);
+            }
+        }
+        return premium.rounded();
+    }
+
+    /**
+     * Asks the job to stop before its next bicycle. A queued job is cancelled once it is removed from the queue
+     * or reaches a worker.
+     */
+    void cancel() {
+        cancelRequested = true;
+    }
+
+    /**
+     * Marks a job that was removed from the queue before it started as cancelled.
+     */
+    void cancelQueued() {
+        finish(State.CANCELLED);
+    }
+
+    private void finish(State finalState) {
+        // Only a completed portfolio can be re-rated, the others keep just their results
+        if (finalState != State.COMPLETED) {
+            bicycles = null;
+        }
+        finishedAt = Instant.now();
+        state = finalState;
+        log.info("Portfolio job {} {} after {} of {} bicycles", id, finalState, processed, results.length);
+    }
+
+    String id() {
+        return id;
+    }
+
+    boolean isExpired(Instant now, Duration retention) {
+        Instant finished = finishedAt;
+        PortfolioReRating currentReRating = reRating;
+        return state.isFinished() && finished != null && finished.plus(retention).isBefore(now)
+                && (currentReRating == null || currentReRating.getState().isFinished());
+    }
+
+    PortfolioJobStatus status() {
+        State currentState = state;
+        return PortfolioJobStatus.builder()
+                .id(id)
+                .state(currentState)
+                .total(results.length)
+                .processed(processed)
+                .failed(failed)
+                .premium(currentState == State.COMPLETED ? totalPremium : null)
+                .error(error)
+                .submittedAt(submittedAt)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .reRating(reRating)
+                .build();
+    }
+
+    /**
+     * Results [from, to) of those processed so far.
+     */
+    List<PortfolioJobResult> results(int from, int to) {
+        int available = processed;
+        return from >= available ? List.of() : Arrays.asList(Arrays.copyOfRange(results, from, Math.min(to, available)));
+    }
+
+    /**
+     * Changes found by the last completed re-rating.
+     */
+    List<PortfolioJobChange> changes() {
+        return changes;
+    }
+
+    int processed() {
+        return processed;
+    }
+
+    State state() {
+        return state;
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.PortfolioJobProperties;
+import com.example.bicycleinsurance.config.RatingProperties;
+import com.example.bicycleinsurance.dto.BicycleDto;
+import com.example.bicycleinsurance.dto.PortfolioJobChange;
+import com.example.bicycleinsurance.dto.PortfolioJobChangePage;
+import com.example.bicycleinsurance.dto.PortfolioJobPage;
+import com.example.bicycleinsurance.dto.PortfolioJobStatus;
+import com.example.bicycleinsurance.dto.PortfolioReRating;
+import com.example.bicycleinsurance.exception.CustomValidationException;
+import com.example.bicycleinsurance.exception.JobCapacityExceededException;
+import com.example.bicycleinsurance.exception.JobNotFoundException;
+import com.example.bicycleinsurance.tariff.TariffChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rates whole portfolios asynchronously. Jobs run one per worker thread on a pool bounded by
+ * {@code insurance.jobs.max-concurrent-jobs}, with a bounded queue in front of it; when both are full new
+ * submissions are rejected instead of piling up, which is the backpressure towards bulk clients. Interactive
+ * requests never wait for jobs, as they run on the web threads and not on this pool.
+ *
+ * <p>Jobs and their results are kept in memory until {@code insurance.jobs.retention} after they finished.
+ * Completed jobs can be re-rated after a tariff or script change, on request or, with
+ * {@code insurance.jobs.re-rate-on-tariff-change}, whenever a changed tariff is installed; re-ratings share the
+ * workers and the queue with new jobs.
+ */
+@Service
+@Slf4j
+public class PortfolioJobService {
+
+    private final InsuranceService insuranceService;
+    private final RatingProperties ratingProperties;
+    private final PortfolioJobProperties properties;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, PortfolioJob> jobs = new ConcurrentHashMap<>();
+
+    public PortfolioJobService(InsuranceService insuranceService, RatingProperties ratingProperties,
+                               PortfolioJobProperties properties) {
+        this.insuranceService = insuranceService;
+        this.ratingProperties = ratingProperties;
+        this.properties = properties;
+
+        int workers = Math.max(1, properties.getMaxConcurrentJobs());
+        BlockingQueue<Runnable> queue = properties.getMaxQueuedJobs() > 0
+                ? new ArrayBlockingQueue<>(properties.getMaxQueuedJobs())
+                : new SynchronousQueue<>();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, queue, runnable -> {
+            Thread thread = new Thread(runnable, "portfolio-job-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Portfolio jobs run on {} workers with up to {} queued jobs", workers, properties.getMaxQueuedJobs());
+    }
+
+    /**
+     * Queues a portfolio for rating.
+     *
+     * @param bicycles The portfolio, already validated.
+     * @return The status of the queued job.
+     * @throws CustomValidationException if the portfolio is larger than allowed for one job.
+     * @throws JobCapacityExceededException if all workers are busy and the queue is full.
+     */
+    public PortfolioJobStatus submit(List<BicycleDto> bicycles) {
+        if (bicycles.size() > properties.getMaxBicyclesPerJob()) {
+            throw new CustomValidationException("Portfolio must not contain more than " + properties.getMaxBicyclesPerJob() + " bicycles");
+        }
+        purgeExpired();
+
+        PortfolioJob job = new PortfolioJob(UUID.randomUUID().toString(), List.copyOf(bicycles), insuranceService,
+                ratingProperties.getArithmetic() == RatingProperties.Arithmetic.FIXED_POINT);
+        jobs.put(job.id(), job);
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id());
+            throw new JobCapacityExceededException("Too many portfolio jobs, retry later");
+        }
+        log.info("Portfolio job {} queued with {} bicycles", job.id(), bicycles.size());
+        return job.status();
+    }
+
+    /**
+     * @throws JobNotFoundException if the job does not exist or expired.
+     */
+    public PortfolioJobStatus getStatus(String jobId) {
+        return job(jobId).status();
+    }
+
+    /**
+     * A page of the results processed so far, in portfolio order.
+     *
+     * @param page Zero-based page number.
+     * @param size Results per page, at most {@code insurance.jobs.max-page-size}.
+     * @throws JobNotFoundException if the job does not exist or expired.
+     */
+    public PortfolioJobPage getResults(String jobId, int page, int size) {
+        if (page < 0 || size < 1 || size > properties.getMaxPageSize()) {
+            throw new CustomValidationException("Page must not be negative and size must be between 1 and " + properties.getMaxPageSize());
+        }
+        PortfolioJob job = job(jobId);
+        PortfolioJobStatus.State state = job.state();
+        int available = job.processed();
+        long from = (long) page * size;
+        return PortfolioJobPage.builder()
+                .jobId(jobId)
+                .state(state)
+                .page(page)
+                .size(size)
+                .available(available)
+                .results(from >= available ? List.of() : job.results((int) from, (int) Math.min(from + size, available)))
+                .build();
+    }
+
+    /**
+     * Cancels a queued or running job. A running job stops before its next bicycle; results processed so far
+     * stay available.
+     *
+     * @throws JobNotFoundException if the job does not exist or expired.
+     */
+    public PortfolioJobStatus cancel(String jobId) {
+        PortfolioJob job = job(jobId);
+        if (!job.state().isFinished()) {
+            job.cancel();
+            if (executor.remove(job)) {
+                job.cancelQueued();
+            }
+        }
+        return job.status();
+    }
+
+    /**
+     * Queues a re-rating of a completed job against the tariff and scripts installed now. Only bicycles depending
+     * on a tariff row or script that changed since they were rated are rated again.
+     *
+     * @throws JobNotFoundException if the job does not exist or expired.
+     * @throws CustomValidationException if the job did not complete or is already being re-rated.
+     * @throws JobCapacityExceededException if all workers are busy and the queue is full.
+     */
+    public PortfolioJobStatus reRate(String jobId) {
+        PortfolioJob job = job(jobId);
+        PortfolioReRating previous = job.queueReRating();
+        try {
+            executor.execute(job::reRate);
+        } catch (RejectedExecutionException e) {
+            job.restoreReRating(previous);
+            throw new JobCapacityExceededException("Too many portfolio jobs, retry later");
+        }
+        log.info("Portfolio job {} queued for re-rating", jobId);
+        return job.status();
+    }
+
+    /**
+     * A page of the results changed by the last completed re-rating of a job, in portfolio order.
+     *
+     * @param page Zero-based page number.
+     * @param size Changes per page, at most {@code insurance.jobs.max-page-size}.
+     * @throws JobNotFoundException if the job does not exist or expired.
+     */
+    public PortfolioJobChangePage getChanges(String jobId, int page, int size) {
+        if (page < 0 || size < 1 || size > properties.getMaxPageSize()) {
+            throw new CustomValidationException("Page must not be negative and size must be between 1 and " + properties.getMaxPageSize());
+        }
+        List<PortfolioJobChange> changes = job(jobId).changes();
+        long from = (long) page * size;
+        return PortfolioJobChangePage.builder()
+                .jobId(jobId)
+                .page(page)
+                .size(size)
+                .available(changes.size())
+                .changes(from >= changes.size() ? List.of() : changes.subList((int) from, (int) Math.min(from + size, changes.size())))
+                .build();
+    }
+
+    @EventListener
+    public void onTariffChanged(TariffChangedEvent event) {
+        if (!properties.isReRateOnTariffChange()) {
+            return;
+        }
+        purgeExpired();
+        for (PortfolioJob job : jobs.values()) {
+            if (job.state() == PortfolioJobStatus.State.COMPLETED) {
+                try {
+                    reRate(job.id());
+                } catch (CustomValidationException | JobCapacityExceededException e) {
+                    log.warn("Portfolio job {} not re-rated after tariff change: {}", job.id(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private PortfolioJob job(String jobId) {
+        PortfolioJob job = jobs.get(jobId);
+        if (job == null || job.isExpired(Instant.now(), properties.getRetention())) {
+            throw new JobNotFoundException("Portfolio job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private void purgeExpired() {
+        Instant now = Instant.now();
+        jobs.values().removeIf(job -> job.isExpired(now, properties.getRetention()));
+    }
+}
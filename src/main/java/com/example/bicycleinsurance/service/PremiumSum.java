@@ -0,0 +1,44 @@
+package com.example.bicycleinsurance.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Running sum of unrounded premiums. In fixed-point mode the sum is kept as a scaled long and only turned
+ * into a BigDecimal when it no longer fits; otherwise it is a plain BigDecimal sum. Both give the same exact result.
+ */
+final class PremiumSum {
+
+    private FixedPoint.Scaled scaled = new FixedPoint.Scaled(0, 0);
+    private BigDecimal decimal;
+
+    PremiumSum(boolean fixedPoint) {
+        this.decimal = fixedPoint ? null : BigDecimal.ZERO;
+    }
+
+    void add(BigDecimal premium) {
+        if (decimal == null) {
+            try {
+                scaled = scaled.add(FixedPoint.Scaled.of(premium));
+                return;
+            } catch (ArithmeticException e) {
+                decimal = scaled.toBigDecimal();
+            }
+        }
+        decimal = decimal.add(premium);
+    }
+
+    BigDecimal value() {
+        return decimal != null ? decimal : scaled.toBigDecimal();
+    }
+
+    /**
+     * The sum rounded HALF_UP to cents.
+     */
+    BigDecimal rounded() {
+        if (decimal == null && scaled.scale() >= 2 && scaled.scale() <= 20) {
+            return BigDecimal.valueOf(FixedPoint.divideHalfUp(scaled.unscaled(), FixedPoint.powerOfTen(scaled.scale() - 2)), 2);
+        }
+        return value().setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.model.Bicycle;
+
+import java.math.BigDecimal;
+
+/**
+ * Columnar input and output of rating one risk type for many bicycles in a single script invocation. Each
+ * row holds the rating variables of one bicycle in parallel arrays; the engine fills the sum insured and premium
+ * columns, or the failure of a row whose scripts threw.
+ */
+public final class RatingBatch {
+
+    private final String riskType;
+    private final boolean fixedPoint;
+    private final Bicycle[] bicycles;
+    private final int[] bicycleAges;
+    private final BigDecimal[] sumsInsured;
+    private final String[] makes;
+    private final String[] models;
+    private final int[] riskCounts;
+    private final BigDecimal[] riskSumsInsured;
+    private final BigDecimal[] premiums;
+    private final RuntimeException[] failures;
+    private int size;
+
+    /**
+     * @param capacity Maximum number of rows.
+     * @param fixedPoint Whether the scripts interpolate in fixed-point arithmetic.
+     */
+    public RatingBatch(String riskType, int capacity, boolean fixedPoint) {
+        this.riskType = riskType;
+        this.fixedPoint = fixedPoint;
+        this.bicycles = new Bicycle[capacity];
+        this.bicycleAges = new int[capacity];
+        this.sumsInsured = new BigDecimal[capacity];
+        this.makes = new String[capacity];
+        this.models = new String[capacity];
+        this.riskCounts = new int[capacity];
+        this.riskSumsInsured = new BigDecimal[capacity];
+        this.premiums = new BigDecimal[capacity];
+        this.failures = new RuntimeException[capacity];
+    }
+
+    /**
+     * Adds a bicycle as the next row.
+     *
+     * @return The row of the bicycle.
+     */
+    public int add(Bicycle bicycle, int bicycleAge) {
+        int row = size++;
+        bicycles[row] = bicycle;
+        bicycleAges[row] = bicycleAge;
+        sumsInsured[row] = bicycle.sumInsured();
+        makes[row] = bicycle.make();
+        models[row] = bicycle.model();
+        riskCounts[row] = bicycle.riskCount();
+        return row;
+    }
+
+    public String riskType() {
+        return riskType;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public BigDecimal riskSumInsured(int row) {
+        return riskSumsInsured[row];
+    }
+
+    public BigDecimal premium(int row) {
+        return premiums[row];
+    }
+
+    /**
+     * @return The exception the scripts of the row failed with, or null if the row was rated.
+     */
+    public RuntimeException failure(int row) {
+        return failures[row];
+    }
+
+    boolean isFixedPoint() {
+        return fixedPoint;
+    }
+
+    Bicycle bicycle(int row) {
+        return bicycles[row];
+    }
+
+    int bicycleAge(int row) {
+        return bicycleAges[row];
+    }
+
+    BigDecimal sumInsured(int row) {
+        return sumsInsured[row];
+    }
+
+    String make(int row) {
+        return makes[row];
+    }
+
+    String model(int row) {
+        return models[row];
+    }
+
+    int riskCount(int row) {
+        return riskCounts[row];
+    }
+
+    void setRiskSumInsured(int row, BigDecimal riskSumInsured) {
+        riskSumsInsured[row] = riskSumInsured;
+    }
+
+    void setPremium(int row, BigDecimal premium) {
+        premiums[row] = premium;
+    }
+
+    void fail(int row, RuntimeException failure) {
+        failures[row] = failure;
+    }
+}
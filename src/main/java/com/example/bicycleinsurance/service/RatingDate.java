@@ -0,0 +1,35 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.tariff.Tariff;
+import com.example.bicycleinsurance.tariff.TariffRegistry;
+import com.example.bicycleinsurance.tariff.TariffVersion;
+
+import java.time.LocalDate;
+
+/**
+ * The date a request is rated on together with the tariff version in effect on it, resolved once per request.
+ * Bicycle ages are counted in years up to the rating date.
+ *
+ * @param tariffVersion Version in effect on the date, or null if requests are rated with the deployed tariff and
+ *                      scripts.
+ */
+public record RatingDate(LocalDate date, TariffVersion tariffVersion) {
+
+    int year() {
+        return date.getYear();
+    }
+
+    /**
+     * @return the date the tariff version took effect, or null for the deployed tariff.
+     */
+    LocalDate tariffEffectiveFrom() {
+        return tariffVersion != null ? tariffVersion.effectiveFrom() : null;
+    }
+
+    /**
+     * @return the tables of the tariff version, or the currently installed tariff.
+     */
+    Tariff tariff() {
+        return tariffVersion != null ? tariffVersion.tariff() : TariffRegistry.current();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.tariff.TariffLookup;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the tariff lookups and scripts the rating of one bicycle depended on. Passed to the scripts through
+ * the binding; the tariff helpers of {@code BaseScript} report every lookup with its result, including lookups
+ * that found nothing. Used by one rating thread at a time.
+ */
+public final class RatingDependencyRecorder implements RatingObserver {
+
+    private final Map<TariffLookup, Object> lookups = new LinkedHashMap<>();
+    private final Set<String> scripts = new LinkedHashSet<>();
+
+    /**
+     * @param result the premium or band found, or null if the tariff has none.
+     */
+    @Override
+    public void recordLookup(TariffLookup lookup, Object result) {
+        lookups.put(lookup, result);
+    }
+
+    @Override
+    public void recordScript(String scriptName) {
+        scripts.add(scriptName);
+    }
+
+    public Map<TariffLookup, Object> lookups() {
+        return Collections.unmodifiableMap(lookups);
+    }
+
+    public Set<String> scripts() {
+        return Collections.unmodifiableSet(scripts);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.tariff.TariffLookup;
+
+import java.math.BigDecimal;
+
+/**
+ * Observes the rating of one risk: the scripts it runs, the tariff lookups of the {@code BaseScript} helpers and
+ * the factors they derive. Passed to the scripts through the binding only if the caller observes the rating, so
+ * an unobserved rating costs one binding lookup per helper. Used by one rating thread at a time.
+ */
+public interface RatingObserver {
+
+    /**
+     * Binding variable holding the observer of the current rating.
+     */
+    String BINDING_VARIABLE = "ratingObserver";
+
+    void recordScript(String scriptName);
+
+    /**
+     * @param result the premium or band found, or null if the tariff has none.
+     */
+    void recordLookup(TariffLookup lookup, Object result);
+
+    /**
+     * Reports the factor interpolated from the band of a lookup reported before.
+     */
+    default void recordFactor(TariffLookup lookup, BigDecimal factor) {
+    }
+}
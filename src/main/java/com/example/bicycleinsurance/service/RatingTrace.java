@@ -0,0 +1,68 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.dto.RiskExplanation;
+import com.example.bicycleinsurance.tariff.FactorBand;
+import com.example.bicycleinsurance.tariff.TariffLookup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the explanation of the rating of one risk: the scripts it ran and its tariff lookups in the order they
+ * were made, each with the matched row and the premium or factor taken from it. Unlike the dependency recorder it
+ * keeps repeated lookups, so the steps follow the calculation.
+ */
+final class RatingTrace implements RatingObserver {
+
+    private final List<String> scripts = new ArrayList<>(2);
+    private final List<TariffLookup> lookups = new ArrayList<>();
+    private final List<RiskExplanation.Step> steps = new ArrayList<>();
+
+    @Override
+    public void recordScript(String scriptName) {
+        scripts.add(scriptName);
+    }
+
+    @Override
+    public void recordLookup(TariffLookup lookup, Object result) {
+        RiskExplanation.Step step = RiskExplanation.Step.builder()
+                .table(lookup.table())
+                .riskType(lookup.riskType())
+                .make(lookup.make())
+                .model(lookup.model())
+                .value(lookup.value())
+                .build();
+        if (result instanceof FactorBand band) {
+            step.setValueFrom(band.valueFrom());
+            step.setValueTo(band.valueTo());
+            step.setFactorMin(band.factorMin());
+            step.setFactorMax(band.factorMax());
+        } else if (result instanceof BigDecimal premium) {
+            step.setResult(premium);
+        }
+        lookups.add(lookup);
+        steps.add(step);
+    }
+
+    @Override
+    public void recordFactor(TariffLookup lookup, BigDecimal factor) {
+        int index = lookups.lastIndexOf(lookup);
+        if (index >= 0) {
+            steps.get(index).setResult(factor);
+        }
+    }
+
+    /**
+     * @param tariffVersion Date the tariff version rated with took effect, or null for the deployed tariff.
+     */
+    RiskExplanation explanation(long scriptVersion, LocalDate tariffVersion) {
+        return RiskExplanation.builder()
+                .scriptVersion(scriptVersion)
+                .tariffVersion(tariffVersion)
+                .scripts(scripts)
+                .steps(steps)
+                .build();
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.AdmissionProperties;
+import com.example.bicycleinsurance.dto.BicycleDto;
+import com.example.bicycleinsurance.exception.RequestRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admits calculation requests against a limit on the total weight rated at the same time, the number of risks
+ * of the requests in flight. Requests that do not fit wait in FIFO order, so a fleet request is not starved by
+ * single quotes, in a bounded queue for at most {@code insurance.admission.queue-timeout}. A request finding the
+ * queue full is rejected at once, one that waited too long is rejected after the timeout; both tell the client
+ * when to retry. Rejecting early keeps the web threads and the latency of admitted requests bounded under load.
+ * Calculation streams are admitted one chunk of records at a time.
+ */
+@Service
+@Slf4j
+public class RequestAdmission {
+
+    private final AdmissionProperties properties;
+    private final int maxWeight;
+    private final Semaphore weight;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter admitted;
+    private final Counter admittedAfterWait;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedQueueTimeout;
+    private final Timer waitTimer;
+
+    public RequestAdmission(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.maxWeight = Math.max(1, properties.getMaxConcurrentWeight());
+        this.weight = new Semaphore(maxWeight, true);
+        if (properties.isEnabled()) {
+            log.info("Admitting calculation requests up to a weight of {} with {} queued for at most {}",
+                    maxWeight, properties.getMaxQueuedRequests(), properties.getQueueTimeout());
+        }
+
+        admitted = outcomeCounter(meterRegistry, "admitted", "none");
+        admittedAfterWait = outcomeCounter(meterRegistry, "queued", "none");
+        rejectedQueueFull = outcomeCounter(meterRegistry, "shed", "queue_full");
+        rejectedQueueTimeout = outcomeCounter(meterRegistry, "shed", "queue_timeout");
+        waitTimer = Timer.builder("insurance.admission.wait")
+                .description("Time calculation requests waited for admission")
+                .register(meterRegistry);
+        Gauge.builder("insurance.admission.queued", queued, AtomicInteger::get)
+                .description("Calculation requests waiting for admission")
+                .register(meterRegistry);
+        Gauge.builder("insurance.admission.weight.in-use", this, admission -> admission.maxWeight - admission.weight.availablePermits())
+                .description("Weight of the calculation requests being rated")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Waits until the request may be rated.
+     *
+     * @return The admission to close once the request was rated, or null if admission control is disabled.
+     * @throws RequestRejectedException if the wait queue is full or the request waited too long.
+     */
+    public Permit admit(List<BicycleDto> bicycles) {
+        int weight = 0;
+        for (int i = 0; i < bicycles.size(); i++) {
+            weight += weight(bicycles.get(i));
+        }
+        return admit(weight);
+    }
+
+    /**
+     * Waits until the next chunk of a calculation stream may be rated, like a request weighing
+     * {@code insurance.admission.stream-chunk-weight}. A stream rates records under its chunk until their weight
+     * would exceed it, then closes it and admits the next one.
+     *
+     * @return The admission to close once the chunk was rated, or null if admission control is disabled.
+     * @throws RequestRejectedException if the wait queue is full or the chunk waited too long.
+     */
+    public Permit admitStreamChunk() {
+        return admit(streamChunkWeight());
+    }
+
+    /**
+     * @return the weight of a chunk of a calculation stream.
+     */
+    public int streamChunkWeight() {
+        return Math.max(1, properties.getStreamChunkWeight());
+    }
+
+    /**
+     * @return the weight of a bicycle, the number of its risks and at least 1.
+     */
+    public static int weight(BicycleDto bicycle) {
+        List<String> risks = bicycle != null ? bicycle.getRisks() : null;
+        return risks != null ? Math.max(1, risks.size()) : 1;
+    }
+
+    private Permit admit(int requestWeight) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        int permits = Math.min(Math.max(1, requestWeight), maxWeight);
+        try {
+            // A timed acquire respects the queue order, unlike tryAcquire without a timeout
+            if (weight.tryAcquire(permits, 0, TimeUnit.NANOSECONDS)) {
+                admitted.increment();
+                return new Permit(permits);
+            }
+            if (queued.incrementAndGet() > properties.getMaxQueuedRequests()) {
+                queued.decrementAndGet();
+                rejectedQueueFull.increment();
+                throw new RequestRejectedException(RequestRejectedException.Reason.QUEUE_FULL, properties.getRetryAfter(),
+                        "Too many calculation requests waiting, retry later");
+            }
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = weight.tryAcquire(permits, properties.getQueueTimeout().toNanos(), TimeUnit.NANOSECONDS);
+            } finally {
+                queued.decrementAndGet();
+                waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            if (!acquired) {
+                rejectedQueueTimeout.increment();
+                throw new RequestRejectedException(RequestRejectedException.Reason.QUEUE_TIMEOUT, properties.getRetryAfter(),
+                        "Calculation request not admitted within " + properties.getQueueTimeout() + ", retry later");
+            }
+            admittedAfterWait.increment();
+            return new Permit(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedQueueTimeout.increment();
+            throw new RequestRejectedException(RequestRejectedException.Reason.QUEUE_TIMEOUT, properties.getRetryAfter(),
+                    "Calculation request interrupted while waiting for admission");
+        }
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome, String reason) {
+        return Counter.builder("insurance.admission.requests")
+                .description("Calculation requests by admission outcome; queued requests were admitted after waiting")
+                .tag("outcome", outcome)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The weight held by an admitted request, released on close.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final int permits;
+        private boolean released;
+
+        private Permit(int permits) {
+            this.permits = permits;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                weight.release(permits);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.bicycleinsurance.service;
+
+import groovy.lang.Binding;
+import groovy.lang.MissingPropertyException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binding that reads the caller's variables in place instead of copying them into a new map.
+ * Variables assigned by the script land in a private overlay, so the caller's map is never modified.
+ * Instances are owned by one thread at a time and reset between executions.
+ */
+class ReusableBinding extends Binding {
+
+    private Map<String, Object> variables;
+    private Map<String, Object> overlay;
+
+    void bind(Map<String, Object> variables) {
+        this.variables = variables;
+    }
+
+    void reset() {
+        variables = null;
+        if (overlay != null) {
+            overlay.clear();
+        }
+    }
+
+    @Override
+    public Object getVariable(String name) {
+        if (overlay != null && overlay.containsKey(name)) {
+            return overlay.get(name);
+        }
+        if (variables != null) {
+            Object result = variables.get(name);
+            if (result != null || variables.containsKey(name)) {
+                return result;
+            }
+        }
+        throw new MissingPropertyException(name, getClass());
+    }
+
+    @Override
+    public void setVariable(String name, Object value) {
+        if (overlay == null) {
+            overlay = new HashMap<>();
+        }
+        overlay.put(name, value);
+    }
+
+    @Override
+    public boolean hasVariable(String name) {
+        return (overlay != null && overlay.containsKey(name)) || (variables != null && variables.containsKey(name));
+    }
+
+    @Override
+    public void removeVariable(String name) {
+        if (overlay != null) {
+            overlay.remove(name);
+        }
+    }
+
+    @Override
+    public Map getVariables() {
+        Map<String, Object> merged = new HashMap<>();
+        if (variables != null) {
+            merged.putAll(variables);
+        }
+        if (overlay != null) {
+            merged.putAll(overlay);
+        }
+        return merged;
+    }
+}
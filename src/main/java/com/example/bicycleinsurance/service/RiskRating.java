@@ -0,0 +1,30 @@
+package com.example.bicycleinsurance.service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Unrounded result of rating one risk of one bicycle.
+ */
+public record RiskRating(BigDecimal sumInsured, BigDecimal premium) {
+
+    /**
+     * Converts a script result to BigDecimal with the same value and scale as {@code new BigDecimal(result.toString())},
+     * without the string round trip for the usual result types.
+     */
+    public static BigDecimal toBigDecimal(Object result) {
+        if (result instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (result instanceof Integer || result instanceof Long || result instanceof Short || result instanceof Byte) {
+            return BigDecimal.valueOf(((Number) result).longValue());
+        }
+        if (result instanceof BigInteger integer) {
+            return new BigDecimal(integer);
+        }
+        if (result instanceof Double value) {
+            return BigDecimal.valueOf(value);
+        }
+        return new BigDecimal(result.toString());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.RatingProperties;
+import com.example.bicycleinsurance.tariff.Tariff;
+import com.example.bicycleinsurance.tariff.TariffChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of per-risk rating results keyed by every input the rating scripts read, by the
+ * script version and by the tariff the scripts read. Results are cached unrounded, so a hit yields
+ * exactly what the scripts would return. The whole cache is dropped as soon as a new script version
+ * is seen or a changed tariff is installed.
+ */
+@Component
+@Slf4j
+public class RiskRatingCache {
+
+    private final Cache<Key, RiskRating> cache;
+    private volatile long scriptVersion = -1;
+
+    public RiskRatingCache(RatingProperties ratingProperties) {
+        RatingProperties.Cache properties = ratingProperties.getCache();
+        this.cache = properties.isEnabled()
+                ? Caffeine.newBuilder()
+                        .maximumSize(properties.getMaximumSize())
+                        .expireAfterWrite(properties.getExpireAfterWrite())
+                        .recordStats()
+                        .build()
+                : null;
+        if (cache != null) {
+            log.info("Risk rating cache enabled with maximum size {} and expiry {}",
+                    properties.getMaximumSize(), properties.getExpireAfterWrite());
+        }
+    }
+
+    /**
+     * Returns the cached rating for the key or computes and caches it. Failed ratings are not cached.
+     */
+    public RiskRating get(Key key, Function<Key, RiskRating> rater) {
+        if (cache == null) {
+            return rater.apply(key);
+        }
+        if (key.scriptVersion() > scriptVersion) {
+            invalidateFor(key.scriptVersion());
+        }
+        return cache.get(key, rater);
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    public CacheStats stats() {
+        return cache != null ? cache.stats() : CacheStats.empty();
+    }
+
+    public long size() {
+        return cache != null ? cache.estimatedSize() : 0;
+    }
+
+    @EventListener
+    public void onTariffChanged(TariffChangedEvent event) {
+        if (cache != null) {
+            log.info("Tariff changed, clearing {} cached risk ratings", cache.estimatedSize());
+            cache.invalidateAll();
+        }
+    }
+
+    private synchronized void invalidateFor(long version) {
+        if (version > scriptVersion) {
+            log.info("Script version changed from {} to {}, clearing {} cached risk ratings", scriptVersion, version, cache.estimatedSize());
+            cache.invalidateAll();
+            scriptVersion = version;
+        }
+    }
+
+    /**
+     * Rating inputs of one risk. The sum insured is compared including its scale, because the script
+     * arithmetic is scale sensitive. The tariff is compared by identity: every installed tariff and
+     * every loaded tariff version is a new instance, so a rating of a replaced tariff can never match.
+     */
+    public record Key(String make, String model, int bicycleAge, BigDecimal sumInsured,
+                      String riskType, int riskCount, long scriptVersion, Tariff tariff) {
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.ScriptEngineProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Watches the external script directory and triggers a background reload of the script set
+ * once the directory has been quiet for the configured reload delay.
+ */
+@Component
+@ConditionalOnProperty(prefix = "insurance.scripts", name = "external-dir")
+@RequiredArgsConstructor
+@Slf4j
+public class ScriptDirectoryWatcher {
+
+    private final GroovyScriptEngine groovyScriptEngine;
+    private final ScriptEngineProperties properties;
+    /**
+     * Watched directories, so deleting one of them, and the scripts in it, is recognized.
+     */
+    private final Set<Path> watchedDirectories = ConcurrentHashMap.newKeySet();
+
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    @PostConstruct
+    public void start() throws IOException {
+        Path directory = properties.getExternalDir().toAbsolutePath().normalize();
+        watchService = FileSystems.getDefault().newWatchService();
+        registerTree(directory);
+
+        watcherThread = new Thread(this::watch, "script-directory-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        log.info("Watching {} for script changes", directory);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        watchService.close();
+        watcherThread.interrupt();
+    }
+
+    private void watch() {
+        long delayMillis = properties.getReloadDelay().toMillis();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                boolean changed = drain(key);
+                // Debounce: editors and deployments usually touch several files in a row
+                while ((key = watchService.poll(delayMillis, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(key);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reloads the scripts; a failure is logged and the directory stays watched for the next change.
+     */
+    private void reload() {
+        try {
+            groovyScriptEngine.reload();
+        } catch (RuntimeException e) {
+            log.error("Reload of Groovy scripts after a change in the script directory failed", e);
+        }
+    }
+
+    /**
+     * @return whether a script, or a directory that may hold scripts, was created, changed or deleted.
+     */
+    private boolean drain(WatchKey key) {
+        Path directory = (Path) key.watchable();
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (path.getFileName().toString().endsWith(GroovyScriptEngine.SCRIPT_EXTENSION)) {
+                changed = true;
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                try {
+                    changed |= registerTree(path);
+                } catch (IOException e) {
+                    log.warn("Cannot watch new script directory {}", path, e);
+                }
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                changed |= watchedDirectories.remove(path);
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * @return whether the tree contains scripts.
+     */
+    private boolean registerTree(Path root) throws IOException {
+        boolean scripts = false;
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isDirectory(path)) {
+                    path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                    watchedDirectories.add(path);
+                } else if (path.getFileName().toString().endsWith(GroovyScriptEngine.SCRIPT_EXTENSION)) {
+                    scripts = true;
+                }
+            }
+        }
+        return scripts;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.tariff.TariffVersion;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovySystem;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One immutable version of the rating script set. Every generation owns its class loader, so
+ * retiring a generation lets the JVM unload all of its script classes. A generation compiled for a tariff
+ * version binds its scripts to the tables of that version and reads the scripts the version overrides.
+ *
+ * <p>A request pins the generation it rates with, so all of its scripts come from one version even if a
+ * reload swaps in the next one meanwhile. A retired generation is only released once the last request
+ * pinning it has finished.
+ */
+class ScriptGeneration {
+
+    private final long version;
+    private final GroovyClassLoader classLoader;
+    private final TariffVersion tariffVersion;
+    private final Map<String, CompiledScript> scripts = new ConcurrentHashMap<>();
+    /**
+     * The engine while the generation is active, plus every request pinning it. Released at zero.
+     */
+    private final AtomicInteger users = new AtomicInteger(1);
+    private final AtomicBoolean retired = new AtomicBoolean();
+
+    ScriptGeneration(long version, GroovyClassLoader classLoader) {
+        this(version, classLoader, null);
+    }
+
+    ScriptGeneration(long version, GroovyClassLoader classLoader, TariffVersion tariffVersion) {
+        this.version = version;
+        this.classLoader = classLoader;
+        this.tariffVersion = tariffVersion;
+    }
+
+    long version() {
+        return version;
+    }
+
+    GroovyClassLoader classLoader() {
+        return classLoader;
+    }
+
+    /**
+     * @return the tariff version the scripts are compiled for, or null for the deployed tariff.
+     */
+    TariffVersion tariffVersion() {
+        return tariffVersion;
+    }
+
+    Map<String, CompiledScript> scripts() {
+        return scripts;
+    }
+
+    Set<String> scriptNames() {
+        return scripts.keySet();
+    }
+
+    /**
+     * Pins the generation for a request, which must {@link #release} it when done.
+     *
+     * @return false if the generation was already released, and the request has to pin the active one.
+     */
+    boolean pin() {
+        int current;
+        do {
+            current = users.get();
+            if (current == 0) {
+                return false;
+            }
+        } while (!users.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Ends a request pinning the generation, releasing it if it was the last user of a retired generation.
+     */
+    void release() {
+        if (users.decrementAndGet() == 0) {
+            close();
+        }
+    }
+
+    /**
+     * Takes the generation out of use for new requests. It is released once the requests still pinning it
+     * have finished, so none of them compiles into a closed class loader.
+     */
+    void retire() {
+        if (retired.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+    /**
+     * Releases the class loader and the cached meta classes.
+     */
+    private void close() {
+        for (CompiledScript script : scripts.values()) {
+            GroovySystem.getMetaClassRegistry().removeMetaClass(script.scriptClass());
+        }
+        scripts.clear();
+        classLoader.clearCache();
+        try {
+            classLoader.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot close class loader of script generation " + version, e);
+        }
+    }
+}
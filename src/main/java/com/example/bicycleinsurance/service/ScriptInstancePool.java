@@ -0,0 +1,68 @@
+package com.example.bicycleinsurance.service;
+
+import groovy.lang.Script;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, lock-free pool of script instances of one compiled script. Each pooled instance keeps its
+ * own {@link ReusableBinding}, so a warm execution allocates neither a script nor a binding.
+ * When all slots are taken a fresh instance is created and discarded again if the pool is full.
+ */
+class ScriptInstancePool {
+
+    private final AtomicReferenceArray<PooledScript> slots;
+    private final Supplier<Script> factory;
+
+    ScriptInstancePool(int size, Supplier<Script> factory) {
+        this.slots = new AtomicReferenceArray<>(Math.max(1, size));
+        this.factory = factory;
+    }
+
+    PooledScript acquire() {
+        int length = slots.length();
+        int start = probe(length);
+        for (int i = 0; i < length; i++) {
+            int index = (start + i) % length;
+            if (slots.get(index) != null) {
+                PooledScript pooled = slots.getAndSet(index, null);
+                if (pooled != null) {
+                    return pooled;
+                }
+            }
+        }
+        return new PooledScript(factory.get());
+    }
+
+    void release(PooledScript pooled) {
+        pooled.binding.reset();
+        int length = slots.length();
+        int start = probe(length);
+        for (int i = 0; i < length; i++) {
+            if (slots.compareAndSet((start + i) % length, null, pooled)) {
+                return;
+            }
+        }
+    }
+
+    private static int probe(int length) {
+        return (int) (Thread.currentThread().getId() % length);
+    }
+
+    static final class PooledScript {
+        final Script script;
+        final ReusableBinding binding = new ReusableBinding();
+
+        PooledScript(Script script) {
+            this.script = script;
+            script.setBinding(binding);
+        }
+
+        Object run(Map<String, Object> variables) {
+            binding.bind(variables);
+            return script.run();
+        }
+    }
+}
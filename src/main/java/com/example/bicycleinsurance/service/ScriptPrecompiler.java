@@ -0,0 +1,85 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.ScriptEngineProperties.CompilationMode;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+
+import javax.lang.model.SourceVersion;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Build step that compiles the bundled rating scripts to classes, once per compilation mode, with the same
+ * compiler configuration {@link GroovyScriptEngine} uses at runtime. Run by the {@code precompile-scripts}
+ * execution of the gmavenplus plugin after the application classes are compiled.
+ *
+ * <p>Each script becomes {@code <PRECOMPILED_PACKAGE>.<mode>.<directory>.<name>}. The checksums of the compiled
+ * sources are written to {@value GroovyScriptEngine#PRECOMPILED_INDEX}, so the engine can tell whether a
+ * precompiled class still matches the script it would otherwise compile.
+ */
+public final class ScriptPrecompiler {
+
+    private ScriptPrecompiler() {
+    }
+
+    /**
+     * @param args the directory with the bundled scripts and the class output directory.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: ScriptPrecompiler <script directory> <output directory>");
+        }
+        int count = precompile(Path.of(args[0]), Path.of(args[1]));
+        System.out.println("Precompiled " + count + " rating scripts to " + args[1]);
+    }
+
+    /**
+     * Compiles every script of the directory whose path can be a class name and writes the index.
+     *
+     * @return the number of precompiled scripts.
+     */
+    static int precompile(Path scriptDir, Path outputDir) throws IOException {
+        Map<String, String> sources = new TreeMap<>();
+        try (Stream<Path> files = Files.walk(scriptDir)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                String name = scriptDir.relativize(file).toString().replace('\\', '/');
+                if (name.endsWith(GroovyScriptEngine.SCRIPT_EXTENSION)) {
+                    String scriptName = name.substring(0, name.length() - GroovyScriptEngine.SCRIPT_EXTENSION.length());
+                    if (SourceVersion.isName(scriptName.replace('/', '.'))) {
+                        sources.put(scriptName, Files.readString(file, StandardCharsets.UTF_8));
+                    }
+                }
+            }
+        }
+
+        for (CompilationMode compilationMode : CompilationMode.values()) {
+            CompilerConfiguration configuration = GroovyScriptEngine.compilerConfiguration(compilationMode, false);
+            configuration.setTargetDirectory(outputDir.toFile());
+            CompilationUnit compilationUnit = new CompilationUnit(configuration);
+            sources.forEach((scriptName, scriptText) -> {
+                String className = GroovyScriptEngine.precompiledClassName(compilationMode, scriptName);
+                String packageName = className.substring(0, className.lastIndexOf('.'));
+                // Declared on the first line, so line numbers in stack traces stay those of the script file
+                compilationUnit.addSource(scriptName + GroovyScriptEngine.SCRIPT_EXTENSION,
+                        "package " + packageName + "; " + GroovyScriptEngine.stripPackage(scriptText));
+            });
+            compilationUnit.compile();
+        }
+
+        Properties index = new Properties();
+        sources.forEach((scriptName, scriptText) -> index.setProperty(scriptName, GroovyScriptEngine.checksum(scriptText)));
+        Path indexFile = outputDir.resolve(GroovyScriptEngine.PRECOMPILED_INDEX);
+        Files.createDirectories(indexFile.getParent());
+        try (OutputStream out = Files.newOutputStream(indexFile)) {
+            index.store(out, "Bundled rating scripts precompiled at build time, with the checksums of their sources");
+        }
+        return sources.size();
+    }
+}
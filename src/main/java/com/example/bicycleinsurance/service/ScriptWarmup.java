@@ -0,0 +1,94 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.ScriptEngineProperties;
+import com.example.bicycleinsurance.dto.BicycleDto;
+import com.example.bicycleinsurance.model.CoverageType;
+import com.example.bicycleinsurance.model.RiskType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Year;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rates synthetic bicycles with every risk type at startup until the scripts, the base script helpers and the
+ * tariff lookups are JIT compiled. Runs as an application runner, so the readiness state switches to
+ * accepting traffic only after the warm-up finished or timed out. Ratings bypass the rating cache.
+ */
+@Component
+@ConditionalOnProperty(prefix = "insurance.scripts.warmup", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ScriptWarmup implements ApplicationRunner {
+
+    private static final List<String[]> MAKES_AND_MODELS = List.of(
+            new String[]{"Canyon", "CF 5"},
+            new String[]{"Whyte", "T-160 RS"},
+            new String[]{"Pearl", "Gravel SL EVO"},
+            new String[]{"Sensa", "V2"},
+            new String[]{"Warm-up", "Warm-up"});
+    private static final int MAX_AGE = 10;
+    private static final long HALF_SUM_INSURED_FROM = 100;
+    private static final long HALF_SUM_INSURED_TO = 2500;
+
+    private final InsuranceService insuranceService;
+    private final ScriptEngineProperties properties;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        warmUp();
+    }
+
+    /**
+     * @return the number of synthetic bicycles rated.
+     */
+    int warmUp() {
+        ScriptEngineProperties.Warmup warmup = properties.getWarmup();
+        List<String> risks = Arrays.stream(RiskType.values()).map(RiskType::name).toList();
+        long start = System.nanoTime();
+        long deadline = start + warmup.getTimeout().toNanos();
+        int currentYear = Year.now().getValue();
+
+        int rated = 0;
+        try {
+            while (rated < warmup.getIterations() && System.nanoTime() < deadline) {
+                insuranceService.rateUncached(bicycle(rated, currentYear, risks));
+                rated++;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Warm-up stopped after {} synthetic ratings: {}", rated, e.getMessage());
+            return rated;
+        }
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        if (rated < warmup.getIterations()) {
+            log.warn("Warm-up timed out after {} of {} synthetic ratings in {} ms", rated, warmup.getIterations(), millis);
+        } else {
+            log.info("Warmed up {} risk types with {} synthetic ratings in {} ms", risks.size(), rated, millis);
+        }
+        return rated;
+    }
+
+    /**
+     * Synthetic bicycle number i, cycling through makes, ages and sums insured of the validated range. Sums
+     * insured are even whole amounts, as tariff bands are bounded by whole amounts and risks may insure half of it.
+     */
+    private static BicycleDto bicycle(int i, int currentYear, List<String> risks) {
+        String[] makeAndModel = MAKES_AND_MODELS.get(i % MAKES_AND_MODELS.size());
+        long sumInsured = 2 * (HALF_SUM_INSURED_FROM + (i * 997L) % (HALF_SUM_INSURED_TO - HALF_SUM_INSURED_FROM + 1));
+        return BicycleDto.builder()
+                .make(makeAndModel[0])
+                .model(makeAndModel[1])
+                .manufactureYear(currentYear - i % (MAX_AGE + 1))
+                .sumInsured(BigDecimal.valueOf(sumInsured * 100, 2))
+                .coverage(CoverageType.STANDARD)
+                .risks(risks)
+                .build();
+    }
+}
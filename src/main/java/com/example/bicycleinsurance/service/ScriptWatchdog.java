@@ -0,0 +1,240 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.ScriptEngineProperties;
+import com.example.bicycleinsurance.exception.ScriptTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Stops script executions that exceed their time budget. Scripts are compiled with {@code ThreadInterrupt}, so
+ * their loops, closures and methods check the interrupt flag of their thread; a checker thread interrupts the
+ * threads whose current execution is past its deadline. The deadline of an execution is the earlier of the
+ * script budget and the deadline of the request it belongs to.
+ *
+ * <p>Each rating thread owns one execution slot it reuses, so entering and leaving a script costs a few field
+ * writes. The interrupt is handed over under a small state machine, so it never reaches a thread that already
+ * left the script, and the flag is cleared again before the thread goes on.
+ */
+@Slf4j
+final class ScriptWatchdog implements AutoCloseable {
+
+    private static final int IDLE = 0;
+    private static final int RUNNING = 1;
+    private static final int INTERRUPTING = 2;
+    private static final int INTERRUPTED = 3;
+
+    /**
+     * Budget of the request rated on the current thread, shared by all engines.
+     */
+    private static final ThreadLocal<RequestBudget> REQUEST_BUDGET = ThreadLocal.withInitial(RequestBudget::new);
+
+    private final long scriptTimeout;
+    private final long requestTimeout;
+    private final MeterRegistry meterRegistry;
+    private final Set<Execution> executions = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Execution> current = ThreadLocal.withInitial(this::register);
+    private final ScheduledExecutorService checker;
+
+    ScriptWatchdog(ScriptEngineProperties.Budget budget, MeterRegistry meterRegistry) {
+        this.scriptTimeout = nanos(budget.getScriptTimeout());
+        this.requestTimeout = nanos(budget.getRequestTimeout());
+        this.meterRegistry = meterRegistry;
+        if (scriptTimeout > 0 || requestTimeout > 0) {
+            long interval = Math.max(1, nanos(budget.getCheckInterval()));
+            checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "script-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checker.scheduleAtFixedRate(this::interruptExpired, interval, interval, TimeUnit.NANOSECONDS);
+            log.info("Script executions are limited to {} per script and {} per request",
+                    describe(budget.getScriptTimeout()), describe(budget.getRequestTimeout()));
+        } else {
+            checker = null;
+        }
+    }
+
+    /**
+     * @return the deadline of a request starting now, or 0 if requests have no budget.
+     */
+    long requestDeadline() {
+        return requestTimeout > 0 ? nonZero(System.nanoTime() + requestTimeout) : 0;
+    }
+
+    /**
+     * Runs the rating of a request, or of a part of it on another thread, with the scripts it executes limited
+     * by the request deadline. A deadline already set on the thread is kept if it is earlier. Once the request has
+     * timed out, its timeout is logged and counted once, not for every script it still tries to run.
+     *
+     * @param deadline Deadline from {@link #requestDeadline()}; 0 for none.
+     */
+    static <T> T withinRequest(long deadline, Supplier<T> rating) {
+        if (deadline == 0) {
+            return rating.get();
+        }
+        RequestBudget request = REQUEST_BUDGET.get();
+        long previous = request.deadline;
+        boolean previousTimedOut = request.timedOut;
+        if (previous == 0 || deadline - previous < 0) {
+            request.deadline = deadline;
+            request.timedOut = false;
+        }
+        try {
+            return rating.get();
+        } finally {
+            request.deadline = previous;
+            request.timedOut = previousTimedOut;
+        }
+    }
+
+    /**
+     * Whether the request rated on the current thread has run out of its budget, so its remaining scripts would
+     * only time out one by one.
+     */
+    static boolean isRequestTimedOut() {
+        return REQUEST_BUDGET.get().timedOut;
+    }
+
+    /**
+     * Starts the budget of a script execution on the current thread.
+     *
+     * @return The execution to pass to {@link #exit}, or null if the script runs without a budget.
+     * @throws ScriptTimeoutException if the request is already past its deadline.
+     */
+    Execution enter(String scriptName) {
+        if (checker == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        long deadline = scriptTimeout > 0 ? nonZero(now + scriptTimeout) : 0;
+        long requestDeadline = REQUEST_BUDGET.get().deadline;
+        boolean requestBudget = false;
+        if (requestDeadline != 0 && (deadline == 0 || requestDeadline - deadline < 0)) {
+            deadline = requestDeadline;
+            requestBudget = true;
+        }
+        if (deadline == 0) {
+            return null;
+        }
+        if (deadline - now <= 0) {
+            throw timeout(scriptName, true);
+        }
+        Execution execution = current.get();
+        execution.scriptName = scriptName;
+        execution.requestBudget = requestBudget;
+        execution.deadline = deadline;
+        execution.state.set(RUNNING);
+        return execution;
+    }
+
+    /**
+     * Ends the budget of a script execution. Called in a finally block; the timeout replaces any exception
+     * the interrupted script threw.
+     *
+     * @throws ScriptTimeoutException if the execution was interrupted for exceeding its budget.
+     */
+    void exit(Execution execution) {
+        if (execution == null || execution.state.compareAndSet(RUNNING, IDLE)) {
+            return;
+        }
+        while (execution.state.get() != INTERRUPTED) {
+            Thread.onSpinWait();
+        }
+        Thread.interrupted();
+        execution.state.set(IDLE);
+        throw timeout(execution.scriptName, execution.requestBudget);
+    }
+
+    @Override
+    public void close() {
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+    }
+
+    private void interruptExpired() {
+        long now = System.nanoTime();
+        for (Execution execution : executions) {
+            if (!execution.thread.isAlive()) {
+                executions.remove(execution);
+            } else if (execution.state.get() == RUNNING && now - execution.deadline >= 0
+                    && execution.state.compareAndSet(RUNNING, INTERRUPTING)) {
+                execution.thread.interrupt();
+                execution.state.set(INTERRUPTED);
+            }
+        }
+    }
+
+    /**
+     * Counts and logs a timeout, a request timeout only for the first script it stops on the current thread.
+     */
+    private ScriptTimeoutException timeout(String scriptName, boolean requestBudget) {
+        RequestBudget request = REQUEST_BUDGET.get();
+        if (!requestBudget || !request.timedOut) {
+            request.timedOut |= requestBudget;
+            Counter.builder("insurance.script.timeouts")
+                    .description("Script executions stopped for exceeding their time budget, once per request for the request budget")
+                    .tag("script", scriptName)
+                    .tag("budget", requestBudget ? "request" : "script")
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("Script {} stopped after exceeding the {} time budget", scriptName, requestBudget ? "request" : "script");
+        }
+        return new ScriptTimeoutException(requestBudget
+                ? "Script " + scriptName + " stopped: the request exceeded its time budget of " + Duration.ofNanos(requestTimeout).toMillis() + " ms"
+                : "Script " + scriptName + " stopped: it exceeded its time budget of " + Duration.ofNanos(scriptTimeout).toMillis() + " ms");
+    }
+
+    private Execution register() {
+        Execution execution = new Execution(Thread.currentThread());
+        executions.add(execution);
+        return execution;
+    }
+
+    private static long nanos(Duration duration) {
+        return duration != null && !duration.isNegative() ? duration.toNanos() : 0;
+    }
+
+    private static long nonZero(long deadline) {
+        return deadline != 0 ? deadline : 1;
+    }
+
+    private static String describe(Duration duration) {
+        return nanos(duration) > 0 ? duration.toMillis() + " ms" : "unlimited";
+    }
+
+    /**
+     * Deadline of the request rated on a thread, 0 for none, and whether the request already timed out.
+     */
+    private static final class RequestBudget {
+
+        private long deadline;
+        private boolean timedOut;
+    }
+
+    /**
+     * The execution slot of one rating thread.
+     */
+    static final class Execution {
+
+        private final Thread thread;
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+        private volatile long deadline;
+        private String scriptName;
+        private boolean requestBudget;
+
+        private Execution(Thread thread) {
+            this.thread = thread;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.dto.BicycleDto;
+import com.example.bicycleinsurance.dto.PremiumResponse;
+import com.example.bicycleinsurance.exception.CustomValidationException;
+import com.example.bicycleinsurance.exception.GlobalExceptionHandler.ErrorResponse;
+import com.example.bicycleinsurance.exception.RequestRejectedException;
+import com.example.bicycleinsurance.exception.ScriptExecutionException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Comparator;
+import java.util.Set;
+
+/**
+ * Rates newline-delimited JSON bicycle records one at a time. Each record is read, rated and
+ * written before the next one is parsed, so memory use does not depend on the input size and
+ * a slow client throttles reading of the input through the blocking writes. Records are admitted
+ * in chunks, see {@link RequestAdmission#admitStreamChunk()}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StreamingRatingService {
+
+    private final InsuranceService insuranceService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final RequestAdmission requestAdmission;
+
+    /**
+     * Reads BicycleDto records from the input and writes one ObjectPremium line per record.
+     * Records are bean-validated like the bicycles of a calculate request. A record that cannot
+     * be parsed, validated, admitted or rated ends the stream with a single error line.
+     *
+     * @param input  Newline-delimited BicycleDto records.
+     * @param output Target for the newline-delimited ObjectPremium records.
+     * @return The number of rated bicycles.
+     */
+    public long calculatePremiums(InputStream input, OutputStream output) throws IOException {
+        ObjectWriter premiumWriter = objectMapper.writerFor(PremiumResponse.ObjectPremium.class);
+        ObjectWriter errorWriter = objectMapper.writerFor(ErrorResponse.class);
+        long rated = 0;
+        RequestAdmission.Permit permit = null;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(input);
+             MappingIterator<BicycleDto> bicycles = objectMapper.readerFor(BicycleDto.class).readValues(parser);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.setRootValueSeparator(null);
+            try {
+                // Every record of the stream is rated as of the same date, even if the stream runs past midnight
+                RatingDate ratingDate = insuranceService.ratingDate();
+                int chunkWeight = requestAdmission.streamChunkWeight();
+                // Full, so the first record admits the first chunk
+                int admittedWeight = chunkWeight;
+                while (bicycles.hasNextValue()) {
+                    BicycleDto bicycle = validate(bicycles.nextValue());
+                    // A record heavier than a chunk is rated in a chunk of its own
+                    int weight = Math.min(RequestAdmission.weight(bicycle), chunkWeight);
+                    if (admittedWeight + weight > chunkWeight) {
+                        if (permit != null) {
+                            permit.close();
+                        }
+                        permit = requestAdmission.admitStreamChunk();
+                        admittedWeight = 0;
+                    }
+                    admittedWeight += weight;
+                    PremiumResponse.ObjectPremium objectPremium = insuranceService.calculateObjectPremium(bicycle, ratingDate);
+                    premiumWriter.writeValue(generator, objectPremium);
+                    generator.writeRaw('\n');
+                    generator.flush();
+                    rated++;
+                }
+            } catch (CustomValidationException e) {
+                writeError(errorWriter, generator, new ErrorResponse("VALIDATION_ERROR", e.getMessage()), rated);
+            } catch (ScriptExecutionException e) {
+                writeError(errorWriter, generator, new ErrorResponse("SCRIPT_EXECUTION_ERROR", e.getMessage()), rated);
+            } catch (RequestRejectedException e) {
+                boolean queueFull = e.getReason() == RequestRejectedException.Reason.QUEUE_FULL;
+                writeError(errorWriter, generator, new ErrorResponse(queueFull ? "TOO_MANY_REQUESTS" : "SERVICE_OVERLOADED", e.getMessage()), rated);
+            } catch (JsonProcessingException e) {
+                writeError(errorWriter, generator, new ErrorResponse("INVALID_RECORD", e.getOriginalMessage()), rated);
+            } catch (RuntimeException e) {
+                log.error("Unexpected failure rating streamed bicycle {}", rated + 1, e);
+                writeError(errorWriter, generator, new ErrorResponse("INTERNAL_ERROR", "Bicycle " + (rated + 1) + " could not be rated"), rated);
+            }
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
+        }
+
+        log.info("Streamed premiums for {} bicycles", rated);
+        return rated;
+    }
+
+    private BicycleDto validate(BicycleDto bicycle) {
+        if (bicycle == null) {
+            throw new CustomValidationException("Record must be a bicycle object");
+        }
+        Set<ConstraintViolation<BicycleDto>> violations = validator.validate(bicycle);
+        violations.stream()
+                .min(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                .ifPresent(violation -> {
+                    throw new CustomValidationException(violation.getMessage());
+                });
+        return bicycle;
+    }
+
+    private static void writeError(ObjectWriter errorWriter, JsonGenerator generator, ErrorResponse error, long rated) throws IOException {
+        log.warn("Premium stream stopped after {} bicycles: {}", rated, error.message());
+        errorWriter.writeValue(generator, error);
+        generator.writeRaw('\n');
+        generator.flush();
+    }
+}
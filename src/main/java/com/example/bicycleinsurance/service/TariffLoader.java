@@ -0,0 +1,62 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.TariffProperties;
+import com.example.bicycleinsurance.tariff.MappedTariff;
+import com.example.bicycleinsurance.tariff.TariffChangedEvent;
+import com.example.bicycleinsurance.tariff.TariffCsv;
+import com.example.bicycleinsurance.tariff.TariffFile;
+import com.example.bicycleinsurance.tariff.TariffRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Compiles the tariff CSV files into the binary tariff file when they changed since the last compilation
+ * and installs the memory-mapped result for the rating scripts. Loading again installs a tariff deployed
+ * since, and publishes a {@link TariffChangedEvent} if its content differs from the installed one.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TariffLoader {
+
+    private final TariffProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private Long installedChecksum;
+
+    @PostConstruct
+    public synchronized void load() throws IOException {
+        TariffCsv csv = properties.getCsvDir() != null
+                ? TariffCsv.fromDirectory(properties.getCsvDir())
+                : TariffCsv.fromClasspath(TariffRegistry.BUNDLED_LOCATION);
+        Path binaryFile = properties.getBinaryFile();
+        long checksum = csv.checksum();
+
+        if (!TariffFile.isCompiledFrom(binaryFile, checksum)) {
+            long start = System.nanoTime();
+            TariffFile.write(csv.toTables(), checksum, binaryFile);
+            log.info("Compiled tariff from {} to {} in {} ms", csv.location(), binaryFile, (System.nanoTime() - start) / 1_000_000);
+        }
+
+        TariffRegistry.use(MappedTariff.open(binaryFile));
+        log.info("Rating with memory-mapped tariff {}", binaryFile);
+
+        boolean changed = installedChecksum != null && installedChecksum != checksum;
+        installedChecksum = checksum;
+        if (changed) {
+            eventPublisher.publishEvent(new TariffChangedEvent(checksum));
+        }
+    }
+
+    /**
+     * Checksum of the CSV files of the installed tariff, or null before the first load.
+     */
+    public synchronized Long getInstalledChecksum() {
+        return installedChecksum;
+    }
+}
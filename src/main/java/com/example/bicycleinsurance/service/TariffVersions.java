@@ -0,0 +1,133 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.TariffProperties;
+import com.example.bicycleinsurance.exception.CustomValidationException;
+import com.example.bicycleinsurance.tariff.MappedTariff;
+import com.example.bicycleinsurance.tariff.TariffCsv;
+import com.example.bicycleinsurance.tariff.TariffFile;
+import com.example.bicycleinsurance.tariff.TariffVersion;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Resolves the rating date of a request and the effective-dated tariff version in effect on it. Versions are
+ * loaded on first use, their CSV files compiled to a binary tariff file per version like the deployed tariff, and
+ * at most {@link TariffProperties#getMaxLoadedVersions()} stay loaded. Releasing the least recently used version
+ * also releases the scripts compiled for it.
+ */
+@Component
+@Slf4j
+public class TariffVersions {
+
+    private static final String SCRIPT_DIR = "scripts";
+
+    private final TariffProperties properties;
+    private final GroovyScriptEngine groovyScriptEngine;
+    private final Clock clock;
+    private final NavigableMap<LocalDate, Path> directories = new TreeMap<>();
+    private final Map<LocalDate, TariffVersion> loaded = new LinkedHashMap<>(16, 0.75f, true);
+
+    @Autowired
+    public TariffVersions(TariffProperties properties, GroovyScriptEngine groovyScriptEngine) {
+        this(properties, groovyScriptEngine, Clock.systemDefaultZone());
+    }
+
+    public TariffVersions(TariffProperties properties, GroovyScriptEngine groovyScriptEngine, Clock clock) {
+        this.properties = properties;
+        this.groovyScriptEngine = groovyScriptEngine;
+        this.clock = clock;
+    }
+
+    /**
+     * Lists the versions in the versions directory. Versions are not expected to change once published, so those
+     * already loaded stay loaded.
+     */
+    @PostConstruct
+    public synchronized void scan() throws IOException {
+        Path versionsDir = properties.getVersionsDir();
+        if (versionsDir == null) {
+            return;
+        }
+        directories.clear();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(versionsDir, Files::isDirectory)) {
+            for (Path directory : entries) {
+                try {
+                    directories.put(LocalDate.parse(directory.getFileName().toString()), directory);
+                } catch (DateTimeParseException e) {
+                    log.warn("Ignoring tariff version directory {}, its name is not a date", directory);
+                }
+            }
+        }
+        log.info("Rating with {} effective-dated tariff versions from {}", directories.size(), versionsDir);
+    }
+
+    /**
+     * @return the dates the listed tariff versions take effect, in ascending order.
+     */
+    public synchronized List<LocalDate> effectiveDates() {
+        return List.copyOf(directories.keySet());
+    }
+
+    /**
+     * @param requested Rating date of the request, or null to rate as of today.
+     * @throws CustomValidationException if no tariff version is in effect on the date.
+     */
+    public RatingDate resolve(LocalDate requested) {
+        LocalDate date = requested != null ? requested : LocalDate.now(clock);
+        return new RatingDate(date, properties.getVersionsDir() != null ? tariffVersion(date) : null);
+    }
+
+    private synchronized TariffVersion tariffVersion(LocalDate date) {
+        Map.Entry<LocalDate, Path> entry = directories.floorEntry(date);
+        if (entry == null) {
+            throw new CustomValidationException("No tariff version is in effect on " + date);
+        }
+        TariffVersion version = loaded.get(entry.getKey());
+        if (version == null) {
+            version = load(entry.getKey(), entry.getValue());
+            loaded.put(entry.getKey(), version);
+            Iterator<TariffVersion> leastRecentlyUsed = loaded.values().iterator();
+            while (loaded.size() > Math.max(1, properties.getMaxLoadedVersions())) {
+                TariffVersion released = leastRecentlyUsed.next();
+                leastRecentlyUsed.remove();
+                groovyScriptEngine.retire(released);
+                log.info("Released tariff version {}", released.effectiveFrom());
+            }
+        }
+        return version;
+    }
+
+    private TariffVersion load(LocalDate effectiveFrom, Path directory) {
+        try {
+            TariffCsv csv = TariffCsv.fromDirectory(directory);
+            Path binaryFile = properties.getBinaryFile().resolveSibling("tariff-" + effectiveFrom + ".bin");
+            long checksum = csv.checksum();
+            if (!TariffFile.isCompiledFrom(binaryFile, checksum)) {
+                TariffFile.write(csv.toTables(), checksum, binaryFile);
+                log.info("Compiled tariff version {} from {} to {}", effectiveFrom, directory, binaryFile);
+            }
+            Path scriptDir = directory.resolve(SCRIPT_DIR);
+            return new TariffVersion(effectiveFrom, MappedTariff.open(binaryFile),
+                    Files.isDirectory(scriptDir) ? scriptDir : null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load tariff version " + effectiveFrom + " from " + directory, e);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.bicycleinsurance.tariff;
+
+import java.util.Map;
+
+/**
+ * Age factor bands indexed by make and model. A lookup tries the make/model bands first,
+ * then the bands defined for the make only and finally the global bands.
+ */
+public final class AgeFactorTable {
+
+    private final Map<String, Map<String, FactorTable>> byMakeAndModel;
+    private final Map<String, FactorTable> byMake;
+    private final FactorTable global;
+
+    AgeFactorTable(Map<String, Map<String, FactorTable>> byMakeAndModel, Map<String, FactorTable> byMake, FactorTable global) {
+        this.byMakeAndModel = byMakeAndModel;
+        this.byMake = byMake;
+        this.global = global;
+    }
+
+    /**
+     * Finds the age factor band for a bicycle.
+     *
+     * @return the most specific matching band, or null if no band covers the age.
+     */
+    public FactorBand find(String make, String model, int age) {
+        Map<String, FactorTable> models = byMakeAndModel.get(make);
+        if (models != null) {
+            FactorTable table = models.get(model);
+            if (table != null) {
+                FactorBand band = table.find(age);
+                if (band != null) {
+                    return band;
+                }
+            }
+        }
+        FactorTable makeTable = byMake.get(make);
+        if (makeTable != null) {
+            FactorBand band = makeTable.find(age);
+            if (band != null) {
+                return band;
+            }
+        }
+        return global.find(age);
+    }
+
+    Map<String, Map<String, FactorTable>> byMakeAndModel() {
+        return byMakeAndModel;
+    }
+
+    Map<String, FactorTable> byMake() {
+        return byMake;
+    }
+
+    FactorTable global() {
+        return global;
+    }
+}
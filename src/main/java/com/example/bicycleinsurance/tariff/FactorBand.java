@@ -0,0 +1,14 @@
+package com.example.bicycleinsurance.tariff;
+
+import java.math.BigDecimal;
+
+/**
+ * A single tariff row: a closed value interval [valueFrom, valueTo] with the factors
+ * used for linear interpolation at its bounds.
+ */
+public record FactorBand(BigDecimal valueFrom, BigDecimal valueTo, BigDecimal factorMin, BigDecimal factorMax) {
+
+    public boolean contains(BigDecimal value) {
+        return value.compareTo(valueFrom) >= 0 && value.compareTo(valueTo) <= 0;
+    }
+}
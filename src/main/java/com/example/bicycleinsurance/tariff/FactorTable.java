@@ -0,0 +1,60 @@
+package com.example.bicycleinsurance.tariff;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable set of non-overlapping factor bands sorted by their lower bound.
+ * Lookups use binary search instead of scanning the rows one by one.
+ */
+public final class FactorTable {
+
+    private final FactorBand[] bands;
+
+    private FactorTable(FactorBand[] bands) {
+        this.bands = bands;
+    }
+
+    public static FactorTable of(List<FactorBand> bands) {
+        FactorBand[] sorted = bands.toArray(new FactorBand[0]);
+        Arrays.sort(sorted, Comparator.comparing(FactorBand::valueFrom));
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i].valueFrom().compareTo(sorted[i - 1].valueTo()) <= 0) {
+                throw new IllegalArgumentException("Overlapping factor bands: " + sorted[i - 1] + " and " + sorted[i]);
+            }
+        }
+        return new FactorTable(sorted);
+    }
+
+    /**
+     * Finds the band containing the given value.
+     *
+     * @return the matching band, or null if the value falls outside every band.
+     */
+    public FactorBand find(BigDecimal value) {
+        int low = 0;
+        int high = bands.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            FactorBand band = bands[mid];
+            if (value.compareTo(band.valueFrom()) < 0) {
+                high = mid - 1;
+            } else if (value.compareTo(band.valueTo()) > 0) {
+                low = mid + 1;
+            } else {
+                return band;
+            }
+        }
+        return null;
+    }
+
+    public FactorBand find(int value) {
+        return find(BigDecimal.valueOf(value));
+    }
+
+    public List<FactorBand> bands() {
+        return List.of(bands);
+    }
+}
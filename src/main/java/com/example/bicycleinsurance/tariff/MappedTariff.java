@@ -0,0 +1,216 @@
+package com.example.bicycleinsurance.tariff;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tariff read from a memory-mapped {@link TariffFile}. Only the name dictionary is copied to the heap;
+ * band and premium lookups binary search the mapped columns, so opening is cheap and the heap footprint
+ * does not grow with the number of tariff rows.
+ */
+public final class MappedTariff implements Tariff {
+
+    static final int BAND_COLUMNS = 4;
+    static final int VALUE_FROM = 0;
+    static final int VALUE_TO = 1;
+    static final int FACTOR_MIN = 2;
+    static final int FACTOR_MAX = 3;
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final Map<String, Integer> dictionary;
+    private final String[] names;
+    private final int basePremiumCount;
+    private final int basePremiumsAt;
+    private final Bands sumInsuredFactors;
+    private final Bands riskCountFactors;
+    private final Bands globalAgeFactors;
+    private final int groupCount;
+    private final int groupKeysAt;
+    private final int groupOffsetsAt;
+    private final Bands groupAgeFactors;
+
+    private MappedTariff(Path file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.limit() < TariffFile.HEADER_SIZE || buffer.getInt(0) != TariffFile.MAGIC) {
+            throw new IOException("Not a tariff file: " + file);
+        }
+        if (buffer.getInt(4) != TariffFile.FORMAT_VERSION) {
+            throw new IOException("Unsupported tariff file format " + buffer.getInt(4) + ": " + file);
+        }
+
+        ByteBuffer reader = buffer.duplicate().position(TariffFile.HEADER_SIZE);
+        int dictionarySize = reader.getInt();
+        dictionary = new HashMap<>(dictionarySize * 2);
+        names = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            byte[] bytes = new byte[Short.toUnsignedInt(reader.getShort())];
+            reader.get(bytes);
+            names[i] = new String(bytes, StandardCharsets.UTF_8);
+            dictionary.put(names[i], i);
+        }
+
+        basePremiumCount = reader.getInt();
+        basePremiumsAt = reader.position();
+        reader.position(basePremiumsAt + basePremiumCount * (Integer.BYTES + Long.BYTES + Byte.BYTES));
+
+        sumInsuredFactors = new Bands(reader);
+        riskCountFactors = new Bands(reader);
+        globalAgeFactors = new Bands(reader);
+
+        groupCount = reader.getInt();
+        groupKeysAt = reader.position();
+        groupOffsetsAt = groupKeysAt + groupCount * Long.BYTES;
+        reader.position(groupOffsetsAt + (groupCount + 1) * Integer.BYTES);
+        groupAgeFactors = new Bands(reader);
+    }
+
+    /**
+     * Maps the tariff file read only. The mapping stays valid after the channel is closed and is released
+     * together with this object.
+     */
+    public static MappedTariff open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MappedTariff(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Checksum of the CSV sources this file was compiled from.
+     */
+    public long checksum() {
+        return buffer.getLong(8);
+    }
+
+    @Override
+    public String name(String name) {
+        Integer entry = name != null ? dictionary.get(name) : null;
+        return entry != null ? names[entry] : name;
+    }
+
+    @Override
+    public BigDecimal riskBasePremium(String riskType) {
+        Integer entry = dictionary.get(riskType);
+        if (entry == null) {
+            return null;
+        }
+        for (int i = 0; i < basePremiumCount; i++) {
+            if (buffer.getInt(basePremiumsAt + i * Integer.BYTES) == entry) {
+                int unscaledAt = basePremiumsAt + basePremiumCount * Integer.BYTES;
+                int scalesAt = unscaledAt + basePremiumCount * Long.BYTES;
+                return BigDecimal.valueOf(buffer.getLong(unscaledAt + i * Long.BYTES), buffer.get(scalesAt + i));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public FactorBand sumInsuredFactor(BigDecimal sumInsured) {
+        return sumInsuredFactors.find(sumInsured, 0, sumInsuredFactors.count);
+    }
+
+    @Override
+    public FactorBand riskCountFactor(int riskCount) {
+        return riskCountFactors.find(BigDecimal.valueOf(riskCount), 0, riskCountFactors.count);
+    }
+
+    @Override
+    public FactorBand ageFactor(String make, String model, int age) {
+        BigDecimal value = BigDecimal.valueOf(age);
+        Integer makeEntry = make != null ? dictionary.get(make) : null;
+        if (makeEntry != null) {
+            Integer modelEntry = model != null ? dictionary.get(model) : null;
+            if (modelEntry != null) {
+                FactorBand band = findInGroup(groupKey(makeEntry, modelEntry), value);
+                if (band != null) {
+                    return band;
+                }
+            }
+            FactorBand band = findInGroup(groupKey(makeEntry, -1), value);
+            if (band != null) {
+                return band;
+            }
+        }
+        return globalAgeFactors.find(value, 0, globalAgeFactors.count);
+    }
+
+    /**
+     * Key of the age bands of a make and model, or of a make only when the model entry is -1.
+     */
+    static long groupKey(int makeEntry, int modelEntry) {
+        return ((long) makeEntry << 32) | (modelEntry + 1);
+    }
+
+    private FactorBand findInGroup(long key, BigDecimal value) {
+        int low = 0;
+        int high = groupCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = buffer.getLong(groupKeysAt + mid * Long.BYTES);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                int from = buffer.getInt(groupOffsetsAt + mid * Integer.BYTES);
+                int to = buffer.getInt(groupOffsetsAt + (mid + 1) * Integer.BYTES);
+                return groupAgeFactors.find(value, from, to);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One bands section of the mapped file.
+     */
+    private final class Bands {
+
+        private final int count;
+        private final int columnsAt;
+        private final int scalesAt;
+
+        Bands(ByteBuffer reader) {
+            count = reader.getInt();
+            columnsAt = reader.position();
+            scalesAt = columnsAt + BAND_COLUMNS * count * Long.BYTES;
+            reader.position(scalesAt + BAND_COLUMNS * count);
+        }
+
+        /**
+         * Binary search for the band containing the value among the bands [from, to), sorted by VALUE_FROM.
+         */
+        FactorBand find(BigDecimal value, int from, int to) {
+            int low = from;
+            int high = to - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (value.compareTo(decimal(VALUE_FROM, mid)) < 0) {
+                    high = mid - 1;
+                } else if (value.compareTo(decimal(VALUE_TO, mid)) > 0) {
+                    low = mid + 1;
+                } else {
+                    return new FactorBand(decimal(VALUE_FROM, mid), decimal(VALUE_TO, mid),
+                            decimal(FACTOR_MIN, mid), decimal(FACTOR_MAX, mid));
+                }
+            }
+            return null;
+        }
+
+        private BigDecimal decimal(int column, int index) {
+            return BigDecimal.valueOf(buffer.getLong(columnsAt + (column * count + index) * Long.BYTES),
+                    buffer.get(scalesAt + column * count + index));
+        }
+    }
+}
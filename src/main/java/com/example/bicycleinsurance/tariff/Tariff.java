@@ -0,0 +1,38 @@
+package com.example.bicycleinsurance.tariff;
+
+import java.math.BigDecimal;
+
+/**
+ * Lookups of the rating tariff used by {@code BaseScript}. Implementations are immutable and thread safe.
+ */
+public interface Tariff {
+
+    /**
+     * @return the base premium of the risk, or null if the risk is not in the tariff.
+     */
+    BigDecimal riskBasePremium(String riskType);
+
+    /**
+     * @return the band containing the sum insured, or null if no band covers it.
+     */
+    FactorBand sumInsuredFactor(BigDecimal sumInsured);
+
+    /**
+     * @return the band containing the risk count, or null if no band covers it.
+     */
+    FactorBand riskCountFactor(int riskCount);
+
+    /**
+     * @return the most specific age band of the bicycle (make and model, then make, then global),
+     * or null if no band covers the age.
+     */
+    FactorBand ageFactor(String make, String model, int age);
+
+    /**
+     * @return the tariff's own instance of a make or model name it knows, so bicycles of the same make share
+     * one string, otherwise the given name.
+     */
+    default String name(String name) {
+        return name;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.bicycleinsurance.tariff;
+
+/**
+ * A rating script that can be bound to the tariff of a version instead of the one installed in
+ * {@link TariffRegistry}.
+ */
+public interface TariffAware {
+
+    /**
+     * @param tariff Tariff used by all lookups of this instance.
+     */
+    void useTariff(Tariff tariff);
+}
@@ -0,0 +1,9 @@
+package com.example.bicycleinsurance.tariff;
+
+/**
+ * Published when a tariff with different content than the previous one was installed.
+ *
+ * @param checksum Checksum of the CSV files of the new tariff.
+ */
+public record TariffChangedEvent(long checksum) {
+}
@@ -0,0 +1,139 @@
+package com.example.bicycleinsurance.tariff;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The tariff as maintained by the actuaries: one CSV file per table with a header row naming the
+ * columns of the tariff row layout (MAKE, MODEL, VALUE_FROM, VALUE_TO, FACTOR_MIN, FACTOR_MAX,
+ * RISK_TYPE and PREMIUM). Empty cells are treated as missing, fields may be double quoted.
+ */
+public final class TariffCsv {
+
+    public static final String AGE_FACTORS = "age_factors.csv";
+    public static final String RISK_COUNT_FACTORS = "risk_count_factors.csv";
+    public static final String SUM_INSURED_FACTORS = "sum_insured_factors.csv";
+    public static final String RISK_BASE_PREMIUMS = "risk_base_premiums.csv";
+
+    private static final List<String> FILE_NAMES = List.of(AGE_FACTORS, RISK_COUNT_FACTORS, SUM_INSURED_FACTORS, RISK_BASE_PREMIUMS);
+
+    private final String location;
+    private final Map<String, byte[]> files;
+
+    private TariffCsv(String location, Map<String, byte[]> files) {
+        this.location = location;
+        this.files = files;
+    }
+
+    public static TariffCsv fromDirectory(Path directory) throws IOException {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        for (String fileName : FILE_NAMES) {
+            files.put(fileName, Files.readAllBytes(directory.resolve(fileName)));
+        }
+        return new TariffCsv(directory.toString(), files);
+    }
+
+    /**
+     * Reads the CSV files from a classpath directory such as {@code tariff/}.
+     */
+    public static TariffCsv fromClasspath(String directory) throws IOException {
+        ClassLoader classLoader = TariffCsv.class.getClassLoader();
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        for (String fileName : FILE_NAMES) {
+            try (InputStream inputStream = classLoader.getResourceAsStream(directory + fileName)) {
+                if (inputStream == null) {
+                    throw new IOException("Tariff file not found on classpath: " + directory + fileName);
+                }
+                files.put(fileName, inputStream.readAllBytes());
+            }
+        }
+        return new TariffCsv("classpath:" + directory, files);
+    }
+
+    public String location() {
+        return location;
+    }
+
+    /**
+     * CRC32 over the content of all files, used to tell whether a compiled tariff file is up to date.
+     */
+    public long checksum() {
+        CRC32 crc = new CRC32();
+        files.values().forEach(crc::update);
+        return crc.getValue();
+    }
+
+    /**
+     * Parses and indexes the tables. Fails on malformed rows and overlapping bands.
+     */
+    public TariffTables toTables() {
+        return TariffTables.fromRows(rows(AGE_FACTORS), rows(RISK_COUNT_FACTORS), rows(SUM_INSURED_FACTORS), rows(RISK_BASE_PREMIUMS));
+    }
+
+    List<Map<String, String>> rows(String fileName) {
+        String[] lines = new String(files.get(fileName), StandardCharsets.UTF_8).split("\r?\n");
+        if (lines.length == 0 || lines[0].isBlank()) {
+            throw new IllegalArgumentException("Missing header row in tariff file " + fileName);
+        }
+        List<String> header = fields(lines[0], fileName, 1);
+        List<Map<String, String>> rows = new ArrayList<>(lines.length - 1);
+        for (int i = 1; i < lines.length; i++) {
+            if (lines[i].isBlank()) {
+                continue;
+            }
+            List<String> fields = fields(lines[i], fileName, i + 1);
+            if (fields.size() != header.size()) {
+                throw new IllegalArgumentException("Expected " + header.size() + " fields in " + fileName + " line " + (i + 1)
+                        + " but found " + fields.size());
+            }
+            Map<String, String> row = new HashMap<>();
+            for (int column = 0; column < fields.size(); column++) {
+                if (!fields.get(column).isEmpty()) {
+                    row.put(header.get(column), fields.get(column));
+                }
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static List<String> fields(String line, String fileName, int lineNumber) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quote in " + fileName + " line " + lineNumber);
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+}
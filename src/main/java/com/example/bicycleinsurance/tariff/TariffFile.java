@@ -0,0 +1,173 @@
+package com.example.bicycleinsurance.tariff;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compact columnar binary layout of the tariff, read back by {@link MappedTariff}. All numbers are big endian.
+ *
+ * <pre>
+ * header        int magic, int format version, long checksum of the CSV sources
+ * dictionary    int count, then per entry: unsigned short length and UTF-8 bytes (makes, models, risk types)
+ * base premiums int count, int[count] risk type entry, long[count] unscaled premium, byte[count] scale
+ * bands         sum insured, risk count and global age bands
+ * age groups    int count, long[count] sorted make/model keys, int[count + 1] band offsets, bands of all groups
+ * </pre>
+ *
+ * A bands section is one int count followed by the columns VALUE_FROM, VALUE_TO, FACTOR_MIN and FACTOR_MAX
+ * as long[count] unscaled values each and then their byte[count] scales in the same column order, so every
+ * decimal keeps exactly the value and scale it had in the CSV file.
+ */
+public final class TariffFile {
+
+    static final int MAGIC = 0x42545246;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    private TariffFile() {
+    }
+
+    /**
+     * Writes the tables to a temporary file next to the target and moves it into place, so readers never
+     * see a partially written tariff.
+     */
+    public static void write(TariffTables tables, long checksum, Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                write(tables, checksum, out);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Whether the file is a tariff file of the current format compiled from sources with the given checksum.
+     */
+    public static boolean isCompiledFrom(Path file, long checksum) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            byte[] header = inputStream.readNBytes(HEADER_SIZE);
+            if (header.length < HEADER_SIZE) {
+                return false;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(header));
+            return in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION && in.readLong() == checksum;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static void write(TariffTables tables, long checksum, DataOutputStream out) throws IOException {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        AgeFactorTable ageFactors = tables.ageFactors();
+
+        TreeMap<Long, List<FactorBand>> groups = new TreeMap<>();
+        ageFactors.byMakeAndModel().forEach((make, models) -> models.forEach((model, table) ->
+                groups.put(MappedTariff.groupKey(entry(dictionary, make), entry(dictionary, model)), table.bands())));
+        ageFactors.byMake().forEach((make, table) ->
+                groups.put(MappedTariff.groupKey(entry(dictionary, make), -1), table.bands()));
+        Map<String, BigDecimal> basePremiums = new TreeMap<>(tables.riskBasePremiums());
+        basePremiums.keySet().forEach(riskType -> entry(dictionary, riskType));
+
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(checksum);
+
+        out.writeInt(dictionary.size());
+        for (String value : dictionary.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IllegalArgumentException("Tariff name too long: " + value);
+            }
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+
+        out.writeInt(basePremiums.size());
+        for (String riskType : basePremiums.keySet()) {
+            out.writeInt(dictionary.get(riskType));
+        }
+        for (BigDecimal premium : basePremiums.values()) {
+            out.writeLong(unscaled(premium));
+        }
+        for (BigDecimal premium : basePremiums.values()) {
+            out.writeByte(scale(premium));
+        }
+
+        writeBands(tables.sumInsuredFactors().bands(), out);
+        writeBands(tables.riskCountFactors().bands(), out);
+        writeBands(ageFactors.global().bands(), out);
+
+        out.writeInt(groups.size());
+        for (long key : groups.keySet()) {
+            out.writeLong(key);
+        }
+        List<FactorBand> groupBands = new ArrayList<>();
+        out.writeInt(0);
+        for (List<FactorBand> bands : groups.values()) {
+            groupBands.addAll(bands);
+            out.writeInt(groupBands.size());
+        }
+        writeBands(groupBands, out);
+    }
+
+    private static void writeBands(List<FactorBand> bands, DataOutputStream out) throws IOException {
+        out.writeInt(bands.size());
+        for (int column = 0; column < MappedTariff.BAND_COLUMNS; column++) {
+            for (FactorBand band : bands) {
+                out.writeLong(unscaled(column(band, column)));
+            }
+        }
+        for (int column = 0; column < MappedTariff.BAND_COLUMNS; column++) {
+            for (FactorBand band : bands) {
+                out.writeByte(scale(column(band, column)));
+            }
+        }
+    }
+
+    private static BigDecimal column(FactorBand band, int column) {
+        return switch (column) {
+            case MappedTariff.VALUE_FROM -> band.valueFrom();
+            case MappedTariff.VALUE_TO -> band.valueTo();
+            case MappedTariff.FACTOR_MIN -> band.factorMin();
+            default -> band.factorMax();
+        };
+    }
+
+    private static int entry(Map<String, Integer> dictionary, String value) {
+        return dictionary.computeIfAbsent(value, k -> dictionary.size());
+    }
+
+    private static long unscaled(BigDecimal value) {
+        if (value.unscaledValue().bitLength() > 63) {
+            throw new IllegalArgumentException("Tariff value has too many digits: " + value);
+        }
+        return value.unscaledValue().longValue();
+    }
+
+    private static int scale(BigDecimal value) {
+        if (value.scale() < Byte.MIN_VALUE || value.scale() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Tariff value scale out of range: " + value);
+        }
+        return value.scale();
+    }
+}
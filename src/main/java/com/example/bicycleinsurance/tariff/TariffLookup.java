@@ -0,0 +1,45 @@
+package com.example.bicycleinsurance.tariff;
+
+import java.math.BigDecimal;
+
+/**
+ * One lookup a rating made in the tariff, identified by its table and inputs. Looking it up again in another
+ * tariff version tells whether the rating depends on a row that changed.
+ */
+public record TariffLookup(Table table, String riskType, String make, String model, BigDecimal value) {
+
+    public enum Table {
+        RISK_BASE_PREMIUM,
+        SUM_INSURED_FACTOR,
+        RISK_COUNT_FACTOR,
+        AGE_FACTOR
+    }
+
+    public static TariffLookup riskBasePremium(String riskType) {
+        return new TariffLookup(Table.RISK_BASE_PREMIUM, riskType, null, null, null);
+    }
+
+    public static TariffLookup sumInsuredFactor(BigDecimal sumInsured) {
+        return new TariffLookup(Table.SUM_INSURED_FACTOR, null, null, null, sumInsured);
+    }
+
+    public static TariffLookup riskCountFactor(int riskCount) {
+        return new TariffLookup(Table.RISK_COUNT_FACTOR, null, null, null, BigDecimal.valueOf(riskCount));
+    }
+
+    public static TariffLookup ageFactor(String make, String model, int age) {
+        return new TariffLookup(Table.AGE_FACTOR, null, make, model, BigDecimal.valueOf(age));
+    }
+
+    /**
+     * @return the base premium or factor band the tariff returns for this lookup, or null if it has none.
+     */
+    public Object resolve(Tariff tariff) {
+        return switch (table) {
+            case RISK_BASE_PREMIUM -> tariff.riskBasePremium(riskType);
+            case SUM_INSURED_FACTOR -> tariff.sumInsuredFactor(value);
+            case RISK_COUNT_FACTOR -> tariff.riskCountFactor(value.intValueExact());
+            case AGE_FACTOR -> tariff.ageFactor(make, model, value.intValueExact());
+        };
+    }
+}
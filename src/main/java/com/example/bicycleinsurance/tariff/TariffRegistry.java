@@ -0,0 +1,40 @@
+package com.example.bicycleinsurance.tariff;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Holds the tariff used by the rating scripts. Until the application installs a compiled tariff,
+ * the CSV files bundled under {@code tariff/} on the classpath are used.
+ */
+public final class TariffRegistry {
+
+    public static final String BUNDLED_LOCATION = "tariff/";
+
+    private static volatile Tariff current;
+
+    private TariffRegistry() {
+    }
+
+    public static Tariff current() {
+        Tariff tariff = current;
+        return tariff != null ? tariff : Bundled.TARIFF;
+    }
+
+    public static void use(Tariff tariff) {
+        current = tariff;
+    }
+
+    private static final class Bundled {
+
+        private static final Tariff TARIFF = load();
+
+        private static Tariff load() {
+            try {
+                return TariffCsv.fromClasspath(BUNDLED_LOCATION).toTables();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read the bundled tariff", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.bicycleinsurance.tariff;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexed, immutable view of the rating tariff. Built once from the raw tariff rows and shared
+ * by every script instance.
+ */
+public final class TariffTables implements Tariff {
+
+    private final Map<String, BigDecimal> riskBasePremiums;
+    private final FactorTable sumInsuredFactors;
+    private final FactorTable riskCountFactors;
+    private final AgeFactorTable ageFactors;
+    private final Map<String, String> names;
+
+    private TariffTables(Map<String, BigDecimal> riskBasePremiums, FactorTable sumInsuredFactors,
+                         FactorTable riskCountFactors, AgeFactorTable ageFactors) {
+        this.riskBasePremiums = riskBasePremiums;
+        this.sumInsuredFactors = sumInsuredFactors;
+        this.riskCountFactors = riskCountFactors;
+        this.ageFactors = ageFactors;
+        Map<String, String> names = new HashMap<>();
+        ageFactors.byMake().keySet().forEach(make -> names.put(make, make));
+        ageFactors.byMakeAndModel().forEach((make, models) -> {
+            names.putIfAbsent(make, make);
+            models.keySet().forEach(model -> names.putIfAbsent(model, model));
+        });
+        this.names = Map.copyOf(names);
+    }
+
+    /**
+     * Builds the tables from rows in the tariff literal layout (MAKE, MODEL, VALUE_FROM, VALUE_TO,
+     * FACTOR_MIN, FACTOR_MAX, RISK_TYPE and PREMIUM keys).
+     */
+    public static TariffTables fromRows(List<? extends Map<String, ?>> ageFactorRows,
+                                        List<? extends Map<String, ?>> riskCountFactorRows,
+                                        List<? extends Map<String, ?>> sumInsuredFactorRows,
+                                        List<? extends Map<String, ?>> riskBasePremiumRows) {
+        Map<String, BigDecimal> basePremiums = new HashMap<>();
+        for (Map<String, ?> row : riskBasePremiumRows) {
+            basePremiums.put((String) row.get("RISK_TYPE"), decimal(row, "PREMIUM"));
+        }
+
+        Map<String, Map<String, List<FactorBand>>> makeModelBands = new LinkedHashMap<>();
+        Map<String, List<FactorBand>> makeBands = new LinkedHashMap<>();
+        List<FactorBand> globalBands = new ArrayList<>();
+        for (Map<String, ?> row : ageFactorRows) {
+            String make = (String) row.get("MAKE");
+            String model = (String) row.get("MODEL");
+            FactorBand band = band(row);
+            if (make != null && model != null) {
+                makeModelBands.computeIfAbsent(make, k -> new LinkedHashMap<>())
+                        .computeIfAbsent(model, k -> new ArrayList<>())
+                        .add(band);
+            } else if (make != null) {
+                makeBands.computeIfAbsent(make, k -> new ArrayList<>()).add(band);
+            } else if (model == null) {
+                globalBands.add(band);
+            }
+        }
+
+        Map<String, Map<String, FactorTable>> byMakeAndModel = new HashMap<>();
+        makeModelBands.forEach((make, models) -> {
+            Map<String, FactorTable> tables = new HashMap<>();
+            models.forEach((model, bands) -> tables.put(model, FactorTable.of(bands)));
+            byMakeAndModel.put(make, Map.copyOf(tables));
+        });
+        Map<String, FactorTable> byMake = new HashMap<>();
+        makeBands.forEach((make, bands) -> byMake.put(make, FactorTable.of(bands)));
+
+        return new TariffTables(
+                Map.copyOf(basePremiums),
+                FactorTable.of(bands(sumInsuredFactorRows)),
+                FactorTable.of(bands(riskCountFactorRows)),
+                new AgeFactorTable(Map.copyOf(byMakeAndModel), Map.copyOf(byMake), FactorTable.of(globalBands)));
+    }
+
+    @Override
+    public String name(String name) {
+        return name != null ? names.getOrDefault(name, name) : null;
+    }
+
+    @Override
+    public BigDecimal riskBasePremium(String riskType) {
+        return riskBasePremiums.get(riskType);
+    }
+
+    @Override
+    public FactorBand sumInsuredFactor(BigDecimal sumInsured) {
+        return sumInsuredFactors.find(sumInsured);
+    }
+
+    @Override
+    public FactorBand riskCountFactor(int riskCount) {
+        return riskCountFactors.find(riskCount);
+    }
+
+    @Override
+    public FactorBand ageFactor(String make, String model, int age) {
+        return ageFactors.find(make, model, age);
+    }
+
+    Map<String, BigDecimal> riskBasePremiums() {
+        return riskBasePremiums;
+    }
+
+    public FactorTable sumInsuredFactors() {
+        return sumInsuredFactors;
+    }
+
+    public FactorTable riskCountFactors() {
+        return riskCountFactors;
+    }
+
+    public AgeFactorTable ageFactors() {
+        return ageFactors;
+    }
+
+    private static List<FactorBand> bands(List<? extends Map<String, ?>> rows) {
+        List<FactorBand> bands = new ArrayList<>(rows.size());
+        for (Map<String, ?> row : rows) {
+            bands.add(band(row));
+        }
+        return bands;
+    }
+
+    private static FactorBand band(Map<String, ?> row) {
+        return new FactorBand(decimal(row, "VALUE_FROM"), decimal(row, "VALUE_TO"),
+                decimal(row, "FACTOR_MIN"), decimal(row, "FACTOR_MAX"));
+    }
+
+    private static BigDecimal decimal(Map<String, ?> row, String key) {
+        Object value = row.get(key);
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + key + " in tariff row: " + row);
+        }
+        return new BigDecimal(value.toString());
+    }
+}
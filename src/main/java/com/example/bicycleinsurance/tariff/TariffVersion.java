@@ -0,0 +1,13 @@
+package com.example.bicycleinsurance.tariff;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * A tariff version in effect from a date on, until the next version takes effect.
+ *
+ * @param tariff    Tables of the version.
+ * @param scriptDir Directory of rating scripts overriding the deployed ones for this version, or null.
+ */
+public record TariffVersion(LocalDate effectiveFrom, Tariff tariff, Path scriptDir) {
+}
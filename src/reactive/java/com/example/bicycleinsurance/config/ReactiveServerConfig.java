@@ -0,0 +1,21 @@
+package com.example.bicycleinsurance.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Server of the reactive stack, selected with the {@code reactive} profile. Both stacks are on the classpath, and
+ * without this factory Spring Boot would run the reactive stack on Tomcat; Netty serves it from a small event loop
+ * instead of a request thread pool.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveServerConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.bicycleinsurance.controller;
+
+import com.example.bicycleinsurance.dto.BicycleDto;
+import com.example.bicycleinsurance.dto.PremiumRequest;
+import com.example.bicycleinsurance.dto.PremiumResponse;
+import com.example.bicycleinsurance.service.InsuranceService;
+import com.example.bicycleinsurance.service.RequestAdmission;
+import io.swagger.v3.oas.annotations.Operation;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * The calculate API on the reactive stack ({@code reactive} profile). Requests are read and answered on the event
+ * loop; admission and rating block, so they run on the bounded elastic scheduler and a request waiting for either
+ * holds no event loop thread. It still holds a bounded elastic thread, so requests in flight remain limited by a
+ * thread pool. The streaming and job endpoints are only served by the servlet stack.
+ */
+@RestController
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveInsuranceController {
+
+    private final InsuranceService insuranceService;
+    private final RequestAdmission requestAdmission;
+
+    @Operation(summary = "Calculate premiums for bicycle insurance policies",
+            description = "Same as the calculate operation of the servlet stack.")
+    @PostMapping("/calculate")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<PremiumResponse> calculatePremium(@RequestBody @Valid PremiumRequest request) {
+        return Mono.fromCallable(() -> rate(request))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private PremiumResponse rate(PremiumRequest request) {
+        List<BicycleDto> bicycles = request.getBicycles();
+        try (RequestAdmission.Permit permit = requestAdmission.admit(bicycles)) {
+            return request.isExplain()
+                    ? insuranceService.explainPremium(bicycles, request.getRatingDate())
+                    : insuranceService.calculatePremium(bicycles, request.getRatingDate());
+        }
+    }
+}
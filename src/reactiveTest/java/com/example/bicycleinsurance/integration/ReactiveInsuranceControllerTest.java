@@ -0,0 +1,109 @@
+package com.example.bicycleinsurance.integration;
+
+import com.example.bicycleinsurance.config.BinaryFormatsConfig;
+import com.example.bicycleinsurance.config.ReactiveFormatsConfig;
+import com.example.bicycleinsurance.controller.ReactiveInsuranceController;
+import com.example.bicycleinsurance.dto.PremiumResponse;
+import com.example.bicycleinsurance.dto.RiskResponse;
+import com.example.bicycleinsurance.exception.RequestRejectedException;
+import com.example.bicycleinsurance.model.CoverageType;
+import com.example.bicycleinsurance.service.InsuranceService;
+import com.example.bicycleinsurance.service.RequestAdmission;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+
+@WebFluxTest(ReactiveInsuranceController.class)
+@Import({BinaryFormatsConfig.class, ReactiveFormatsConfig.class})
+class ReactiveInsuranceControllerTest {
+
+    private static final String REQUEST_BODY = """
+            {"bicycles": [{"make": "Pearl", "model": "Gravel SL EVO", "coverage": "EXTRA",
+                           "manufactureYear": 2015, "sumInsured": 1000, "risks": ["THEFT"]}]}
+            """;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private InsuranceService insuranceService;
+
+    @MockBean
+    private RequestAdmission requestAdmission;
+
+    @Test
+    void testCalculatePremium_AnswersJsonByDefault_AndCborOnRequest() throws Exception {
+        PremiumResponse premiumResponse = PremiumResponse.builder()
+                .objects(List.of(PremiumResponse.ObjectPremium.builder()
+                        .attributes(PremiumResponse.Attributes.builder()
+                                .MAKE("Pearl")
+                                .MODEL("Gravel SL EVO")
+                                .MANUFACTURE_YEAR("2015")
+                                .build())
+                        .coverageType(CoverageType.EXTRA)
+                        .sumInsured(BigDecimal.valueOf(1000))
+                        .premium(new BigDecimal("30.00"))
+                        .risks(List.of(RiskResponse.builder()
+                                .riskType("THEFT")
+                                .sumInsured(new BigDecimal("1000.00"))
+                                .premium(new BigDecimal("30.00"))
+                                .build()))
+                        .build()))
+                .premium(new BigDecimal("30.00"))
+                .build();
+        Mockito.when(insuranceService.calculatePremium(anyList(), any())).thenReturn(premiumResponse);
+
+        byte[] json = webTestClient.post().uri("/api/v1/calculate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(REQUEST_BODY)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody().returnResult().getResponseBody();
+        byte[] cbor = webTestClient.post().uri("/api/v1/calculate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_CBOR)
+                .bodyValue(REQUEST_BODY)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody().returnResult().getResponseBody();
+
+        JsonNode jsonTree = new ObjectMapper().readTree(json);
+        JsonNode cborTree = new CBORMapper().readTree(cbor);
+        assertThat(cborTree.equals((a, b) -> a.isNumber() && b.isNumber()
+                ? a.decimalValue().compareTo(b.decimalValue()) : a.equals(b) ? 0 : 1, jsonTree)).isTrue();
+        assertThat(jsonTree.at("/objects/0/risks/0/premium").decimalValue()).isEqualByComparingTo("30.00");
+    }
+
+    @Test
+    void testCalculatePremium_ShedWithRetryAfter_WhenAdmissionQueueIsFull() {
+        Mockito.when(requestAdmission.admit(anyList())).thenThrow(new RequestRejectedException(
+                RequestRejectedException.Reason.QUEUE_FULL, Duration.ofSeconds(2), "Too many calculation requests waiting, retry later"));
+
+        webTestClient.post().uri("/api/v1/calculate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(REQUEST_BODY)
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals("Retry-After", "2")
+                .expectBody().jsonPath("$.code").isEqualTo("TOO_MANY_REQUESTS");
+        Mockito.verifyNoInteractions(insuranceService);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.bicycleinsurance.dto;
+
+import com.example.bicycleinsurance.model.CoverageType;
+import com.example.bicycleinsurance.tariff.TariffLookup;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PremiumResponseSerializerTest {
+
+    private final ObjectMapper streaming = new ObjectMapper();
+    private final ObjectMapper bean = JsonMapper.builder()
+            .addMixIn(PremiumResponse.class, BeanSerialized.class)
+            .addMixIn(PremiumResponse.ObjectPremium.class, BeanSerialized.class)
+            .build();
+
+    @Test
+    void serialize_ShouldWriteTheSameFieldsAsTheBeanSerializer() throws Exception {
+        PremiumResponse response = PremiumResponse.builder()
+                .objects(Arrays.asList(
+                        PremiumResponse.ObjectPremium.builder()
+                                .coverageType(CoverageType.STANDARD)
+                                .sumInsured(new BigDecimal("1000.00"))
+                                .premium(new BigDecimal("58.95"))
+                                .risks(List.of(
+                                        RiskResponse.builder().riskType("THEFT")
+                                                .sumInsured(new BigDecimal("1000.00")).premium(new BigDecimal("30.00")).build(),
+                                        RiskResponse.builder().riskType("DAMAGE")
+                                                .sumInsured(new BigDecimal("500.00")).premium(new BigDecimal("28.95"))
+                                                .explanation(RiskExplanation.builder().scriptVersion(2)
+                                                        .scripts(List.of("premiums/DAMAGE"))
+                                                        .steps(List.of(RiskExplanation.Step.builder()
+                                                                .table(TariffLookup.Table.AGE_FACTOR).make("Pearl")
+                                                                .value(BigDecimal.TEN).build()))
+                                                        .build())
+                                                .build()))
+                                .attributes(PremiumResponse.Attributes.builder()
+                                        .MAKE("Pearl").MODEL("Gravel SL EVO").MANUFACTURE_YEAR("2015").build())
+                                .build(),
+                        PremiumResponse.ObjectPremium.builder().build(),
+                        null))
+                .premium(new BigDecimal("58.95"))
+                .build();
+
+        assertThat(streaming.readTree(streaming.writeValueAsString(response)))
+                .isEqualTo(bean.readTree(bean.writeValueAsString(response)));
+        assertThat(streaming.readTree(streaming.writeValueAsString(response.getObjects().get(0))))
+                .isEqualTo(bean.readTree(bean.writeValueAsString(response.getObjects().get(0))));
+    }
+
+    @JsonSerialize(using = JsonSerializer.None.class)
+    private interface BeanSerialized {
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.bicycleinsurance.integration;
+
+import com.example.bicycleinsurance.config.BinaryFormatsConfig;
+import com.example.bicycleinsurance.controller.InsuranceController;
+import com.example.bicycleinsurance.dto.BicycleDto;
+import com.example.bicycleinsurance.dto.PremiumResponse;
+import com.example.bicycleinsurance.service.InsuranceService;
+import com.example.bicycleinsurance.service.RequestAdmission;
+import com.example.bicycleinsurance.service.StreamingRatingService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(InsuranceController.class)
+@Import({BinaryFormatsConfig.class, StreamingRatingService.class})
+class InsuranceControllerStreamTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private InsuranceService insuranceService;
+
+    @MockBean
+    private RequestAdmission requestAdmission;
+
+    @Test
+    void testCalculatePremiumStream_EndsWithValidationError_AtMalformedRecord() throws Exception {
+        Mockito.when(insuranceService.calculateObjectPremium(any(BicycleDto.class), any()))
+                .thenReturn(PremiumResponse.ObjectPremium.builder().premium(new BigDecimal("30.00")).build());
+
+        String[] lines = stream("""
+                {"make":"Pearl","model":"Gravel SL EVO","coverage":"EXTRA","manufactureYear":2020,"sumInsured":1000,"risks":["THEFT"]}
+                {"model":"V2","coverage":"STANDARD","manufactureYear":2021,"sumInsured":500,"risks":["DAMAGE"]}
+                {"make":"Sensa","model":"V2","coverage":"STANDARD","manufactureYear":2021,"sumInsured":500,"risks":["DAMAGE"]}
+                """);
+
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"premium\":30.00");
+        assertThat(lines[1]).isEqualTo("{\"code\":\"VALIDATION_ERROR\",\"message\":\"Make is mandatory\"}");
+        Mockito.verify(insuranceService, Mockito.times(1)).calculateObjectPremium(any(BicycleDto.class), any());
+    }
+
+    @Test
+    void testCalculatePremiumStream_EndsWithErrorLine_WhenRatingFailsUnexpectedly() throws Exception {
+        Mockito.when(insuranceService.calculateObjectPremium(any(BicycleDto.class), any()))
+                .thenReturn(PremiumResponse.ObjectPremium.builder().premium(new BigDecimal("30.00")).build());
+        Mockito.when(insuranceService.calculateObjectPremium(argThat(bicycle -> bicycle != null && "Sensa".equals(bicycle.getMake())), any()))
+                .thenThrow(new IllegalArgumentException("No enum constant"));
+
+        String[] lines = stream("""
+                {"make":"Pearl","model":"Gravel SL EVO","coverage":"EXTRA","manufactureYear":2020,"sumInsured":1000,"risks":["THEFT"]}
+                {"make":"Sensa","model":"V2","coverage":"STANDARD","manufactureYear":2021,"sumInsured":500,"risks":["DAMAGE"]}
+                """);
+
+        assertThat(lines).hasSize(2);
+        assertThat(lines[1]).isEqualTo("{\"code\":\"INTERNAL_ERROR\",\"message\":\"Bicycle 2 could not be rated\"}");
+    }
+
+    private String[] stream(String records) throws Exception {
+        return mockMvc.perform(post("/api/v1/calculate/stream")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .content(records))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().split("\\n");
+    }
+}
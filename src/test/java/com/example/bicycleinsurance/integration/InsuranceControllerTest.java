@@ -1,12 +1,21 @@
 package com.example.bicycleinsurance.integration;
 
+import com.example.bicycleinsurance.config.BinaryFormatsConfig;
 import com.example.bicycleinsurance.controller.InsuranceController;
 import com.example.bicycleinsurance.dto.PremiumRequest;
 import com.example.bicycleinsurance.dto.PremiumResponse;
+import com.example.bicycleinsurance.dto.RiskExplanation;
 import com.example.bicycleinsurance.dto.RiskResponse;
 import com.example.bicycleinsurance.exception.CustomValidationException;
+import com.example.bicycleinsurance.exception.RequestRejectedException;
 import com.example.bicycleinsurance.model.CoverageType;
 import com.example.bicycleinsurance.service.InsuranceService;
+import com.example.bicycleinsurance.service.RequestAdmission;
+import com.example.bicycleinsurance.service.StreamingRatingService;
+import com.example.bicycleinsurance.tariff.TariffLookup;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +23,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -22,16 +32,21 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(InsuranceController.class)
+@Import(BinaryFormatsConfig.class)
 class InsuranceControllerTest {
 
     @Autowired
@@ -40,6 +55,12 @@ class InsuranceControllerTest {
     @MockBean
     private InsuranceService insuranceService;
 
+    @MockBean
+    private StreamingRatingService streamingRatingService;
+
+    @MockBean
+    private RequestAdmission requestAdmission;
+
     /**
      * Handler wyjątków dla testów, który zwraca konkretną implementację Map.
      */
@@ -80,7 +101,7 @@ class InsuranceControllerTest {
                 .premium(BigDecimal.valueOf(48.95))
                 .build();
 
-        Mockito.when(insuranceService.calculatePremium(anyList())).thenReturn(premiumResponse);
+        Mockito.when(insuranceService.calculatePremium(anyList(), any())).thenReturn(premiumResponse);
 
         String requestBody = """
             {
@@ -106,14 +127,70 @@ class InsuranceControllerTest {
                 .andExpect(jsonPath("$.objects[0].attributes.make").value("Pearl"))
                 .andExpect(jsonPath("$.objects[0].attributes.model").value("Gravel SL EVO"))
                 .andExpect(jsonPath("$.objects[0].attributes.manufacture_YEAR").value("2015"))
-                .andExpect(jsonPath("$.objects[0].risks[0].riskType").value("THEFT"));
+                .andExpect(jsonPath("$.objects[0].risks[0].riskType").value("THEFT"))
+                .andExpect(jsonPath("$.objects[0].risks[0].explanation").doesNotExist());
+    }
+
+    @Test
+    void testCalculatePremium_ExplainedResponse() throws Exception {
+        RiskResponse riskResponse = RiskResponse.builder()
+                .riskType("THEFT")
+                .sumInsured(BigDecimal.valueOf(1000))
+                .premium(BigDecimal.valueOf(30))
+                .explanation(RiskExplanation.builder()
+                        .scriptVersion(1)
+                        .scripts(List.of("sumInsured/THEFT", "premiums/THEFT"))
+                        .steps(List.of(
+                                RiskExplanation.Step.builder().table(TariffLookup.Table.RISK_BASE_PREMIUM)
+                                        .riskType("THEFT").result(BigDecimal.valueOf(30)).build(),
+                                RiskExplanation.Step.builder().table(TariffLookup.Table.SUM_INSURED_FACTOR)
+                                        .value(BigDecimal.valueOf(1000)).valueFrom(BigDecimal.valueOf(100))
+                                        .valueTo(BigDecimal.valueOf(1000)).factorMin(BigDecimal.valueOf(0.5))
+                                        .factorMax(BigDecimal.ONE).result(BigDecimal.ONE).build()))
+                        .build())
+                .build();
+        PremiumResponse premiumResponse = PremiumResponse.builder()
+                .objects(Collections.singletonList(PremiumResponse.ObjectPremium.builder()
+                        .premium(BigDecimal.valueOf(30))
+                        .risks(Collections.singletonList(riskResponse))
+                        .build()))
+                .premium(BigDecimal.valueOf(30))
+                .build();
+
+        Mockito.when(insuranceService.explainPremium(anyList(), any())).thenReturn(premiumResponse);
+
+        String requestBody = """
+            {
+              "explain": true,
+              "bicycles": [
+                {
+                  "make": "Pearl",
+                  "model": "Gravel SL EVO",
+                  "coverage": "EXTRA",
+                  "manufactureYear": 2015,
+                  "sumInsured": 1000,
+                  "risks": ["THEFT"]
+                }
+              ]
+            }
+            """;
+
+        mockMvc.perform(post("/api/v1/calculate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.objects[0].risks[0].explanation.scriptVersion").value(1))
+                .andExpect(jsonPath("$.objects[0].risks[0].explanation.steps[0].table").value("RISK_BASE_PREMIUM"))
+                .andExpect(jsonPath("$.objects[0].risks[0].explanation.steps[0].valueFrom").doesNotExist())
+                .andExpect(jsonPath("$.objects[0].risks[0].explanation.steps[1].factorMin").value(0.5));
+        Mockito.verify(insuranceService, Mockito.never()).calculatePremium(anyList(), any());
     }
 
 
     @Test
     void testCalculatePremium_InvalidManufactureYear() throws Exception {
         Mockito.doThrow(new CustomValidationException("Manufacture year cannot be before 1900"))
-                .when(insuranceService).calculatePremium(anyList());
+                .when(insuranceService).calculatePremium(anyList(), any());
 
         String requestBody = """
             {
@@ -140,7 +217,7 @@ class InsuranceControllerTest {
     @Test
     void testCalculatePremium_MissingMandatoryFields() throws Exception {
         Mockito.doThrow(new CustomValidationException("Make is mandatory"))
-                .when(insuranceService).calculatePremium(anyList());
+                .when(insuranceService).calculatePremium(anyList(), any());
 
         String requestBody = """
             {
@@ -165,7 +242,7 @@ class InsuranceControllerTest {
     @Test
     void testCalculatePremium_SumInsuredExceedsLimit() throws Exception {
         Mockito.doThrow(new CustomValidationException("Sum insured must be less than 10,000"))
-                .when(insuranceService).calculatePremium(anyList());
+                .when(insuranceService).calculatePremium(anyList(), any());
 
         String requestBody = """
             {
@@ -192,7 +269,7 @@ class InsuranceControllerTest {
     @Test
     void testCalculatePremium_InvalidRiskType() throws Exception {
         Mockito.doThrow(new CustomValidationException("Invalid risk types provided"))
-                .when(insuranceService).calculatePremium(anyList());
+                .when(insuranceService).calculatePremium(anyList(), any());
 
         String requestBody = """
             {
@@ -216,10 +293,36 @@ class InsuranceControllerTest {
                 .andExpect(jsonPath("$.message").value("Invalid risk types provided"));
     }
 
+    @Test
+    void testCalculatePremium_RejectsInvalidBicyclesBeforeRating() throws Exception {
+        String requestBody = """
+            {
+              "bicycles": [
+                {
+                  "make": "Pearl",
+                  "model": "Gravel SL EVO",
+                  "coverage": "EXTRA",
+                  "manufactureYear": 2015,
+                  "sumInsured": -5,
+                  "risks": ["THEFT"]
+                }
+              ]
+            }
+            """;
+
+        mockMvc.perform(post("/api/v1/calculate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("VALIDATION_ERROR"))
+                .andExpect(jsonPath("$.message").value("Sum insured must be positive"));
+        Mockito.verifyNoInteractions(insuranceService);
+    }
+
     @Test
     void testCalculatePremium_EmptyBicyclesList() throws Exception {
         Mockito.doThrow(new CustomValidationException("Bicycles list cannot be empty"))
-                .when(insuranceService).calculatePremium(anyList());
+                .when(insuranceService).calculatePremium(anyList(), any());
 
         String requestBody = """
             {
@@ -237,7 +340,7 @@ class InsuranceControllerTest {
     @Test
     void testCalculatePremium_AgeLimitExceeded() throws Exception {
         Mockito.doThrow(new CustomValidationException("Bicycle must be newer than 10 years"))
-                .when(insuranceService).calculatePremium(anyList());
+                .when(insuranceService).calculatePremium(anyList(), any());
 
         String requestBody = """
             {
@@ -260,4 +363,65 @@ class InsuranceControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.message").value("Bicycle must be newer than 10 years"));
     }
+
+    @Test
+    void testCalculatePremium_CborResponseCarriesTheSameFieldsAsJson() throws Exception {
+        PremiumResponse premiumResponse = PremiumResponse.builder()
+                .objects(Collections.singletonList(PremiumResponse.ObjectPremium.builder()
+                        .attributes(PremiumResponse.Attributes.builder()
+                                .MAKE("Pearl").MODEL("Gravel SL EVO").MANUFACTURE_YEAR("2015").build())
+                        .coverageType(CoverageType.EXTRA)
+                        .sumInsured(new BigDecimal("1000.00"))
+                        .premium(new BigDecimal("48.95"))
+                        .risks(Collections.singletonList(RiskResponse.builder()
+                                .riskType("THEFT").sumInsured(new BigDecimal("1000.00")).premium(new BigDecimal("30.00")).build()))
+                        .build()))
+                .premium(new BigDecimal("48.95"))
+                .build();
+        Mockito.when(insuranceService.calculatePremium(anyList(), any())).thenReturn(premiumResponse);
+
+        String requestBody = """
+            {"bicycles": [{"make": "Pearl", "model": "Gravel SL EVO", "coverage": "EXTRA",
+                           "manufactureYear": 2015, "sumInsured": 1000, "risks": ["THEFT"]}]}
+            """;
+
+        byte[] cbor = mockMvc.perform(post("/api/v1/calculate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+        String json = mockMvc.perform(post("/api/v1/calculate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode cborTree = new CBORMapper().readTree(cbor);
+        JsonNode jsonTree = new ObjectMapper().readTree(json);
+        assertThat(cborTree.equals((a, b) -> a.isNumber() && b.isNumber()
+                ? a.decimalValue().compareTo(b.decimalValue())
+                : a.equals(b) ? 0 : 1, jsonTree)).isTrue();
+        assertThat(cborTree.at("/objects/0/attributes/manufacture_YEAR").asText()).isEqualTo("2015");
+        assertThat(cborTree.at("/objects/0/risks/0/premium").decimalValue()).isEqualByComparingTo("30.00");
+    }
+
+    @Test
+    void testCalculatePremium_ShedWithRetryAfter_WhenAdmissionQueueIsFull() throws Exception {
+        Mockito.when(requestAdmission.admit(anyList())).thenThrow(new RequestRejectedException(
+                RequestRejectedException.Reason.QUEUE_FULL, Duration.ofSeconds(2), "Too many calculation requests waiting, retry later"));
+
+        mockMvc.perform(post("/api/v1/calculate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                            {"bicycles": [{"make": "Pearl", "model": "Gravel SL EVO", "coverage": "EXTRA",
+                                           "manufactureYear": 2015, "sumInsured": 1000, "risks": ["THEFT"]}]}
+                            """))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.code").value("TOO_MANY_REQUESTS"));
+        Mockito.verifyNoInteractions(insuranceService);
+    }
 }
@@ -0,0 +1,65 @@
+package com.example.bicycleinsurance.mapper;
+
+import com.example.bicycleinsurance.dto.BicycleDto;
+import com.example.bicycleinsurance.exception.CustomValidationException;
+import com.example.bicycleinsurance.model.Bicycle;
+import com.example.bicycleinsurance.model.CoverageType;
+import com.example.bicycleinsurance.model.RiskType;
+import com.example.bicycleinsurance.tariff.TariffRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BicycleMapperTest {
+
+    private final BicycleMapper mapper = new BicycleMapperImpl();
+
+    @Test
+    void toModel_ShouldKeepRisksInRequestOrder_AndShareTheirList() {
+        Bicycle bicycle = mapper.toModel(dto("Pearl", "Gravel SL EVO", List.of("THIRD_PARTY_DAMAGE", "THEFT", "THEFT")));
+
+        assertEquals(List.of(RiskType.THIRD_PARTY_DAMAGE, RiskType.THEFT, RiskType.THEFT), bicycle.risks());
+        assertEquals(RiskType.THEFT, bicycle.risk(1));
+        assertFalse(bicycle.hasRisk(RiskType.DAMAGE));
+        assertSame(Bicycle.risksOf(RiskType.THIRD_PARTY_DAMAGE, RiskType.THEFT, RiskType.THEFT), bicycle.risks());
+        assertNotEquals(mapper.toModel(dto("Pearl", "Gravel SL EVO", List.of("THEFT", "THIRD_PARTY_DAMAGE"))), bicycle);
+        assertEquals(List.of("THIRD_PARTY_DAMAGE", "THEFT", "THEFT"), mapper.toDto(bicycle).getRisks());
+    }
+
+    @Test
+    void toModel_ShouldShareTheTariffInstancesOfKnownNames() {
+        Bicycle known = mapper.toModel(dto(new String("Pearl"), new String("Gravel SL EVO"), List.of("THEFT")));
+        String unknownMake = new String("Unknown");
+        Bicycle unknown = mapper.toModel(dto(unknownMake, "Y", List.of("THEFT")));
+
+        assertSame(TariffRegistry.current().name("Pearl"), known.make());
+        assertSame(TariffRegistry.current().name("Gravel SL EVO"), known.model());
+        assertSame(unknownMake, unknown.make());
+    }
+
+    @Test
+    void toModel_ShouldRejectUnknownRiskTypes_LikeTheRiskTypeValidator() {
+        CustomValidationException exception = assertThrows(CustomValidationException.class,
+                () -> mapper.toModel(dto("Pearl", "Gravel SL EVO", List.of("THEFT", "FLOOD"))));
+
+        assertEquals("Invalid risk types provided", exception.getMessage());
+    }
+
+    private static BicycleDto dto(String make, String model, List<String> risks) {
+        return BicycleDto.builder()
+                .make(make)
+                .model(model)
+                .manufactureYear(2020)
+                .sumInsured(new BigDecimal("1000"))
+                .coverage(CoverageType.STANDARD)
+                .risks(risks)
+                .build();
+    }
+}
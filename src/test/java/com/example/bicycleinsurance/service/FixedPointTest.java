@@ -0,0 +1,171 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.RatingProperties;
+import com.example.bicycleinsurance.config.TariffProperties;
+import com.example.bicycleinsurance.dto.BicycleDto;
+import com.example.bicycleinsurance.dto.PremiumResponse;
+import com.example.bicycleinsurance.mapper.BicycleMapperImpl;
+import com.example.bicycleinsurance.model.CoverageType;
+import com.example.bicycleinsurance.monitoring.RatingMetrics;
+import com.example.bicycleinsurance.tariff.FactorBand;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.jqwik.api.*;
+import net.jqwik.api.constraints.IntRange;
+import net.jqwik.api.constraints.LongRange;
+import net.jqwik.api.constraints.Size;
+import org.codehaus.groovy.runtime.typehandling.BigDecimalMath;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Year;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Properties showing that fixed-point rating gives exactly the results of BigDecimal rating.
+ */
+class FixedPointTest {
+
+    private static final GroovyScriptEngine ENGINE = new GroovyScriptEngine();
+    private static final InsuranceService BIG_DECIMAL_SERVICE = insuranceService(RatingProperties.Arithmetic.BIG_DECIMAL);
+    private static final InsuranceService FIXED_POINT_SERVICE = insuranceService(RatingProperties.Arithmetic.FIXED_POINT);
+
+    @Property
+    void divide_ShouldMatchGroovyBigDecimalDivision(@ForAll @LongRange(min = -100_000_000L, max = 100_000_000L) long dividend,
+                                                    @ForAll @IntRange(min = 0, max = 8) int dividendScale,
+                                                    @ForAll @LongRange(min = -10_000_000L, max = 10_000_000L) long divisor,
+                                                    @ForAll @IntRange(min = 0, max = 8) int divisorScale) {
+        Assume.that(divisor != 0);
+        BigDecimal expected = (BigDecimal) BigDecimalMath.INSTANCE.divideImpl(
+                BigDecimal.valueOf(dividend, dividendScale), BigDecimal.valueOf(divisor, divisorScale));
+
+        FixedPoint.Scaled quotient;
+        try {
+            quotient = new FixedPoint.Scaled(dividend, dividendScale).divide(new FixedPoint.Scaled(divisor, divisorScale));
+        } catch (ArithmeticException e) {
+            // the quotient needs more than 18 digits, callers fall back to BigDecimal
+            assertTrue(Math.max(FixedPoint.digits(dividend), FixedPoint.digits(divisor)) + FixedPoint.DIVISION_EXTRA_PRECISION > 18);
+            return;
+        }
+
+        assertEquals(expected, quotient.toBigDecimal());
+    }
+
+    @Property
+    void of_ShouldTakeUnscaledValueAndScale_OrThrowOutsideTheLongRange(@ForAll BigDecimal value) {
+        if (value.unscaledValue().bitLength() >= Long.SIZE) {
+            assertThrows(ArithmeticException.class, () -> FixedPoint.Scaled.of(value));
+            return;
+        }
+
+        assertEquals(new FixedPoint.Scaled(value.unscaledValue().longValue(), value.scale()), FixedPoint.Scaled.of(value));
+    }
+
+    @Property
+    void interpolate_ShouldMatchGroovyExpression(@ForAll("bands") FactorBand band, @ForAll @IntRange(min = 0, max = 100) int position) {
+        BigDecimal value = band.valueFrom().add(band.valueTo().subtract(band.valueFrom())
+                .multiply(BigDecimal.valueOf(position)).divide(BigDecimal.valueOf(100), 2, RoundingMode.DOWN));
+        BigDecimal expected = band.factorMax().subtract((BigDecimal) BigDecimalMath.INSTANCE.divideImpl(
+                band.factorMax().subtract(band.factorMin()).multiply(band.valueTo().subtract(value)),
+                band.valueTo().subtract(band.valueFrom())));
+
+        BigDecimal factor = FixedPoint.interpolate(band, value);
+
+        if (factor != null) {
+            assertEquals(expected, factor);
+        }
+    }
+
+    @Property
+    void premiumSum_ShouldMatchBigDecimalSum(@ForAll @Size(max = 50) List<@LongRange(min = -1_000_000_000_000L, max = 1_000_000_000_000L) Long> unscaledValues,
+                                             @ForAll @IntRange(min = 0, max = 12) int scale) {
+        PremiumSum sum = new PremiumSum(true);
+        BigDecimal expected = BigDecimal.ZERO;
+        for (int i = 0; i < unscaledValues.size(); i++) {
+            BigDecimal premium = BigDecimal.valueOf(unscaledValues.get(i), (scale + i) % 13);
+            sum.add(premium);
+            expected = expected.add(premium);
+        }
+
+        assertEquals(expected, sum.value());
+        assertEquals(expected.setScale(2, RoundingMode.HALF_UP), sum.rounded());
+    }
+
+    @Property(tries = 500)
+    void calculatePremium_ShouldMatchBigDecimalRating_ForValidatedInputs(@ForAll @Size(min = 1, max = 4) List<@From("bicycles") BicycleDto> bicycles) {
+        assertSameOutcome(() -> BIG_DECIMAL_SERVICE.calculatePremium(bicycles), () -> FIXED_POINT_SERVICE.calculatePremium(bicycles));
+    }
+
+    @Example
+    void calculatePremium_ShouldMatchBigDecimalRating_OnExactCentTies() {
+        // 30.0 * (1.0 - 0.5 * 0.9 / 900.0) is 29.985 exactly, a tie that both modes have to round up
+        List<BicycleDto> bicycles = List.of(bicycle("Pearl", "Gravel SL EVO", 2, new BigDecimal("999.10"), List.of("THEFT")));
+
+        PremiumResponse expected = BIG_DECIMAL_SERVICE.calculatePremium(bicycles);
+
+        assertEquals(expected, FIXED_POINT_SERVICE.calculatePremium(bicycles));
+        assertEquals(new BigDecimal("0.9995"), FixedPoint.interpolate(new FactorBand(new BigDecimal("100.0"),
+                new BigDecimal("1000.0"), new BigDecimal("0.5"), new BigDecimal("1.0")), new BigDecimal("999.10")));
+        assertEquals(new BigDecimal("29.99"), expected.getPremium());
+    }
+
+    @Provide
+    Arbitrary<FactorBand> bands() {
+        Arbitrary<BigDecimal> bounds = Arbitraries.bigDecimals().between(BigDecimal.ZERO, new BigDecimal("10000")).ofScale(1);
+        Arbitrary<BigDecimal> factors = Arbitraries.bigDecimals().between(new BigDecimal("0.01"), new BigDecimal("5")).ofScale(2);
+        return Combinators.combine(bounds, bounds, factors, factors)
+                .as((from, to, min, max) -> new FactorBand(from.min(to), from.max(to), min, max))
+                .filter(band -> band.valueTo().compareTo(band.valueFrom()) > 0);
+    }
+
+    @Provide
+    Arbitrary<BicycleDto> bicycles() {
+        Arbitrary<String[]> makesAndModels = Arbitraries.of(
+                new String[]{"Pearl", "Gravel SL EVO"}, new String[]{"Canyon", "CF 5"}, new String[]{"Whyte", "T-160 RS"},
+                new String[]{"Whyte", "Other"}, new String[]{"Krush", "X"}, new String[]{"Megamo", "Y"},
+                new String[]{"Sensa", "V2"}, new String[]{"Unknown", "Bike"});
+        Arbitrary<Integer> ages = Arbitraries.integers().between(0, 10);
+        Arbitrary<BigDecimal> sumsInsured = Arbitraries.integers().between(0, 2)
+                .flatMap(scale -> Arbitraries.longs().between(1, 10_000 * FixedPoint.powerOfTen(scale))
+                        .map(unscaled -> BigDecimal.valueOf(unscaled, scale)));
+        Arbitrary<List<String>> risks = Arbitraries.of("THEFT", "DAMAGE", "THIRD_PARTY_DAMAGE")
+                .list().ofMinSize(1).ofMaxSize(3).uniqueElements();
+        return Combinators.combine(makesAndModels, ages, sumsInsured, risks)
+                .as((makeAndModel, age, sumInsured, riskTypes) -> bicycle(makeAndModel[0], makeAndModel[1], age, sumInsured, riskTypes));
+    }
+
+    private static void assertSameOutcome(Supplier<PremiumResponse> bigDecimal, Supplier<PremiumResponse> fixedPoint) {
+        PremiumResponse expected;
+        try {
+            expected = bigDecimal.get();
+        } catch (RuntimeException e) {
+            RuntimeException actual = assertThrows(RuntimeException.class, fixedPoint::get);
+            assertEquals(e.getClass(), actual.getClass());
+            assertEquals(e.getMessage(), actual.getMessage());
+            return;
+        }
+        assertEquals(expected, fixedPoint.get());
+    }
+
+    private static BicycleDto bicycle(String make, String model, int age, BigDecimal sumInsured, List<String> risks) {
+        return BicycleDto.builder()
+                .make(make)
+                .model(model)
+                .manufactureYear(Year.now().getValue() - age)
+                .sumInsured(sumInsured)
+                .coverage(CoverageType.STANDARD)
+                .risks(risks)
+                .build();
+    }
+
+    private static InsuranceService insuranceService(RatingProperties.Arithmetic arithmetic) {
+        RatingProperties ratingProperties = new RatingProperties();
+        ratingProperties.setArithmetic(arithmetic);
+        RiskRatingCache riskRatingCache = new RiskRatingCache(ratingProperties);
+        return new InsuranceService(new BicycleMapperImpl(), ENGINE, new ParallelRatingExecutor(ratingProperties),
+                riskRatingCache, new RatingMetrics(new SimpleMeterRegistry(), riskRatingCache), ratingProperties,
+                new TariffVersions(new TariffProperties(), ENGINE));
+    }
+}
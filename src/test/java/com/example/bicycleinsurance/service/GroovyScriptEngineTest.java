@@ -0,0 +1,417 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.ScriptEngineProperties;
+import com.example.bicycleinsurance.config.ScriptEngineProperties.CompilationMode;
+import com.example.bicycleinsurance.config.ScriptEngineProperties.InstanceMode;
+import com.example.bicycleinsurance.exception.ScriptExecutionException;
+import com.example.bicycleinsurance.exception.ScriptTimeoutException;
+import com.example.bicycleinsurance.model.Bicycle;
+import com.example.bicycleinsurance.model.RiskType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class GroovyScriptEngineTest {
+
+    private static final List<String[]> MAKES_AND_MODELS = List.of(
+            new String[]{"Pearl", "Gravel SL EVO"},
+            new String[]{"Canyon", "CF 5"},
+            new String[]{"Whyte", "T-160 RS"},
+            new String[]{"Sensa", "V2"},
+            new String[]{"Unknown", "Bike"});
+
+    private static final List<BigDecimal> SUMS_INSURED = List.of(
+            new BigDecimal("200"), new BigDecimal("1000"), new BigDecimal("2500.50"), new BigDecimal("4000"), new BigDecimal("8000"));
+
+    @Test
+    void executeScript_ShouldReturnSamePremiums_InDynamicAndStaticMode() {
+        GroovyScriptEngine dynamicEngine = engine(CompilationMode.DYNAMIC);
+        GroovyScriptEngine staticEngine = engine(CompilationMode.STATIC);
+
+        for (String[] makeAndModel : MAKES_AND_MODELS) {
+            for (int age = 0; age <= 10; age++) {
+                for (BigDecimal sumInsured : SUMS_INSURED) {
+                    for (RiskType riskType : RiskType.values()) {
+                        Map<String, Object> variables = variables(makeAndModel[0], makeAndModel[1], age, sumInsured, riskType);
+
+                        assertEquals(rate(dynamicEngine, riskType, new HashMap<>(variables)),
+                                rate(staticEngine, riskType, new HashMap<>(variables)),
+                                () -> "Premium mismatch for " + variables);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void executeScript_ShouldCalculateKnownPremium_InStaticMode() {
+        GroovyScriptEngine staticEngine = engine(CompilationMode.STATIC);
+        Map<String, Object> variables = variables("Pearl", "Gravel SL EVO", 3, new BigDecimal("1000"), RiskType.DAMAGE);
+
+        assertEquals("5.0E+2 10.833333333000", rate(staticEngine, RiskType.DAMAGE, variables));
+    }
+
+    @Test
+    void executeScript_ShouldLoadPrecompiledScripts_AndRateLikeScriptsCompiledFromSource() {
+        assumeTrue(getClass().getClassLoader().getResource(GroovyScriptEngine.PRECOMPILED_INDEX) != null,
+                "scripts are precompiled by the build");
+
+        for (CompilationMode mode : CompilationMode.values()) {
+            ScriptEngineProperties properties = new ScriptEngineProperties();
+            properties.setCompilationMode(mode);
+            SimpleMeterRegistry precompiledRegistry = new SimpleMeterRegistry();
+            GroovyScriptEngine precompiledEngine = new GroovyScriptEngine(properties, precompiledRegistry);
+            properties.setPrecompiled(false);
+            SimpleMeterRegistry sourceRegistry = new SimpleMeterRegistry();
+            GroovyScriptEngine sourceEngine = new GroovyScriptEngine(properties, sourceRegistry);
+
+            for (String[] makeAndModel : MAKES_AND_MODELS) {
+                for (BigDecimal sumInsured : SUMS_INSURED) {
+                    for (RiskType riskType : RiskType.values()) {
+                        Map<String, Object> variables = variables(makeAndModel[0], makeAndModel[1], 4, sumInsured, riskType);
+
+                        assertEquals(rate(sourceEngine, riskType, new HashMap<>(variables)),
+                                rate(precompiledEngine, riskType, new HashMap<>(variables)),
+                                () -> "Rating mismatch in " + mode + " mode for " + variables);
+                    }
+                }
+            }
+            assertTrue(precompiledRegistry.find("insurance.script.compile").timers().isEmpty());
+            assertEquals(2 * RiskType.values().length, sourceRegistry.find("insurance.script.compile").timers().size());
+        }
+    }
+
+    @Test
+    void executeRating_ShouldReturnSameRatingsAsSeparateScripts_InDynamicAndStaticMode() {
+        for (CompilationMode mode : CompilationMode.values()) {
+            GroovyScriptEngine engine = engine(mode);
+
+            for (String[] makeAndModel : MAKES_AND_MODELS) {
+                for (int age = 0; age <= 10; age++) {
+                    for (BigDecimal sumInsured : SUMS_INSURED) {
+                        for (RiskType riskType : RiskType.values()) {
+                            Map<String, Object> variables = variables(makeAndModel[0], makeAndModel[1], age, sumInsured, riskType);
+
+                            assertEquals(rate(engine, riskType, new HashMap<>(variables)),
+                                    rateFused(engine, riskType, new HashMap<>(variables)),
+                                    () -> "Rating mismatch in " + mode + " mode for " + variables);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void executeBatch_ShouldReturnSameRatingsAsSingleExecutions_AndFailOnlyFailingRows() {
+        for (CompilationMode mode : CompilationMode.values()) {
+            GroovyScriptEngine engine = engine(mode);
+            for (boolean fused : new boolean[]{false, true}) {
+                ScriptEngineProperties properties = new ScriptEngineProperties();
+                properties.setCompilationMode(mode);
+                properties.setFusedRating(fused);
+                GroovyScriptEngine batchEngine = new GroovyScriptEngine(properties);
+
+                for (RiskType riskType : RiskType.values()) {
+                    RatingBatch batch = new RatingBatch(riskType.name(), MAKES_AND_MODELS.size() * 11 * SUMS_INSURED.size(), false);
+                    List<Map<String, Object>> rows = new ArrayList<>();
+                    for (String[] makeAndModel : MAKES_AND_MODELS) {
+                        for (int age = 0; age <= 10; age++) {
+                            for (BigDecimal sumInsured : SUMS_INSURED) {
+                                Bicycle bicycle = Bicycle.builder().make(makeAndModel[0]).model(makeAndModel[1])
+                                        .sumInsured(sumInsured).risks(Bicycle.risksOf(RiskType.THEFT, RiskType.DAMAGE)).build();
+                                batch.add(bicycle, age);
+                                rows.add(variables(makeAndModel[0], makeAndModel[1], age, sumInsured, riskType));
+                            }
+                        }
+                    }
+
+                    batchEngine.executeBatch(batch);
+
+                    assertEquals(rows.size(), batch.size());
+                    for (int row = 0; row < rows.size(); row++) {
+                        String expected = rate(engine, riskType, new HashMap<>(rows.get(row)));
+                        String context = mode + (fused ? " fused" : "") + " batch row " + rows.get(row);
+                        if (expected.contains("Error executing script")) {
+                            assertInstanceOf(ScriptExecutionException.class, batch.failure(row), context);
+                        } else {
+                            assertNull(batch.failure(row), context);
+                            assertEquals(expected, batch.riskSumInsured(row) + " " + batch.premium(row), context);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void executeBatch_ShouldCountEveryFailedRow(@TempDir Path externalDir) throws Exception {
+        Files.createDirectories(externalDir.resolve("premiums"));
+        Files.writeString(externalDir.resolve("premiums/THEFT.groovy"), "return 1.0 / (riskSumInsured - 500.0)");
+        ScriptEngineProperties properties = new ScriptEngineProperties();
+        properties.setExternalDir(externalDir);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GroovyScriptEngine externalEngine = new GroovyScriptEngine(properties, meterRegistry);
+        RatingBatch batch = new RatingBatch("THEFT", 3, false);
+        for (String sumInsured : new String[]{"500", "1000", "500"}) {
+            batch.add(Bicycle.builder().make("Pearl").model("Gravel SL EVO").sumInsured(new BigDecimal(sumInsured))
+                    .risks(Bicycle.risksOf(RiskType.THEFT)).build(), 3);
+        }
+
+        externalEngine.executeBatch(batch);
+
+        assertInstanceOf(ScriptExecutionException.class, batch.failure(0));
+        assertNull(batch.failure(1));
+        assertInstanceOf(ScriptExecutionException.class, batch.failure(2));
+        assertEquals(2, meterRegistry.get("insurance.script.failures").tag("script", "premiums/THEFT").counter().count());
+    }
+
+    @Test
+    void executeRating_ShouldRejectScriptPart_ThatDefinesMethods(@TempDir Path externalDir) throws Exception {
+        Files.createDirectories(externalDir.resolve("premiums"));
+        Files.writeString(externalDir.resolve("premiums/THEFT.groovy"), "return 1.0\n}\ndef premium() {\nreturn 2.0");
+        ScriptEngineProperties properties = new ScriptEngineProperties();
+        properties.setExternalDir(externalDir);
+        GroovyScriptEngine externalEngine = new GroovyScriptEngine(properties);
+        Map<String, Object> variables = variables("Pearl", "Gravel SL EVO", 3, new BigDecimal("1000"), RiskType.THEFT);
+
+        assertThrows(ScriptExecutionException.class, () -> externalEngine.executeRating("THEFT", variables));
+    }
+
+    @Test
+    void executeScript_ShouldReturnSamePremiums_WhenPooledInstancesAreSharedAcrossThreads() throws Exception {
+        GroovyScriptEngine perCallEngine = engine(CompilationMode.DYNAMIC);
+        ScriptEngineProperties properties = new ScriptEngineProperties();
+        properties.setInstanceMode(InstanceMode.POOLED);
+        properties.setPoolSize(2);
+        GroovyScriptEngine pooledEngine = new GroovyScriptEngine(properties);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String[] makeAndModel : MAKES_AND_MODELS) {
+                for (int age = 0; age <= 10; age++) {
+                    int bicycleAge = age;
+                    futures.add(executor.submit(() -> {
+                        for (BigDecimal sumInsured : SUMS_INSURED) {
+                            for (RiskType riskType : RiskType.values()) {
+                                Map<String, Object> variables = variables(makeAndModel[0], makeAndModel[1], bicycleAge, sumInsured, riskType);
+
+                                assertEquals(rate(perCallEngine, riskType, new HashMap<>(variables)),
+                                        rate(pooledEngine, riskType, new HashMap<>(variables)));
+                            }
+                        }
+                    }));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void executeScript_ShouldNotModifyCallerVariables_WhenPooled() {
+        ScriptEngineProperties properties = new ScriptEngineProperties();
+        properties.setInstanceMode(InstanceMode.POOLED);
+        GroovyScriptEngine pooledEngine = new GroovyScriptEngine(properties);
+        Map<String, Object> variables = variables("Pearl", "Gravel SL EVO", 3, new BigDecimal("1000"), RiskType.THEFT);
+        Map<String, Object> copy = new HashMap<>(variables);
+
+        pooledEngine.executeScript("sumInsured/THEFT", variables);
+
+        assertEquals(copy, variables);
+    }
+
+    @Test
+    void reload_ShouldSwapToChangedExternalScripts_AndKeepVersionWhenCompilationFails(@TempDir Path externalDir) throws Exception {
+        Files.createDirectories(externalDir.resolve("premiums"));
+        Path theftScript = externalDir.resolve("premiums/THEFT.groovy");
+        Files.writeString(theftScript, "return 42.0");
+        ScriptEngineProperties properties = new ScriptEngineProperties();
+        properties.setExternalDir(externalDir);
+        GroovyScriptEngine externalEngine = new GroovyScriptEngine(properties);
+        Map<String, Object> variables = variables("Pearl", "Gravel SL EVO", 3, new BigDecimal("1000"), RiskType.THEFT);
+
+        assertEquals(new BigDecimal("42.0"), externalEngine.executeScript("premiums/THEFT", variables));
+        assertEquals("1000.0", externalEngine.executeScript("sumInsured/THEFT", variables).toString());
+
+        Files.writeString(theftScript, "return 43.0");
+        assertEquals(2, externalEngine.reload());
+        assertEquals(new BigDecimal("43.0"), externalEngine.executeScript("premiums/THEFT", variables));
+
+        Files.writeString(theftScript, "return (");
+        assertEquals(2, externalEngine.reload());
+        assertEquals(new BigDecimal("43.0"), externalEngine.executeScript("premiums/THEFT", variables));
+    }
+
+    @Test
+    void reload_ShouldKeepPinnedGenerations_UntilTheirLastRequestReleasesThem(@TempDir Path externalDir) throws Exception {
+        Files.createDirectories(externalDir.resolve("premiums"));
+        Path theftScript = externalDir.resolve("premiums/THEFT.groovy");
+        Files.writeString(theftScript, "return 42.0");
+        ScriptEngineProperties properties = new ScriptEngineProperties();
+        properties.setExternalDir(externalDir);
+        GroovyScriptEngine externalEngine = new GroovyScriptEngine(properties);
+        Map<String, Object> variables = variables("Pearl", "Gravel SL EVO", 3, new BigDecimal("1000"), RiskType.THEFT);
+
+        ScriptGeneration pinned = externalEngine.pin(null);
+        assertEquals(new BigDecimal("42.0"), externalEngine.executeScript(pinned, "premiums/THEFT", variables));
+        Files.writeString(theftScript, "return 43.0");
+        assertEquals(2, externalEngine.reload());
+
+        // The request goes on with the scripts it started with, and compiles the ones it did not use yet
+        assertEquals(new BigDecimal("42.0"), externalEngine.executeScript(pinned, "premiums/THEFT", variables));
+        assertEquals("1000.0", externalEngine.executeScript(pinned, "sumInsured/THEFT", variables).toString());
+        assertEquals(new BigDecimal("43.0"), externalEngine.executeScript("premiums/THEFT", variables));
+        pinned.release();
+        assertFalse(pinned.pin());
+    }
+
+    @Test
+    void reload_ShouldDropExternalScripts_WhoseSourceWasDeleted(@TempDir Path externalDir) throws Exception {
+        Files.createDirectories(externalDir.resolve("premiums"));
+        Path extraScript = externalDir.resolve("premiums/EXTRA.groovy");
+        Files.writeString(extraScript, "return 7.0");
+        ScriptEngineProperties properties = new ScriptEngineProperties();
+        properties.setExternalDir(externalDir);
+        GroovyScriptEngine externalEngine = new GroovyScriptEngine(properties);
+        Map<String, Object> variables = variables("Pearl", "Gravel SL EVO", 3, new BigDecimal("1000"), RiskType.THEFT);
+
+        assertEquals(new BigDecimal("7.0"), externalEngine.executeScript("premiums/EXTRA", variables));
+        assertEquals(2, externalEngine.reload());
+        assertTrue(externalEngine.getCompiledScriptNames().containsAll(List.of("premiums/EXTRA", "premiums/THEFT")));
+
+        Files.delete(extraScript);
+        assertEquals(3, externalEngine.reload());
+        assertFalse(externalEngine.getCompiledScriptNames().contains("premiums/EXTRA"));
+        assertEquals(4, externalEngine.reload());
+    }
+
+    @Test
+    void executeScript_ShouldStopRunawayScripts_WhenTheirBudgetIsExceeded(@TempDir Path externalDir) throws Exception {
+        Files.createDirectories(externalDir.resolve("premiums"));
+        Files.writeString(externalDir.resolve("premiums/THEFT.groovy"), "while (true) { }");
+        Files.writeString(externalDir.resolve("premiums/DAMAGE.groovy"), "(1..Integer.MAX_VALUE).each { it * 2 }");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        for (CompilationMode mode : CompilationMode.values()) {
+            ScriptEngineProperties properties = new ScriptEngineProperties();
+            properties.setCompilationMode(mode);
+            properties.setExternalDir(externalDir);
+            properties.getBudget().setScriptTimeout(Duration.ofMillis(100));
+            properties.getBudget().setRequestTimeout(Duration.ofMillis(300));
+            GroovyScriptEngine budgetEngine = new GroovyScriptEngine(properties, meterRegistry);
+            Map<String, Object> variables = variables("Pearl", "Gravel SL EVO", 3, new BigDecimal("1000"), RiskType.THEFT);
+
+            for (String scriptName : List.of("premiums/THEFT", "premiums/DAMAGE")) {
+                ScriptTimeoutException timeout = assertThrows(ScriptTimeoutException.class,
+                        () -> budgetEngine.executeScript(scriptName, variables));
+                assertTrue(timeout.getMessage().contains("100 ms"), timeout.getMessage());
+                assertFalse(Thread.currentThread().isInterrupted());
+            }
+            // Each script alone stays within its budget, together they exceed the budget of the request
+            long deadline = budgetEngine.requestDeadline();
+            ScriptTimeoutException requestTimeout = assertThrows(ScriptTimeoutException.class, () -> ScriptWatchdog.withinRequest(deadline, () -> {
+                for (int i = 0; i < 10; i++) {
+                    budgetEngine.executeScript("sumInsured/THEFT", variables);
+                    sleep(Duration.ofMillis(50));
+                }
+                return null;
+            }));
+            assertTrue(requestTimeout.getMessage().contains("request"), requestTimeout.getMessage());
+            assertEquals(new BigDecimal("1000.0"), new BigDecimal(budgetEngine.executeScript("sumInsured/THEFT", variables).toString()));
+            budgetEngine.shutdown();
+        }
+        assertEquals(4, meterRegistry.get("insurance.script.timeouts").tag("budget", "script").counters()
+                .stream().mapToDouble(counter -> counter.count()).sum());
+        assertEquals(2, meterRegistry.get("insurance.script.timeouts").tag("budget", "request").counter().count());
+    }
+
+    @Test
+    void executeBatch_ShouldFailTheRemainingRowsOnce_WhenTheRequestTimedOut(@TempDir Path externalDir) throws Exception {
+        Files.createDirectories(externalDir.resolve("premiums"));
+        Files.writeString(externalDir.resolve("premiums/THEFT.groovy"), "while (true) { }");
+        ScriptEngineProperties properties = new ScriptEngineProperties();
+        properties.setExternalDir(externalDir);
+        properties.getBudget().setRequestTimeout(Duration.ofMillis(100));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GroovyScriptEngine budgetEngine = new GroovyScriptEngine(properties, meterRegistry);
+        RatingBatch batch = new RatingBatch("THEFT", 3, false);
+        for (String sumInsured : new String[]{"500", "1000", "2000"}) {
+            batch.add(Bicycle.builder().make("Pearl").model("Gravel SL EVO").sumInsured(new BigDecimal(sumInsured))
+                    .risks(Bicycle.risksOf(RiskType.THEFT)).build(), 3);
+        }
+
+        ScriptWatchdog.withinRequest(budgetEngine.requestDeadline(), () -> {
+            budgetEngine.executeBatch(batch);
+            return null;
+        });
+
+        assertInstanceOf(ScriptTimeoutException.class, batch.failure(0));
+        assertSame(batch.failure(0), batch.failure(1));
+        assertSame(batch.failure(0), batch.failure(2));
+        assertEquals(1, meterRegistry.get("insurance.script.timeouts").tag("budget", "request").counter().count());
+        budgetEngine.shutdown();
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static GroovyScriptEngine engine(CompilationMode mode) {
+        ScriptEngineProperties properties = new ScriptEngineProperties();
+        properties.setCompilationMode(mode);
+        return new GroovyScriptEngine(properties);
+    }
+
+    private static String rate(GroovyScriptEngine engine, RiskType riskType, Map<String, Object> variables) {
+        Object riskSumInsured = engine.executeScript("sumInsured/" + riskType.name(), variables);
+        variables.put("riskSumInsured", new BigDecimal(riskSumInsured.toString()));
+        try {
+            return riskSumInsured + " " + engine.executeScript("premiums/" + riskType.name(), variables);
+        } catch (RuntimeException e) {
+            return riskSumInsured + " " + e.getMessage();
+        }
+    }
+
+    private static String rateFused(GroovyScriptEngine engine, RiskType riskType, Map<String, Object> variables) {
+        try {
+            RiskRating rating = engine.executeRating(riskType.name(), variables);
+            return rating.sumInsured() + " " + rating.premium();
+        } catch (RuntimeException e) {
+            return engine.executeScript("sumInsured/" + riskType.name(), variables) + " " + e.getMessage().replace("rating/", "premiums/");
+        }
+    }
+
+    private static Map<String, Object> variables(String make, String model, int age, BigDecimal sumInsured, RiskType riskType) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("riskType", riskType.name());
+        variables.put("bicycleAge", age);
+        variables.put("sumInsured", sumInsured);
+        variables.put("make", make);
+        variables.put("model", model);
+        variables.put("riskCount", 2);
+        return variables;
+    }
+}
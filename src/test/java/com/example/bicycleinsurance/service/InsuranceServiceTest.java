@@ -1,36 +1,79 @@
 package com.example.bicycleinsurance.service;
 
+import com.example.bicycleinsurance.config.RatingProperties;
+import com.example.bicycleinsurance.config.TariffProperties;
 import com.example.bicycleinsurance.dto.BicycleDto;
 import com.example.bicycleinsurance.dto.PremiumResponse;
+import com.example.bicycleinsurance.dto.RiskExplanation;
+import com.example.bicycleinsurance.dto.RiskResponse;
 import com.example.bicycleinsurance.exception.CustomValidationException;
 import com.example.bicycleinsurance.exception.ScriptExecutionException;
+import com.example.bicycleinsurance.exception.ScriptTimeoutException;
 import com.example.bicycleinsurance.mapper.BicycleMapper;
+import com.example.bicycleinsurance.mapper.BicycleMapperImpl;
 import com.example.bicycleinsurance.model.Bicycle;
 import com.example.bicycleinsurance.model.CoverageType;
 import com.example.bicycleinsurance.model.RiskType;
+import com.example.bicycleinsurance.monitoring.RatingMetrics;
+import com.example.bicycleinsurance.tariff.TariffLookup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.*;
 
 class InsuranceServiceTest {
 
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-06-01T12:00:00Z"), ZoneOffset.UTC);
+
     @Mock
     private BicycleMapper bicycleMapper;
 
     @Mock
     private GroovyScriptEngine groovyScriptEngine;
 
+    @Mock
+    private ScriptGeneration scripts;
+
+    @Spy
+    private ParallelRatingExecutor parallelRatingExecutor = new ParallelRatingExecutor(new RatingProperties());
+
+    @Mock
+    private RatingMetrics ratingMetrics;
+
+    @Spy
+    private RiskRatingCache riskRatingCache = new RiskRatingCache(new RatingProperties());
+
+    @Spy
+    private RatingProperties ratingProperties = new RatingProperties();
+
+    @Spy
+    private TariffVersions tariffVersions = new TariffVersions(new TariffProperties(), null, CLOCK);
+
     @InjectMocks
     private InsuranceService insuranceService;
 
@@ -56,15 +99,16 @@ class InsuranceServiceTest {
                 .manufactureYear(validBicycleDto.getManufactureYear())
                 .sumInsured(validBicycleDto.getSumInsured())
                 .coverage(validBicycleDto.getCoverage())
-                .risks(List.of(RiskType.THEFT, RiskType.DAMAGE, RiskType.THIRD_PARTY_DAMAGE))
+                .risks(Bicycle.risksOf(RiskType.THEFT, RiskType.DAMAGE, RiskType.THIRD_PARTY_DAMAGE))
                 .build();
 
         when(bicycleMapper.toModel(validBicycleDto)).thenReturn(validBicycle);
+        when(groovyScriptEngine.pin(isNull())).thenReturn(scripts);
     }
 
     @Test
     void calculatePremium_ShouldReturnCorrectPremium_WhenValidInput() throws Exception {
-        when(groovyScriptEngine.executeScript(anyString(), anyMap())).thenReturn(BigDecimal.valueOf(30.00));
+        when(groovyScriptEngine.executeScript(same(scripts), anyString(), anyMap())).thenReturn(BigDecimal.valueOf(30.00));
 
         PremiumResponse response = insuranceService.calculatePremium(List.of(validBicycleDto));
 
@@ -90,7 +134,7 @@ class InsuranceServiceTest {
                 .manufactureYear(2000)
                 .sumInsured(BigDecimal.valueOf(500.0))
                 .coverage(CoverageType.STANDARD)
-                .risks(List.of(RiskType.DAMAGE))
+                .risks(Bicycle.risksOf(RiskType.DAMAGE))
                 .build();
         when(bicycleMapper.toModel(anotherBicycleDto)).thenReturn(anotherBicycle);
 
@@ -105,7 +149,7 @@ class InsuranceServiceTest {
     void calculatePremium_ShouldHandleZeroSumInsured() throws Exception {
         validBicycleDto.setSumInsured(BigDecimal.ZERO);
 
-        when(groovyScriptEngine.executeScript(anyString(), anyMap())).thenReturn(BigDecimal.ZERO);
+        when(groovyScriptEngine.executeScript(same(scripts), anyString(), anyMap())).thenReturn(BigDecimal.ZERO);
         PremiumResponse response = insuranceService.calculatePremium(List.of(validBicycleDto));
 
         assertNotNull(response);
@@ -114,7 +158,7 @@ class InsuranceServiceTest {
 
     @Test
     void calculatePremium_ShouldThrowScriptExecutionException_WhenScriptFails() throws Exception {
-        when(groovyScriptEngine.executeScript(anyString(), anyMap())).thenThrow(new ScriptExecutionException("Script error"));
+        when(groovyScriptEngine.executeScript(same(scripts), anyString(), anyMap())).thenThrow(new ScriptExecutionException("Script error"));
 
         ScriptExecutionException exception = assertThrows(ScriptExecutionException.class, () ->
                 insuranceService.calculatePremium(List.of(validBicycleDto))
@@ -140,13 +184,13 @@ class InsuranceServiceTest {
                 .manufactureYear(2020)
                 .sumInsured(BigDecimal.valueOf(500.0))
                 .coverage(CoverageType.STANDARD)
-                .risks(List.of(RiskType.THEFT))
+                .risks(Bicycle.risksOf(RiskType.THEFT))
                 .build();
 
         when(bicycleMapper.toModel(anotherBicycleDto)).thenReturn(anotherBicycle);
-        when(groovyScriptEngine.executeScript(eq("sumInsured/THEFT"), anyMap()))
+        when(groovyScriptEngine.executeScript(same(scripts), eq("sumInsured/THEFT"), anyMap()))
                 .thenReturn(BigDecimal.valueOf(1000.00));
-        when(groovyScriptEngine.executeScript(eq("premiums/THEFT"), anyMap()))
+        when(groovyScriptEngine.executeScript(same(scripts), eq("premiums/THEFT"), anyMap()))
                 .thenReturn(BigDecimal.valueOf(25.00));
 
 
@@ -155,8 +199,8 @@ class InsuranceServiceTest {
         assertNotNull(response);
         assertEquals(BigDecimal.valueOf(25.00).setScale(2, RoundingMode.HALF_UP), response.getPremium().setScale(2, RoundingMode.HALF_UP));
 
-        verify(groovyScriptEngine, times(1)).executeScript(eq("sumInsured/THEFT"), anyMap());
-        verify(groovyScriptEngine, times(1)).executeScript(eq("premiums/THEFT"), anyMap());
+        verify(groovyScriptEngine, times(1)).executeScript(same(scripts), eq("sumInsured/THEFT"), anyMap());
+        verify(groovyScriptEngine, times(1)).executeScript(same(scripts), eq("premiums/THEFT"), anyMap());
     }
 
     @Test
@@ -176,7 +220,7 @@ class InsuranceServiceTest {
                 .manufactureYear(2019)
                 .sumInsured(BigDecimal.valueOf(800.0))
                 .coverage(CoverageType.EXTRA)
-                .risks(List.of(RiskType.THEFT, RiskType.DAMAGE))
+                .risks(Bicycle.risksOf(RiskType.THEFT, RiskType.DAMAGE))
                 .build();
 
         BicycleDto secondBicycleDto = BicycleDto.builder()
@@ -194,19 +238,19 @@ class InsuranceServiceTest {
                 .manufactureYear(2021)
                 .sumInsured(BigDecimal.valueOf(600.0))
                 .coverage(CoverageType.STANDARD)
-                .risks(List.of(RiskType.DAMAGE))
+                .risks(Bicycle.risksOf(RiskType.DAMAGE))
                 .build();
 
         when(bicycleMapper.toModel(firstBicycleDto)).thenReturn(firstBicycle);
         when(bicycleMapper.toModel(secondBicycleDto)).thenReturn(secondBicycle);
 
-        when(groovyScriptEngine.executeScript(eq("sumInsured/THEFT"), anyMap())).thenReturn(BigDecimal.valueOf(800.00));
-        when(groovyScriptEngine.executeScript(eq("premiums/THEFT"), anyMap())).thenReturn(BigDecimal.valueOf(24.00));
-        when(groovyScriptEngine.executeScript(eq("sumInsured/DAMAGE"), argThat(map -> map.containsValue(firstBicycle)))).thenReturn(BigDecimal.valueOf(800.00));
-        when(groovyScriptEngine.executeScript(eq("premiums/DAMAGE"), argThat(map -> map.containsValue(firstBicycle)))).thenReturn(BigDecimal.valueOf(16.00));
+        when(groovyScriptEngine.executeScript(same(scripts), eq("sumInsured/THEFT"), anyMap())).thenReturn(BigDecimal.valueOf(800.00));
+        when(groovyScriptEngine.executeScript(same(scripts), eq("premiums/THEFT"), anyMap())).thenReturn(BigDecimal.valueOf(24.00));
+        when(groovyScriptEngine.executeScript(same(scripts), eq("sumInsured/DAMAGE"), argThat(map -> map.containsValue(firstBicycle)))).thenReturn(BigDecimal.valueOf(800.00));
+        when(groovyScriptEngine.executeScript(same(scripts), eq("premiums/DAMAGE"), argThat(map -> map.containsValue(firstBicycle)))).thenReturn(BigDecimal.valueOf(16.00));
 
-        when(groovyScriptEngine.executeScript(eq("sumInsured/DAMAGE"), argThat(map -> map.containsValue(secondBicycle)))).thenReturn(BigDecimal.valueOf(600.00));
-        when(groovyScriptEngine.executeScript(eq("premiums/DAMAGE"), argThat(map -> map.containsValue(secondBicycle)))).thenReturn(BigDecimal.valueOf(12.00));
+        when(groovyScriptEngine.executeScript(same(scripts), eq("sumInsured/DAMAGE"), argThat(map -> map.containsValue(secondBicycle)))).thenReturn(BigDecimal.valueOf(600.00));
+        when(groovyScriptEngine.executeScript(same(scripts), eq("premiums/DAMAGE"), argThat(map -> map.containsValue(secondBicycle)))).thenReturn(BigDecimal.valueOf(12.00));
 
         PremiumResponse response = insuranceService.calculatePremium(List.of(firstBicycleDto, secondBicycleDto));
 
@@ -214,14 +258,216 @@ class InsuranceServiceTest {
         assertEquals(2, response.getObjects().size());
         assertEquals(BigDecimal.valueOf(52.00).setScale(2, RoundingMode.HALF_UP), response.getPremium().setScale(2, RoundingMode.HALF_UP));
 
-        verify(groovyScriptEngine, times(1)).executeScript(eq("sumInsured/THEFT"), anyMap());
-        verify(groovyScriptEngine, times(1)).executeScript(eq("premiums/THEFT"), anyMap());
-        verify(groovyScriptEngine, times(1)).executeScript(eq("sumInsured/DAMAGE"), argThat(map -> map.containsValue(firstBicycle)));
-        verify(groovyScriptEngine, times(1)).executeScript(eq("premiums/DAMAGE"), argThat(map -> map.containsValue(firstBicycle)));
-        verify(groovyScriptEngine, times(1)).executeScript(eq("sumInsured/DAMAGE"), argThat(map -> map.containsValue(secondBicycle)));
-        verify(groovyScriptEngine, times(1)).executeScript(eq("premiums/DAMAGE"), argThat(map -> map.containsValue(secondBicycle)));
+        verify(groovyScriptEngine, times(1)).executeScript(same(scripts), eq("sumInsured/THEFT"), anyMap());
+        verify(groovyScriptEngine, times(1)).executeScript(same(scripts), eq("premiums/THEFT"), anyMap());
+        verify(groovyScriptEngine, times(1)).executeScript(same(scripts), eq("sumInsured/DAMAGE"), argThat(map -> map.containsValue(firstBicycle)));
+        verify(groovyScriptEngine, times(1)).executeScript(same(scripts), eq("premiums/DAMAGE"), argThat(map -> map.containsValue(firstBicycle)));
+        verify(groovyScriptEngine, times(1)).executeScript(same(scripts), eq("sumInsured/DAMAGE"), argThat(map -> map.containsValue(secondBicycle)));
+        verify(groovyScriptEngine, times(1)).executeScript(same(scripts), eq("premiums/DAMAGE"), argThat(map -> map.containsValue(secondBicycle)));
     }
 
+    @Test
+    void calculatePremium_ShouldRateIdenticalBicyclesOnce_AndRepeatTheirBreakdownInOrder() {
+        BicycleDto otherDto = bicycleDto("Canyon", "CF 5", 2, new BigDecimal("2000"), List.of("THEFT"));
+        Bicycle other = Bicycle.builder()
+                .make("Canyon")
+                .model("CF 5")
+                .manufactureYear(otherDto.getManufactureYear())
+                .sumInsured(otherDto.getSumInsured())
+                .coverage(CoverageType.STANDARD)
+                .risks(Bicycle.risksOf(RiskType.THEFT))
+                .build();
+        Bicycle validBicycle = new Bicycle(this.validBicycle.make(), this.validBicycle.model(), Year.now(CLOCK).getValue() - 2,
+                this.validBicycle.sumInsured(), this.validBicycle.coverage(), this.validBicycle.risks());
+        Bicycle validCopy = new Bicycle(validBicycle.make(), validBicycle.model(), validBicycle.manufactureYear(),
+                validBicycle.sumInsured(), validBicycle.coverage(),
+                Bicycle.risksOf(RiskType.THEFT, RiskType.DAMAGE, RiskType.THIRD_PARTY_DAMAGE));
+        BicycleDto validCopyDto = BicycleDto.builder().make("copy").build();
+        when(bicycleMapper.toModel(validBicycleDto)).thenReturn(validBicycle);
+        when(bicycleMapper.toModel(validCopyDto)).thenReturn(validCopy);
+        when(bicycleMapper.toModel(otherDto)).thenReturn(other);
+        when(groovyScriptEngine.executeScript(same(scripts), startsWith("sumInsured/"), anyMap())).thenReturn(new BigDecimal("1000"));
+        when(groovyScriptEngine.executeScript(same(scripts), startsWith("premiums/"), argThat(map -> map.containsValue(other)))).thenReturn(new BigDecimal("40"));
+        when(groovyScriptEngine.executeScript(same(scripts), startsWith("premiums/"), argThat(map -> map.containsValue(validBicycle)))).thenReturn(new BigDecimal("10"));
+
+        PremiumResponse response = insuranceService.calculatePremium(List.of(validBicycleDto, otherDto, validCopyDto, validBicycleDto));
+
+        assertEquals(List.of("Pearl", "Canyon", "Pearl", "Pearl"),
+                response.getObjects().stream().map(object -> object.getAttributes().getMAKE()).toList());
+        assertEquals(new BigDecimal("30.00"), response.getObjects().get(2).getPremium());
+        assertEquals(new BigDecimal("130.00"), response.getPremium());
+        verify(groovyScriptEngine, times(4)).executeScript(same(scripts), startsWith("premiums/"), anyMap());
+        verify(ratingMetrics).recordDeduplication(4, 2);
+    }
 
+    @Test
+    void calculatePremium_ShouldRateLikeSingleBicycles_WhenRatingInBatches() {
+        RatingProperties batchProperties = new RatingProperties();
+        batchProperties.setBatch(true);
+        InsuranceService single = realInsuranceService(new RatingProperties());
+        InsuranceService batched = realInsuranceService(batchProperties);
+        List<String[]> makesAndModels = List.of(new String[]{"Pearl", "Gravel SL EVO"}, new String[]{"Canyon", "CF 5"},
+                new String[]{"Whyte", "T-160 RS"}, new String[]{"Sensa", "V2"});
+        List<List<String>> riskSets = List.of(List.of("THEFT"), List.of("DAMAGE", "THEFT"),
+                List.of("THEFT", "DAMAGE", "THIRD_PARTY_DAMAGE"), List.of("DAMAGE", "THEFT", "DAMAGE"));
+        List<BicycleDto> portfolio = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            String[] makeAndModel = makesAndModels.get(i % makesAndModels.size());
+            portfolio.add(bicycleDto(makeAndModel[0], makeAndModel[1], i % 11, BigDecimal.valueOf(200 + i * 64), riskSets.get(i % riskSets.size())));
+        }
+
+        assertEquals(single.calculatePremium(portfolio), batched.calculatePremium(portfolio));
+
+        // A script failure of an earlier bicycle is reported before the validation failure of a later one
+        List<BicycleDto> failing = List.of(portfolio.get(0),
+                bicycleDto("Pearl", "Gravel SL EVO", 1, new BigDecimal("8000"), List.of("THEFT")),
+                bicycleDto("Pearl", "Gravel SL EVO", 12, new BigDecimal("1000"), List.of("THEFT")));
+        assertEquals(assertThrows(ScriptExecutionException.class, () -> single.calculatePremium(failing)).getMessage(),
+                assertThrows(ScriptExecutionException.class, () -> batched.calculatePremium(failing)).getMessage());
+        assertThrows(CustomValidationException.class, () -> batched.calculatePremium(List.of(failing.get(0), failing.get(2))));
+    }
+
+    @Test
+    void calculatePremium_ShouldRateRisksInRequestOrder_IncludingRepeatedOnes() {
+        InsuranceService service = realInsuranceService(new RatingProperties());
 
+        PremiumResponse.ObjectPremium object = service.calculatePremium(List.of(bicycleDto("Pearl", "Gravel SL EVO", 3,
+                new BigDecimal("1000"), List.of("DAMAGE", "THEFT", "DAMAGE")))).getObjects().get(0);
+
+        assertEquals(List.of("DAMAGE", "THEFT", "DAMAGE"), object.getRisks().stream().map(RiskResponse::getRiskType).toList());
+        assertEquals(object.getRisks().get(0), object.getRisks().get(2));
+    }
+
+    @Test
+    void calculatePremium_ShouldRateIdenticalRequestsInFlightOnce_WhenCoalescing() throws Exception {
+        ratingProperties.setCoalesce(true);
+        CountDownLatch rating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(groovyScriptEngine.executeScript(same(scripts), anyString(), anyMap())).thenAnswer(invocation -> {
+            rating.countDown();
+            release.await();
+            return new BigDecimal("10");
+        });
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<PremiumResponse> first = callers.submit(() -> insuranceService.calculatePremium(List.of(validBicycleDto)));
+            assertTrue(rating.await(5, TimeUnit.SECONDS));
+            Future<PremiumResponse> second = callers.submit(() -> insuranceService.calculatePremium(List.of(validBicycleDto)));
+            verify(ratingMetrics, timeout(5000)).recordCoalesced();
+            release.countDown();
+
+            assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        } finally {
+            callers.shutdownNow();
+        }
+        verify(groovyScriptEngine, times(6)).executeScript(same(scripts), anyString(), anyMap());
+        verify(ratingMetrics).recordRequest(1, 3);
+
+        // Once the calculation has finished, an identical request is rated again
+        insuranceService.calculatePremium(List.of(validBicycleDto));
+        verify(groovyScriptEngine, times(12)).executeScript(same(scripts), anyString(), anyMap());
+    }
+
+    @Test
+    void calculatePremium_ShouldStopWaitingForAnIdenticalRequest_AtTheRequestDeadlineOrWhenInterrupted() throws Exception {
+        ratingProperties.setCoalesce(true);
+        CountDownLatch rating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(groovyScriptEngine.executeScript(same(scripts), anyString(), anyMap())).thenAnswer(invocation -> {
+            rating.countDown();
+            release.await();
+            return new BigDecimal("10");
+        });
+        // The first and third requests have no budget, the second one 100 ms
+        when(groovyScriptEngine.requestDeadline()).thenReturn(0L)
+                .thenAnswer(invocation -> System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100))
+                .thenReturn(0L);
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        try {
+            Future<PremiumResponse> first = callers.submit(() -> insuranceService.calculatePremium(List.of(validBicycleDto)));
+            assertTrue(rating.await(5, TimeUnit.SECONDS));
+
+            assertThrows(ScriptTimeoutException.class, () -> insuranceService.calculatePremium(List.of(validBicycleDto)));
+
+            AtomicReference<RuntimeException> failure = new AtomicReference<>();
+            AtomicBoolean keptInterrupt = new AtomicBoolean();
+            Thread third = new Thread(() -> {
+                try {
+                    insuranceService.calculatePremium(List.of(validBicycleDto));
+                } catch (RuntimeException e) {
+                    failure.set(e);
+                }
+                keptInterrupt.set(Thread.currentThread().isInterrupted());
+            });
+            third.start();
+            verify(ratingMetrics, timeout(5000).times(2)).recordCoalesced();
+            third.interrupt();
+            third.join(5000);
+            assertEquals(ScriptExecutionException.class, failure.get().getClass());
+            assertTrue(keptInterrupt.get());
+
+            release.countDown();
+            assertEquals(new BigDecimal("30.00"), first.get(5, TimeUnit.SECONDS).getPremium());
+        } finally {
+            callers.shutdownNow();
+        }
+        verify(groovyScriptEngine, times(6)).executeScript(same(scripts), anyString(), anyMap());
+    }
+
+    @Test
+    void explainPremium_ShouldListTheTariffRowsAndFactorsOfEveryRisk() {
+        InsuranceService service = realInsuranceService(new RatingProperties());
+        List<BicycleDto> bicycles = List.of(bicycleDto("Pearl", "Gravel SL EVO", 3, new BigDecimal("1000"),
+                List.of("DAMAGE", "THIRD_PARTY_DAMAGE")));
+
+        PremiumResponse explained = service.explainPremium(bicycles, null);
+
+        RiskResponse damage = explained.getObjects().get(0).getRisks().get(0);
+        RiskExplanation explanation = damage.getExplanation();
+        assertEquals(List.of("sumInsured/DAMAGE", "premiums/DAMAGE"), explanation.getScripts());
+        assertEquals(List.of(TariffLookup.Table.RISK_BASE_PREMIUM, TariffLookup.Table.SUM_INSURED_FACTOR,
+                        TariffLookup.Table.AGE_FACTOR),
+                explanation.getSteps().stream().map(RiskExplanation.Step::getTable).toList());
+        RiskExplanation.Step ageFactor = explanation.getSteps().get(2);
+        assertEquals("Pearl", ageFactor.getMake());
+        assertEquals(BigDecimal.valueOf(3), ageFactor.getValue());
+        assertTrue(ageFactor.getValueFrom().compareTo(ageFactor.getValue()) <= 0
+                && ageFactor.getValueTo().compareTo(ageFactor.getValue()) >= 0);
+        BigDecimal premium = BigDecimal.ONE;
+        for (RiskExplanation.Step step : explanation.getSteps()) {
+            premium = premium.multiply(step.getResult());
+        }
+        assertEquals(damage.getPremium(), premium.setScale(2, RoundingMode.HALF_UP));
+        assertEquals(TariffLookup.Table.RISK_COUNT_FACTOR, explained.getObjects().get(0).getRisks().get(1)
+                .getExplanation().getSteps().get(2).getTable());
+
+        // Explanations leave the premiums unchanged, and sampled traces are logged rather than returned
+        PremiumResponse calculated = service.calculatePremium(bicycles);
+        damage.setExplanation(null);
+        explained.getObjects().get(0).getRisks().get(1).setExplanation(null);
+        assertEquals(calculated, explained);
+        RatingProperties tracing = new RatingProperties();
+        tracing.getTrace().setSampleRate(1);
+        assertEquals(calculated, realInsuranceService(tracing).calculatePremium(bicycles));
+    }
+
+    private static InsuranceService realInsuranceService(RatingProperties properties) {
+        RiskRatingCache cache = new RiskRatingCache(properties);
+        GroovyScriptEngine engine = new GroovyScriptEngine();
+        return new InsuranceService(new BicycleMapperImpl(), engine,
+                new ParallelRatingExecutor(properties), cache,
+                new RatingMetrics(new SimpleMeterRegistry(), cache), properties,
+                new TariffVersions(new TariffProperties(), engine, CLOCK));
+    }
+
+    private static BicycleDto bicycleDto(String make, String model, int age, BigDecimal sumInsured, List<String> risks) {
+        return BicycleDto.builder()
+                .make(make)
+                .model(model)
+                .manufactureYear(Year.now(CLOCK).getValue() - age)
+                .sumInsured(sumInsured)
+                .coverage(CoverageType.STANDARD)
+                .risks(risks)
+                .build();
+    }
 }
@@ -0,0 +1,118 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.RatingProperties;
+import com.example.bicycleinsurance.exception.CustomValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelRatingExecutorTest {
+
+    private final ParallelRatingExecutor executor = new ParallelRatingExecutor(parallelProperties());
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void map_ShouldKeepInputOrder_WhenRatingInParallel() {
+        List<Integer> items = IntStream.range(0, 1000).boxed().toList();
+
+        List<String> results = executor.map(items, item -> "#" + item);
+
+        assertEquals(items.stream().map(item -> "#" + item).toList(), results);
+    }
+
+    @Test
+    void map_ShouldReportFirstFailureInInputOrder() {
+        List<Integer> items = IntStream.range(0, 1000).boxed().toList();
+
+        CustomValidationException exception = assertThrows(CustomValidationException.class, () ->
+                executor.map(items, item -> {
+                    if (item == 123 || item == 900) {
+                        throw new CustomValidationException("Invalid bicycle " + item);
+                    }
+                    return item;
+                }));
+
+        assertEquals("Invalid bicycle 123", exception.getMessage());
+    }
+
+    @Test
+    void map_ShouldStopRatingLaterChunks_OnceAnEarlierChunkFailed() throws Exception {
+        List<Integer> items = IntStream.range(0, 1000).boxed().toList();
+        CountDownLatch secondChunkStarted = new CountDownLatch(1);
+        Set<Integer> rated = ConcurrentHashMap.newKeySet();
+
+        CustomValidationException exception = assertThrows(CustomValidationException.class, () ->
+                executor.map(items, item -> {
+                    rated.add(item);
+                    if (item == 0) {
+                        assertTrue(await(secondChunkStarted));
+                        throw new CustomValidationException("Invalid bicycle 0");
+                    }
+                    if (item == 7) {
+                        // The second chunk is still rating its first bicycle when the first chunk fails
+                        secondChunkStarted.countDown();
+                        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                        while (!ParallelRatingExecutor.isAbandoned() && System.nanoTime() - deadline < 0) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    return item;
+                }));
+
+        assertEquals("Invalid bicycle 0", exception.getMessage());
+        Thread.sleep(100);
+        assertFalse(rated.contains(8));
+    }
+
+    @Test
+    void mapChunks_ShouldRateWholeChunks_AndKeepInputOrder() {
+        List<Integer> items = IntStream.range(0, 1000).boxed().toList();
+
+        List<String> results = executor.mapChunks(items, chunk -> {
+            assertTrue(chunk.size() <= 7);
+            return chunk.stream().map(item -> "#" + item).toList();
+        });
+
+        assertEquals(items.stream().map(item -> "#" + item).toList(), results);
+        assertEquals(List.of(3), executor.mapChunks(List.of(1, 2, 3), chunk -> List.of(chunk.size())));
+    }
+
+    @Test
+    void map_ShouldStayOnCallingThread_BelowThreshold() {
+        Thread caller = Thread.currentThread();
+
+        List<Thread> threads = executor.map(List.of(1, 2, 3), item -> Thread.currentThread());
+
+        assertTrue(threads.stream().allMatch(caller::equals));
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static RatingProperties parallelProperties() {
+        RatingProperties properties = new RatingProperties();
+        properties.getParallel().setEnabled(true);
+        properties.getParallel().setThreshold(10);
+        properties.getParallel().setChunkSize(7);
+        properties.getParallel().setParallelism(4);
+        return properties;
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.PortfolioJobProperties;
+import com.example.bicycleinsurance.config.RatingProperties;
+import com.example.bicycleinsurance.config.TariffProperties;
+import com.example.bicycleinsurance.dto.BicycleDto;
+import com.example.bicycleinsurance.dto.PortfolioJobChange;
+import com.example.bicycleinsurance.dto.PortfolioJobChangePage;
+import com.example.bicycleinsurance.dto.PortfolioJobPage;
+import com.example.bicycleinsurance.dto.PortfolioJobStatus;
+import com.example.bicycleinsurance.dto.PortfolioJobStatus.State;
+import com.example.bicycleinsurance.dto.PortfolioReRating;
+import com.example.bicycleinsurance.dto.PremiumResponse;
+import com.example.bicycleinsurance.exception.JobCapacityExceededException;
+import com.example.bicycleinsurance.exception.JobNotFoundException;
+import com.example.bicycleinsurance.mapper.BicycleMapperImpl;
+import com.example.bicycleinsurance.model.CoverageType;
+import com.example.bicycleinsurance.monitoring.RatingMetrics;
+import com.example.bicycleinsurance.tariff.FactorBand;
+import com.example.bicycleinsurance.tariff.Tariff;
+import com.example.bicycleinsurance.tariff.TariffRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PortfolioJobServiceTest {
+
+    private final RatingProperties ratingProperties = new RatingProperties();
+    private final PortfolioJobProperties properties = new PortfolioJobProperties();
+
+    @Test
+    void submit_ShouldRatePortfolio_AndKeepFailedBicyclesAsErrorResults() throws Exception {
+        InsuranceService insuranceService = insuranceService();
+        PortfolioJobService jobService = new PortfolioJobService(insuranceService, ratingProperties, properties);
+        List<BicycleDto> valid = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            valid.add(bicycle(i % 11, BigDecimal.valueOf(200 + i * 100)));
+        }
+        List<BicycleDto> portfolio = new ArrayList<>(valid);
+        portfolio.add(3, bicycle(12, new BigDecimal("1000")));
+
+        PortfolioJobStatus status = await(jobService, jobService.submit(portfolio).getId());
+
+        assertEquals(State.COMPLETED, status.getState());
+        assertEquals(26, status.getProcessed());
+        assertEquals(1, status.getFailed());
+        assertEquals(insuranceService.calculatePremium(valid).getPremium(), status.getPremium());
+
+        PortfolioJobPage page = jobService.getResults(status.getId(), 0, 5);
+        assertEquals(26, page.getAvailable());
+        assertEquals(List.of(0, 1, 2, 3, 4), page.getResults().stream().map(result -> result.getIndex()).toList());
+        assertEquals("VALIDATION_ERROR", page.getResults().get(3).getError().code());
+        assertNull(page.getResults().get(3).getObject());
+        PremiumResponse.ObjectPremium first = insuranceService.calculateObjectPremium(valid.get(0));
+        assertEquals(first, page.getResults().get(0).getObject());
+        assertEquals(1, jobService.getResults(status.getId(), 5, 5).getResults().size());
+        assertTrue(jobService.getResults(status.getId(), 6, 5).getResults().isEmpty());
+    }
+
+    @Test
+    void submit_ShouldRejectJobs_WhenWorkersAndQueueAreFull_AndCancelQueuedAndRunningJobs() throws Exception {
+        properties.setMaxConcurrentJobs(1);
+        properties.setMaxQueuedJobs(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InsuranceService insuranceService = mock(InsuranceService.class);
+        when(insuranceService.rate(any(), any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return new InsuranceService.RatedBicycle(new PremiumResponse.ObjectPremium(), BigDecimal.ONE);
+        });
+        PortfolioJobService jobService = new PortfolioJobService(insuranceService, ratingProperties, properties);
+        List<BicycleDto> portfolio = List.of(bicycle(1, new BigDecimal("1000")), bicycle(2, new BigDecimal("1000")));
+
+        String running = jobService.submit(portfolio).getId();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        String queued = jobService.submit(portfolio).getId();
+        assertThrows(JobCapacityExceededException.class, () -> jobService.submit(portfolio));
+
+        assertEquals(State.CANCELLED, jobService.cancel(queued).getState());
+        assertEquals(State.RUNNING, jobService.cancel(running).getState());
+        release.countDown();
+
+        PortfolioJobStatus status = await(jobService, running);
+        assertEquals(State.CANCELLED, status.getState());
+        assertEquals(1, status.getProcessed());
+        assertNull(status.getPremium());
+        verify(insuranceService).ratingDate();
+        jobService.shutdown();
+    }
+
+    @Test
+    void reRate_ShouldRateAgainOnlyBicyclesDependingOnChangedTariffRows() throws Exception {
+        InsuranceService insuranceService = insuranceService();
+        PortfolioJobService jobService = new PortfolioJobService(insuranceService, ratingProperties, properties);
+        List<BicycleDto> portfolio = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            BicycleDto bicycle = bicycle(i % 10, BigDecimal.valueOf(400 + i * 100));
+            if (i % 4 == 0) {
+                bicycle.setMake("Pearl");
+                bicycle.setModel("Gravel SL EVO");
+            }
+            portfolio.add(bicycle);
+        }
+        String jobId = await(jobService, jobService.submit(portfolio).getId()).getId();
+        BigDecimal previousPremium = jobService.getStatus(jobId).getPremium();
+
+        Tariff tariff = TariffRegistry.current();
+        try {
+            TariffRegistry.use(new RepricedAgeFactors(tariff, "Pearl", new BigDecimal("1.1")));
+            PortfolioReRating reRating = awaitReRating(jobService, jobService.reRate(jobId).getId());
+
+            assertEquals(State.COMPLETED, reRating.getState());
+            assertEquals(5, reRating.getReRated());
+            assertEquals(5, reRating.getChanged());
+            assertEquals(previousPremium, reRating.getPreviousPremium());
+            assertEquals(insuranceService.calculatePremium(portfolio).getPremium(), reRating.getPremium());
+            assertEquals(reRating.getPremium(), jobService.getStatus(jobId).getPremium());
+
+            PortfolioJobChangePage changes = jobService.getChanges(jobId, 0, 10);
+            assertEquals(List.of(0, 4, 8, 12, 16), changes.getChanges().stream().map(PortfolioJobChange::getIndex).toList());
+            PortfolioJobChange first = changes.getChanges().get(0);
+            assertEquals(insuranceService.calculateObjectPremium(portfolio.get(0)), first.getCurrent().getObject());
+            assertNotEquals(first.getPrevious().getObject(), first.getCurrent().getObject());
+            assertEquals(first.getCurrent(), jobService.getResults(jobId, 0, 1).getResults().get(0));
+
+            PortfolioReRating unchanged = awaitReRating(jobService, jobService.reRate(jobId).getId());
+            assertEquals(0, unchanged.getChangedDependencies());
+            assertEquals(0, unchanged.getReRated());
+            assertEquals(reRating.getPremium(), unchanged.getPremium());
+        } finally {
+            TariffRegistry.use(tariff);
+            jobService.shutdown();
+        }
+    }
+
+    @Test
+    void getStatus_ShouldThrow_ForUnknownJob() {
+        PortfolioJobService jobService = new PortfolioJobService(insuranceService(), ratingProperties, properties);
+
+        assertThrows(JobNotFoundException.class, () -> jobService.getStatus("unknown"));
+    }
+
+    private static PortfolioJobStatus await(PortfolioJobService jobService, String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        PortfolioJobStatus status = jobService.getStatus(jobId);
+        while (!status.getState().isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            status = jobService.getStatus(jobId);
+        }
+        return status;
+    }
+
+    private static PortfolioReRating awaitReRating(PortfolioJobService jobService, String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        PortfolioReRating reRating = jobService.getStatus(jobId).getReRating();
+        while (!reRating.getState().isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            reRating = jobService.getStatus(jobId).getReRating();
+        }
+        return reRating;
+    }
+
+    private InsuranceService insuranceService() {
+        RiskRatingCache riskRatingCache = new RiskRatingCache(ratingProperties);
+        GroovyScriptEngine engine = new GroovyScriptEngine();
+        return new InsuranceService(new BicycleMapperImpl(), engine, new ParallelRatingExecutor(ratingProperties),
+                riskRatingCache, new RatingMetrics(new SimpleMeterRegistry(), riskRatingCache), ratingProperties,
+                new TariffVersions(new TariffProperties(), engine));
+    }
+
+    private static BicycleDto bicycle(int age, BigDecimal sumInsured) {
+        return BicycleDto.builder()
+                .make("Canyon")
+                .model("CF 5")
+                .manufactureYear(Year.now().getValue() - age)
+                .sumInsured(sumInsured)
+                .coverage(CoverageType.STANDARD)
+                .risks(List.of("THEFT", "DAMAGE"))
+                .build();
+    }
+
+    /**
+     * The given tariff with the age factors of one make scaled.
+     */
+    private record RepricedAgeFactors(Tariff tariff, String make, BigDecimal scale) implements Tariff {
+
+        @Override
+        public BigDecimal riskBasePremium(String riskType) {
+            return tariff.riskBasePremium(riskType);
+        }
+
+        @Override
+        public FactorBand sumInsuredFactor(BigDecimal sumInsured) {
+            return tariff.sumInsuredFactor(sumInsured);
+        }
+
+        @Override
+        public FactorBand riskCountFactor(int riskCount) {
+            return tariff.riskCountFactor(riskCount);
+        }
+
+        @Override
+        public FactorBand ageFactor(String make, String model, int age) {
+            FactorBand band = tariff.ageFactor(make, model, age);
+            return band == null || !this.make.equals(make) ? band
+                    : new FactorBand(band.valueFrom(), band.valueTo(), band.factorMin().multiply(scale), band.factorMax().multiply(scale));
+        }
+    }
+}
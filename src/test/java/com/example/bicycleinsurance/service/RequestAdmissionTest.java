@@ -0,0 +1,82 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.AdmissionProperties;
+import com.example.bicycleinsurance.dto.BicycleDto;
+import com.example.bicycleinsurance.exception.RequestRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RequestAdmissionTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void admit_ShouldShedRequests_WhenWeightAndQueueAreExhausted() throws Exception {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setEnabled(true);
+        properties.setMaxConcurrentWeight(4);
+        properties.setMaxQueuedRequests(1);
+        properties.setQueueTimeout(Duration.ofSeconds(5));
+        RequestAdmission admission = new RequestAdmission(properties, meterRegistry);
+
+        // Heavier than the limit: counted as the whole limit instead of never fitting
+        RequestAdmission.Permit fleet = admission.admit(bicycles(10, 3));
+        CompletableFuture<RequestAdmission.Permit> queued = CompletableFuture.supplyAsync(() -> admission.admit(bicycles(1, 1)));
+        while (meterRegistry.get("insurance.admission.queued").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        RequestRejectedException queueFull = assertThrows(RequestRejectedException.class, () -> admission.admit(bicycles(1, 1)));
+        assertEquals(RequestRejectedException.Reason.QUEUE_FULL, queueFull.getReason());
+
+        fleet.close();
+        queued.get(5, TimeUnit.SECONDS).close();
+        assertEquals(1, counter("admitted", "none"));
+        assertEquals(1, counter("queued", "none"));
+        assertEquals(1, counter("shed", "queue_full"));
+    }
+
+    @Test
+    void admit_ShouldRejectAfterTheQueueTimeout() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setEnabled(true);
+        properties.setMaxConcurrentWeight(2);
+        properties.setQueueTimeout(Duration.ofMillis(50));
+        properties.setRetryAfter(Duration.ofSeconds(3));
+        RequestAdmission admission = new RequestAdmission(properties, meterRegistry);
+
+        assertNotNull(admission.admit(bicycles(1, 2)));
+        RequestRejectedException timeout = assertThrows(RequestRejectedException.class, () -> admission.admit(bicycles(1, 1)));
+
+        assertEquals(RequestRejectedException.Reason.QUEUE_TIMEOUT, timeout.getReason());
+        assertEquals(Duration.ofSeconds(3), timeout.getRetryAfter());
+        assertEquals(1, counter("shed", "queue_timeout"));
+    }
+
+    @Test
+    void admit_ShouldAdmitEverything_WhenDisabled() {
+        RequestAdmission admission = new RequestAdmission(new AdmissionProperties(), meterRegistry);
+
+        assertNull(admission.admit(bicycles(100_000, 3)));
+    }
+
+    private double counter(String outcome, String reason) {
+        return meterRegistry.get("insurance.admission.requests").tag("outcome", outcome).tag("reason", reason).counter().count();
+    }
+
+    private static List<BicycleDto> bicycles(int count, int risks) {
+        BicycleDto bicycle = BicycleDto.builder().risks(List.of("THEFT", "DAMAGE", "THIRD_PARTY_DAMAGE").subList(0, risks)).build();
+        return Collections.nCopies(count, bicycle);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.RatingProperties;
+import com.example.bicycleinsurance.tariff.Tariff;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class RiskRatingCacheTest {
+
+    private static final RiskRating RATING = new RiskRating(new BigDecimal("500.0"), new BigDecimal("10.833333333000"));
+
+    @Test
+    void get_ShouldRateOnlyOnce_ForSameInputs() {
+        RiskRatingCache cache = enabledCache();
+        AtomicInteger ratings = new AtomicInteger();
+
+        RiskRating first = cache.get(key("1000", 1), key -> rate(ratings));
+        RiskRating second = cache.get(key("1000", 1), key -> rate(ratings));
+
+        assertSame(first, second);
+        assertEquals(1, ratings.get());
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    void get_ShouldTreatDifferentScaleAsDifferentInput() {
+        RiskRatingCache cache = enabledCache();
+        AtomicInteger ratings = new AtomicInteger();
+
+        cache.get(key("1000", 1), key -> rate(ratings));
+        cache.get(key("1000.00", 1), key -> rate(ratings));
+
+        assertEquals(2, ratings.get());
+    }
+
+    @Test
+    void get_ShouldDropCachedRatings_WhenScriptVersionChanges() {
+        RiskRatingCache cache = enabledCache();
+        AtomicInteger ratings = new AtomicInteger();
+
+        cache.get(key("1000", 1), key -> rate(ratings));
+        cache.get(key("1000", 2), key -> rate(ratings));
+        cache.get(key("1000", 1), key -> rate(ratings));
+
+        assertEquals(3, ratings.get());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void get_ShouldNotMatchRatingsOfAReplacedTariff() {
+        RiskRatingCache cache = enabledCache();
+        AtomicInteger ratings = new AtomicInteger();
+        Tariff installed = mock(Tariff.class);
+        Tariff replaced = mock(Tariff.class);
+
+        cache.get(key("1000", 1, replaced), key -> rate(ratings));
+        cache.get(key("1000", 1, installed), key -> rate(ratings));
+        cache.get(key("1000", 1, installed), key -> rate(ratings));
+
+        assertEquals(2, ratings.get());
+    }
+
+    @Test
+    void get_ShouldAlwaysRate_WhenDisabled() {
+        RiskRatingCache cache = new RiskRatingCache(new RatingProperties());
+        AtomicInteger ratings = new AtomicInteger();
+
+        cache.get(key("1000", 1), key -> rate(ratings));
+        cache.get(key("1000", 1), key -> rate(ratings));
+
+        assertEquals(2, ratings.get());
+        assertFalse(cache.isEnabled());
+    }
+
+    private static RiskRatingCache enabledCache() {
+        RatingProperties properties = new RatingProperties();
+        properties.getCache().setEnabled(true);
+        return new RiskRatingCache(properties);
+    }
+
+    private static RiskRatingCache.Key key(String sumInsured, long scriptVersion) {
+        return key(sumInsured, scriptVersion, null);
+    }
+
+    private static RiskRatingCache.Key key(String sumInsured, long scriptVersion, Tariff tariff) {
+        return new RiskRatingCache.Key("Pearl", "Gravel SL EVO", 3, new BigDecimal(sumInsured), "DAMAGE", 3, scriptVersion, tariff);
+    }
+
+    private static RiskRating rate(AtomicInteger ratings) {
+        ratings.incrementAndGet();
+        return RATING;
+    }
+}
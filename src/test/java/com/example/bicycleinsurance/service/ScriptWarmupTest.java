@@ -0,0 +1,48 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.RatingProperties;
+import com.example.bicycleinsurance.config.ScriptEngineProperties;
+import com.example.bicycleinsurance.config.TariffProperties;
+import com.example.bicycleinsurance.mapper.BicycleMapperImpl;
+import com.example.bicycleinsurance.monitoring.RatingMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ScriptWarmupTest {
+
+    @Test
+    void warmUp_ShouldRateAllIterations_WithoutFillingTheRatingCache() {
+        RatingProperties ratingProperties = new RatingProperties();
+        ratingProperties.getCache().setEnabled(true);
+        RiskRatingCache riskRatingCache = new RiskRatingCache(ratingProperties);
+        ScriptEngineProperties properties = new ScriptEngineProperties();
+        properties.getWarmup().setIterations(500);
+
+        int rated = new ScriptWarmup(insuranceService(ratingProperties, riskRatingCache), properties).warmUp();
+
+        assertEquals(500, rated);
+        assertEquals(0, riskRatingCache.size());
+    }
+
+    @Test
+    void warmUp_ShouldStop_WhenTimedOut() {
+        RatingProperties ratingProperties = new RatingProperties();
+        ScriptEngineProperties properties = new ScriptEngineProperties();
+        properties.getWarmup().setTimeout(Duration.ZERO);
+
+        int rated = new ScriptWarmup(insuranceService(ratingProperties, new RiskRatingCache(ratingProperties)), properties).warmUp();
+
+        assertEquals(0, rated);
+    }
+
+    private static InsuranceService insuranceService(RatingProperties ratingProperties, RiskRatingCache riskRatingCache) {
+        GroovyScriptEngine engine = new GroovyScriptEngine();
+        return new InsuranceService(new BicycleMapperImpl(), engine, new ParallelRatingExecutor(ratingProperties),
+                riskRatingCache, new RatingMetrics(new SimpleMeterRegistry(), riskRatingCache), ratingProperties,
+                new TariffVersions(new TariffProperties(), engine));
+    }
+}
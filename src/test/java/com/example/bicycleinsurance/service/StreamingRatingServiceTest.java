@@ -0,0 +1,117 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.AdmissionProperties;
+import com.example.bicycleinsurance.dto.BicycleDto;
+import com.example.bicycleinsurance.dto.PremiumResponse;
+import com.example.bicycleinsurance.exception.CustomValidationException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class StreamingRatingServiceTest {
+
+    private final InsuranceService insuranceService = mock(InsuranceService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdmissionProperties admissionProperties = new AdmissionProperties();
+    private final RequestAdmission requestAdmission = new RequestAdmission(admissionProperties, meterRegistry);
+    private final StreamingRatingService streamingRatingService = new StreamingRatingService(
+            insuranceService, new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), requestAdmission);
+
+    @Test
+    void calculatePremiums_ShouldWriteOneLinePerRecord() throws Exception {
+        when(insuranceService.calculateObjectPremium(any(BicycleDto.class), any())).thenAnswer(invocation -> {
+            BicycleDto bicycle = invocation.getArgument(0);
+            return PremiumResponse.ObjectPremium.builder()
+                    .sumInsured(bicycle.getSumInsured())
+                    .premium(bicycle.getSumInsured().movePointLeft(2))
+                    .build();
+        });
+
+        String output = stream("""
+                {"make":"Pearl","model":"Gravel SL EVO","coverage":"EXTRA","manufactureYear":2020,"sumInsured":1000,"risks":["THEFT"]}
+                {"make":"Sensa","model":"V2","coverage":"STANDARD","manufactureYear":2021,"sumInsured":500,"risks":["DAMAGE"]}
+                """);
+
+        String[] lines = output.split("\\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"premium\":10.00"));
+        assertTrue(lines[1].contains("\"premium\":5.00"));
+        verify(insuranceService, times(2)).calculateObjectPremium(any(BicycleDto.class), any());
+    }
+
+    @Test
+    void calculatePremiums_ShouldEndWithErrorLine_WhenRecordIsInvalid() throws Exception {
+        when(insuranceService.calculateObjectPremium(any(BicycleDto.class), any()))
+                .thenReturn(PremiumResponse.ObjectPremium.builder().premium(BigDecimal.ONE).build());
+        when(insuranceService.calculateObjectPremium(argThat(bicycle -> bicycle != null && bicycle.getManufactureYear() == 2000), any()))
+                .thenThrow(new CustomValidationException("Bicycle must be newer than 10 years"));
+
+        String output = stream("""
+                {"make":"Pearl","model":"Gravel SL EVO","coverage":"EXTRA","manufactureYear":2020,"sumInsured":1000,"risks":["THEFT"]}
+                {"make":"Sensa","model":"V2","coverage":"STANDARD","manufactureYear":2000,"sumInsured":500,"risks":["DAMAGE"]}
+                {"make":"Sensa","model":"V2","coverage":"STANDARD","manufactureYear":2021,"sumInsured":500,"risks":["DAMAGE"]}
+                """);
+
+        String[] lines = output.split("\\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"code\":\"VALIDATION_ERROR\",\"message\":\"Bicycle must be newer than 10 years\"}", lines[1]);
+    }
+
+    @Test
+    void calculatePremiums_ShouldHoldAdmissionForOneChunkOfRecordsAtATime() throws Exception {
+        admissionProperties.setEnabled(true);
+        admissionProperties.setStreamChunkWeight(2);
+        List<Double> weightInUse = new ArrayList<>();
+        when(insuranceService.calculateObjectPremium(any(BicycleDto.class), any())).thenAnswer(invocation -> {
+            weightInUse.add(meterRegistry.get("insurance.admission.weight.in-use").gauge().value());
+            return PremiumResponse.ObjectPremium.builder().premium(BigDecimal.ONE).build();
+        });
+
+        String output = stream("""
+                {"make":"Pearl","model":"Gravel SL EVO","coverage":"EXTRA","manufactureYear":2020,"sumInsured":1000,"risks":["THEFT"]}
+                {"make":"Sensa","model":"V2","coverage":"STANDARD","manufactureYear":2021,"sumInsured":500,"risks":["DAMAGE"]}
+                {"make":"Sensa","model":"V2","coverage":"STANDARD","manufactureYear":2021,"sumInsured":500,"risks":["THEFT","DAMAGE"]}
+                """);
+
+        assertEquals(3, output.split("\\n").length);
+        assertEquals(List.of(2.0, 2.0, 2.0), weightInUse);
+        assertEquals(0.0, meterRegistry.get("insurance.admission.weight.in-use").gauge().value());
+        assertEquals(2.0, meterRegistry.get("insurance.admission.requests").tag("outcome", "admitted").counter().count());
+    }
+
+    @Test
+    void calculatePremiums_ShouldEndWithErrorLine_WhenAChunkIsNotAdmitted() throws Exception {
+        admissionProperties.setEnabled(true);
+        admissionProperties.setMaxQueuedRequests(0);
+
+        String output;
+        try (RequestAdmission.Permit fleet = requestAdmission.admit(Collections.nCopies(admissionProperties.getMaxConcurrentWeight(), new BicycleDto()))) {
+            output = stream("""
+                    {"make":"Pearl","model":"Gravel SL EVO","coverage":"EXTRA","manufactureYear":2020,"sumInsured":1000,"risks":["THEFT"]}
+                    """);
+        }
+
+        assertEquals("{\"code\":\"TOO_MANY_REQUESTS\",\"message\":\"Too many calculation requests waiting, retry later\"}\n", output);
+        verify(insuranceService, never()).calculateObjectPremium(any(BicycleDto.class), any());
+    }
+
+    private String stream(String input) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        streamingRatingService.calculatePremiums(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.bicycleinsurance.service;
+
+import com.example.bicycleinsurance.config.RatingProperties;
+import com.example.bicycleinsurance.config.TariffProperties;
+import com.example.bicycleinsurance.dto.BicycleDto;
+import com.example.bicycleinsurance.exception.CustomValidationException;
+import com.example.bicycleinsurance.mapper.BicycleMapperImpl;
+import com.example.bicycleinsurance.model.CoverageType;
+import com.example.bicycleinsurance.monitoring.RatingMetrics;
+import com.example.bicycleinsurance.tariff.TariffCsv;
+import com.example.bicycleinsurance.tariff.TariffRegistry;
+import com.example.bicycleinsurance.tariff.TariffVersion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TariffVersionsTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-06-01T12:00:00Z"), ZoneOffset.UTC);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void calculatePremium_ShouldRateWithTheTariffVersionInEffectOnTheRatingDate() throws Exception {
+        // The 2023 tariff charges 24 instead of 30 for theft, the 2024 version doubles it in its own premium script
+        Path versions = directory.resolve("versions");
+        Files.writeString(writeVersion(versions.resolve("2023-01-01")).resolve(TariffCsv.RISK_BASE_PREMIUMS),
+                "RISK_TYPE,PREMIUM\nDAMAGE,10.0\nTHIRD_PARTY_DAMAGE,20.0\nTHEFT,24.0\n");
+        Path scripts = writeVersion(versions.resolve("2024-01-01")).resolve("scripts").resolve("premiums");
+        Files.createDirectories(scripts);
+        Files.writeString(scripts.resolve("THEFT.groovy"),
+                "return riskBasePremium(\"THEFT\") * calculateSumInsuredFactor(riskSumInsured) * 2\n");
+
+        TariffProperties properties = tariffProperties(versions, 4);
+        GroovyScriptEngine engine = new GroovyScriptEngine();
+        TariffVersions tariffVersions = new TariffVersions(properties, engine, CLOCK);
+        tariffVersions.scan();
+        InsuranceService versioned = insuranceService(engine, tariffVersions);
+        InsuranceService deployed = insuranceService(engine, new TariffVersions(new TariffProperties(), engine, CLOCK));
+        List<BicycleDto> theft = List.of(bicycleDto());
+
+        BigDecimal premium = deployed.calculatePremium(theft).getPremium();
+        assertEquals(premium.multiply(new BigDecimal("0.8")).setScale(2),
+                versioned.calculatePremium(theft, LocalDate.of(2023, 12, 31)).getPremium());
+        assertEquals(premium.multiply(BigDecimal.valueOf(2)), versioned.calculatePremium(theft).getPremium());
+        assertEquals(LocalDate.of(2024, 1, 1), versioned.explainPremium(theft, null)
+                .getObjects().get(0).getRisks().get(0).getExplanation().getTariffVersion());
+        CustomValidationException exception = assertThrows(CustomValidationException.class,
+                () -> versioned.calculatePremium(theft, LocalDate.of(2022, 12, 31)));
+        assertEquals("No tariff version is in effect on 2022-12-31", exception.getMessage());
+    }
+
+    @Test
+    void resolve_ShouldReleaseTheLeastRecentlyUsedVersion_WhenTooManyAreLoaded() throws Exception {
+        Path versions = directory.resolve("versions");
+        writeVersion(versions.resolve("2023-01-01"));
+        writeVersion(versions.resolve("2024-01-01"));
+        Files.createDirectories(versions.resolve("archive"));
+        TariffVersions tariffVersions = new TariffVersions(tariffProperties(versions, 1), new GroovyScriptEngine(), CLOCK);
+        tariffVersions.scan();
+
+        RatingDate today = tariffVersions.resolve(null);
+        TariffVersion version2023 = tariffVersions.resolve(LocalDate.of(2023, 3, 1)).tariffVersion();
+
+        assertEquals(LocalDate.of(2024, 6, 1), today.date());
+        assertEquals(LocalDate.of(2024, 1, 1), today.tariffVersion().effectiveFrom());
+        assertSame(version2023, tariffVersions.resolve(LocalDate.of(2023, 12, 31)).tariffVersion());
+        assertNotSame(today.tariffVersion(), tariffVersions.resolve(null).tariffVersion());
+    }
+
+    @Test
+    void reload_ShouldRecompileLoadedTariffVersions_BeforeTheirNextUse() throws Exception {
+        Path versions = directory.resolve("versions");
+        Path script = writeVersion(versions.resolve("2024-01-01")).resolve("scripts").resolve("premiums").resolve("THEFT.groovy");
+        Files.createDirectories(script.getParent());
+        Files.writeString(script, "return riskBasePremium(\"THEFT\") * calculateSumInsuredFactor(riskSumInsured) * 2\n");
+        GroovyScriptEngine engine = new GroovyScriptEngine();
+        TariffVersions tariffVersions = new TariffVersions(tariffProperties(versions, 4), engine, CLOCK);
+        tariffVersions.scan();
+        InsuranceService versioned = insuranceService(engine, tariffVersions);
+        List<BicycleDto> theft = List.of(bicycleDto());
+        BigDecimal premium = versioned.calculatePremium(theft).getPremium();
+
+        engine.reload();
+        // Compiling on first use after the reload would no longer find the override
+        Files.delete(script);
+
+        assertEquals(premium, versioned.calculatePremium(theft).getPremium());
+    }
+
+    private TariffProperties tariffProperties(Path versions, int maxLoadedVersions) {
+        TariffProperties properties = new TariffProperties();
+        properties.setVersionsDir(versions);
+        properties.setMaxLoadedVersions(maxLoadedVersions);
+        properties.setBinaryFile(directory.resolve("tariff.bin"));
+        return properties;
+    }
+
+    /**
+     * Writes a version directory with a copy of the bundled tariff.
+     */
+    private static Path writeVersion(Path version) throws IOException {
+        Files.createDirectories(version);
+        for (String fileName : List.of(TariffCsv.AGE_FACTORS, TariffCsv.RISK_COUNT_FACTORS,
+                TariffCsv.SUM_INSURED_FACTORS, TariffCsv.RISK_BASE_PREMIUMS)) {
+            try (InputStream csv = TariffVersionsTest.class.getClassLoader()
+                    .getResourceAsStream(TariffRegistry.BUNDLED_LOCATION + fileName)) {
+                Files.write(version.resolve(fileName), csv.readAllBytes());
+            }
+        }
+        return version;
+    }
+
+    private static InsuranceService insuranceService(GroovyScriptEngine engine, TariffVersions tariffVersions) {
+        RatingProperties ratingProperties = new RatingProperties();
+        RiskRatingCache riskRatingCache = new RiskRatingCache(ratingProperties);
+        return new InsuranceService(new BicycleMapperImpl(), engine, new ParallelRatingExecutor(ratingProperties),
+                riskRatingCache, new RatingMetrics(new SimpleMeterRegistry(), riskRatingCache), ratingProperties,
+                tariffVersions);
+    }
+
+    private static BicycleDto bicycleDto() {
+        return BicycleDto.builder()
+                .make("Pearl")
+                .model("Gravel SL EVO")
+                .manufactureYear(2020)
+                .sumInsured(new BigDecimal("1000"))
+                .coverage(CoverageType.STANDARD)
+                .risks(List.of("THEFT"))
+                .build();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.bicycleinsurance.tariff;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTariffTest {
+
+    private static final List<String> MAKES = List.of("Pearl", "Canyon", "Whyte", "Sensa", "Krush", "Megamo", "Unknown");
+    private static final List<String> MODELS = List.of("Gravel SL EVO", "CF 5", "T-160 RS", "V2", "Other");
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void lookups_ShouldMatchHeapTables_ForBundledTariff() throws Exception {
+        TariffCsv csv = TariffCsv.fromClasspath(TariffRegistry.BUNDLED_LOCATION);
+        TariffTables tables = csv.toTables();
+        Path file = directory.resolve("tariff.bin");
+        TariffFile.write(tables, csv.checksum(), file);
+
+        MappedTariff mapped = MappedTariff.open(file);
+
+        for (String make : MAKES) {
+            for (String model : MODELS) {
+                for (int age = 0; age <= 16; age++) {
+                    assertEquals(tables.ageFactor(make, model, age), mapped.ageFactor(make, model, age), make + " " + model + " " + age);
+                }
+            }
+        }
+        for (int riskCount = 0; riskCount <= 11; riskCount++) {
+            assertEquals(tables.riskCountFactor(riskCount), mapped.riskCountFactor(riskCount));
+        }
+        for (String sumInsured : List.of("99", "100", "100.0", "550.55", "1000.5", "1001", "3000", "4999.99", "5000", "5001")) {
+            assertEquals(tables.sumInsuredFactor(new BigDecimal(sumInsured)), mapped.sumInsuredFactor(new BigDecimal(sumInsured)));
+        }
+        for (String riskType : List.of("DAMAGE", "THIRD_PARTY_DAMAGE", "THEFT", "FLOOD", "Pearl")) {
+            assertEquals(tables.riskBasePremium(riskType), mapped.riskBasePremium(riskType));
+        }
+    }
+
+    @Test
+    void bands_ShouldKeepValueAndScaleOfCsvDecimals() throws Exception {
+        Path file = compile(directory);
+
+        FactorBand band = MappedTariff.open(file).ageFactor("Pearl", "Gravel, \"SL\"", 1);
+
+        assertEquals("0.0", band.valueFrom().toPlainString());
+        assertEquals("2.05", band.factorMin().toPlainString());
+        assertEquals("2.500", band.factorMax().toPlainString());
+    }
+
+    @Test
+    void isCompiledFrom_ShouldDetectChangedCsvFiles() throws Exception {
+        Path file = compile(directory);
+        long checksum = TariffCsv.fromDirectory(directory).checksum();
+
+        assertTrue(TariffFile.isCompiledFrom(file, checksum));
+        Files.writeString(directory.resolve(TariffCsv.RISK_BASE_PREMIUMS), "RISK_TYPE,PREMIUM\nTHEFT,31.0\n");
+        assertFalse(TariffFile.isCompiledFrom(file, TariffCsv.fromDirectory(directory).checksum()));
+        assertFalse(TariffFile.isCompiledFrom(directory.resolve("missing.bin"), checksum));
+    }
+
+    @Test
+    void toTables_ShouldRejectRowsWithMissingFields() throws Exception {
+        compile(directory);
+        Files.writeString(directory.resolve(TariffCsv.SUM_INSURED_FACTORS), "VALUE_FROM,VALUE_TO,FACTOR_MIN,FACTOR_MAX\n100,1000,0.5\n");
+
+        assertThrows(IllegalArgumentException.class, () -> TariffCsv.fromDirectory(directory).toTables());
+    }
+
+    private static Path compile(Path directory) throws Exception {
+        Files.writeString(directory.resolve(TariffCsv.AGE_FACTORS), String.join("\n",
+                "MAKE,MODEL,VALUE_FROM,VALUE_TO,FACTOR_MIN,FACTOR_MAX",
+                "Pearl,\"Gravel, \"\"SL\"\"\",0.0,2.0,2.05,2.500",
+                "Pearl,,0.0,15.0,0.99,1.8",
+                ",,0.0,15.0,1.0,3.0"));
+        Files.writeString(directory.resolve(TariffCsv.RISK_COUNT_FACTORS), "VALUE_FROM,VALUE_TO,FACTOR_MIN,FACTOR_MAX\n0,10,1.0,1.0\n");
+        Files.writeString(directory.resolve(TariffCsv.SUM_INSURED_FACTORS), "VALUE_FROM,VALUE_TO,FACTOR_MIN,FACTOR_MAX\n100,1000,0.5,1.0\n");
+        Files.writeString(directory.resolve(TariffCsv.RISK_BASE_PREMIUMS), "RISK_TYPE,PREMIUM\nTHEFT,30.0\n");
+        TariffCsv csv = TariffCsv.fromDirectory(directory);
+        Path file = directory.resolve("tariff.bin");
+        TariffFile.write(csv.toTables(), csv.checksum(), file);
+        return file;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.bicycleinsurance.tariff;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TariffTablesTest {
+
+    private final TariffTables tables = TariffTables.fromRows(
+            List.of(
+                    row("Pearl", "Gravel SL EVO", "0", "2", "2.1", "2.5"),
+                    row("Pearl", "Gravel SL EVO", "3", "6", "1.5", "2.0"),
+                    row("Pearl", null, "0", "15", "0.99", "1.8"),
+                    row(null, null, "0", "15", "1.0", "3.0")),
+            List.of(row(null, null, "0", "1", "1.3", "1.3")),
+            List.of(
+                    row(null, null, "1001", "3000", "1.0", "2.0"),
+                    row(null, null, "100", "1000", "0.5", "1.0")),
+            List.of(Map.of("RISK_TYPE", "THEFT", "PREMIUM", new BigDecimal("30.0"))));
+
+    @Test
+    void ageFactor_ShouldPreferMakeAndModelThenMakeThenGlobal() {
+        assertEquals(new BigDecimal("2.1"), tables.ageFactors().find("Pearl", "Gravel SL EVO", 1).factorMin());
+        assertEquals(new BigDecimal("0.99"), tables.ageFactors().find("Pearl", "Gravel SL EVO", 7).factorMin());
+        assertEquals(new BigDecimal("0.99"), tables.ageFactors().find("Pearl", "Other", 1).factorMin());
+        assertEquals(new BigDecimal("1.0"), tables.ageFactors().find("Canyon", "CF 5", 1).factorMin());
+        assertNull(tables.ageFactors().find("Canyon", "CF 5", 16));
+    }
+
+    @Test
+    void sumInsuredFactor_ShouldFindBandRegardlessOfRowOrderAndRespectGaps() {
+        assertEquals(new BigDecimal("100"), tables.sumInsuredFactors().find(new BigDecimal("100")).valueFrom());
+        assertEquals(new BigDecimal("1001"), tables.sumInsuredFactors().find(new BigDecimal("3000")).valueFrom());
+        assertNull(tables.sumInsuredFactors().find(new BigDecimal("1000.5")));
+        assertNull(tables.sumInsuredFactors().find(new BigDecimal("99")));
+    }
+
+    @Test
+    void riskBasePremium_ShouldReturnNullForUnknownRisk() {
+        assertEquals(new BigDecimal("30.0"), tables.riskBasePremium("THEFT"));
+        assertNull(tables.riskBasePremium("FLOOD"));
+    }
+
+    @Test
+    void fromRows_ShouldRejectOverlappingBands() {
+        List<Map<String, Object>> overlapping = List.of(
+                row(null, null, "0", "5", "1.0", "1.0"),
+                row(null, null, "5", "10", "1.0", "1.0"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> TariffTables.fromRows(List.of(), overlapping, List.of(), List.of()));
+    }
+
+    private static Map<String, Object> row(String make, String model, String from, String to, String min, String max) {
+        Map<String, Object> row = new HashMap<>();
+        if (make != null) {
+            row.put("MAKE", make);
+        }
+        if (model != null) {
+            row.put("MODEL", model);
+        }
+        row.put("VALUE_FROM", new BigDecimal(from));
+        row.put("VALUE_TO", new BigDecimal(to));
+        row.put("FACTOR_MIN", new BigDecimal(min));
+        row.put("FACTOR_MAX", new BigDecimal(max));
+        return row;
+    }
+}